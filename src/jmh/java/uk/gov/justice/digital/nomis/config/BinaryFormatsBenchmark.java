@@ -0,0 +1,101 @@
+package uk.gov.justice.digital.nomis.config;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import uk.gov.justice.digital.nomis.CustodyApiApplication;
+import uk.gov.justice.digital.nomis.api.EventSource;
+import uk.gov.justice.digital.nomis.api.OffenderEvent;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing a day of events as JSON, CBOR and Smile. The payload size of each is printed once at setup,
+ * as JMH only measures time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BinaryFormatsBenchmark {
+
+    private static final LocalDateTime START = LocalDateTime.of(2020, 6, 14, 0, 0);
+    private static final String[] EVENT_TYPES = {"OFFENDER_MOVEMENT-RECEPTION", "BOOKING_NUMBER-CHANGED", "ALERT-INSERTED",
+            "CASE_NOTE-GEN-OSE", "OFFENDER_BOOKING-CHANGED", "BED_ASSIGNMENT_HISTORY-INSERTED", "ASSESSMENT-CHANGED"};
+    private static final String[] AGENCIES = {"MDI", "LEI", "BXI", "WWI", "PVI", "OUT"};
+
+    @Param({"50000"})
+    private int events;
+
+    private List<OffenderEvent> day;
+    private ObjectMapper json;
+    private ObjectMapper cbor;
+    private ObjectMapper smile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws JsonProcessingException {
+        day = sampleEvents();
+        json = CustodyApiApplication.configure(new ObjectMapper());
+        cbor = BinaryFormatsConfig.binaryObjectMapperOf(new CBORFactory());
+        smile = BinaryFormatsConfig.binaryObjectMapperOf(new SmileFactory());
+
+        System.out.printf("%n%d events: json %d bytes, cbor %d bytes, smile %d bytes%n", events,
+                json.writeValueAsBytes(day).length, cbor.writeValueAsBytes(day).length, smile.writeValueAsBytes(day).length);
+    }
+
+    @Benchmark
+    public byte[] writeJson() throws JsonProcessingException {
+        return json.writeValueAsBytes(day);
+    }
+
+    @Benchmark
+    public byte[] writeCbor() throws JsonProcessingException {
+        return cbor.writeValueAsBytes(day);
+    }
+
+    @Benchmark
+    public byte[] writeSmile() throws JsonProcessingException {
+        return smile.writeValueAsBytes(day);
+    }
+
+    private List<OffenderEvent> sampleEvents() {
+        final var random = new Random(42);
+        final var sample = new ArrayList<OffenderEvent>(events);
+        for (var i = 0; i < events; i++) {
+            final var eventType = EVENT_TYPES[random.nextInt(EVENT_TYPES.length)];
+            final var builder = OffenderEvent.builder()
+                    .eventId(Integer.toString(i))
+                    .eventSource(i % 2 == 0 ? EventSource.XTAG : EventSource.API_OFFENDER_EVENTS)
+                    .eventDatetime(START.plusNanos(86_400_000_000_000L / events * i))
+                    .eventType(eventType)
+                    .nomisEventType("P" + random.nextInt(40) + "_RESULT")
+                    .rootOffenderId((long) random.nextInt(5000))
+                    .offenderId((long) random.nextInt(5000))
+                    .bookingId((long) random.nextInt(20000))
+                    .agencyLocationId(AGENCIES[random.nextInt(AGENCIES.length)]);
+            if (eventType.startsWith("OFFENDER_MOVEMENT")) {
+                builder.movementSeq(1L).movementDateTime(START).movementType("ADM").directionCode("IN")
+                        .fromAgencyLocationId("OUT").toAgencyLocationId("MDI");
+            } else if (eventType.startsWith("ALERT")) {
+                builder.alertSeq(2L).alertType("X").alertCode("XA").alertDateTime(START);
+            } else if (eventType.startsWith("CASE_NOTE")) {
+                builder.caseNoteId((long) i);
+            }
+            sample.add(builder.build());
+        }
+        return sample;
+    }
+}
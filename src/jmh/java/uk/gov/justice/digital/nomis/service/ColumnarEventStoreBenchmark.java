@@ -0,0 +1,127 @@
+package uk.gov.justice.digital.nomis.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.data.domain.Sort;
+import uk.gov.justice.digital.nomis.api.EventSource;
+import uk.gov.justice.digital.nomis.api.OffenderEvent;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A day of events held as a columnar store against the same events as a list of POJOs. The build
+ * benchmarks allocate each form from scratch, so with the gc profiler {@code gc.alloc.rate.norm} is
+ * roughly the footprint of each, the store's including its short-lived sorting garbage. The query
+ * benchmarks compare an hour's range and one offender's day.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ColumnarEventStoreBenchmark {
+
+    private static final LocalDateTime START = LocalDateTime.of(2020, 6, 14, 0, 0);
+    private static final String[] EVENT_TYPES = {"OFFENDER_MOVEMENT-RECEPTION", "BOOKING_NUMBER-CHANGED", "ALERT-INSERTED",
+            "CASE_NOTE-GEN-OSE", "OFFENDER_BOOKING-CHANGED", "BED_ASSIGNMENT_HISTORY-INSERTED", "ASSESSMENT-CHANGED"};
+    private static final String[] AGENCIES = {"MDI", "LEI", "BXI", "WWI", "PVI", "OUT"};
+
+    @Param({"200000"})
+    private int events;
+
+    private List<OffenderEvent> source;
+    private ColumnarEventStore store;
+    private List<OffenderEvent> pojos;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        source = sampleEvents();
+        store = new ColumnarEventStore();
+        store.add(source);
+        pojos = sampleEvents();
+    }
+
+    @Benchmark
+    public ColumnarEventStore buildStore() {
+        final var built = new ColumnarEventStore();
+        built.add(source);
+        return built;
+    }
+
+    @Benchmark
+    public List<OffenderEvent> buildPojos() {
+        return sampleEvents();
+    }
+
+    @Benchmark
+    public void hourFromStore(final Blackhole blackhole) {
+        store.find(START.plusHours(12), START.plusHours(13), Sort.Direction.ASC, Optional.empty(), Optional.empty())
+                .forEach(blackhole::consume);
+    }
+
+    @Benchmark
+    public void hourFromPojos(final Blackhole blackhole) {
+        final var from = START.plusHours(12);
+        final var to = START.plusHours(13);
+        pojos.stream()
+                .filter(oe -> !oe.getEventDatetime().isBefore(from) && !oe.getEventDatetime().isAfter(to))
+                .forEach(blackhole::consume);
+    }
+
+    @Benchmark
+    public void offenderFromStore(final Blackhole blackhole) {
+        store.find(START, START.plusDays(1), Sort.Direction.ASC, Optional.empty(), Optional.of(1234L))
+                .forEach(blackhole::consume);
+    }
+
+    @Benchmark
+    public void offenderFromPojos(final Blackhole blackhole) {
+        final Long offenderId = 1234L;
+        pojos.stream()
+                .filter(oe -> offenderId.equals(oe.getRootOffenderId()))
+                .forEach(blackhole::consume);
+    }
+
+    private List<OffenderEvent> sampleEvents() {
+        final var random = new Random(42);
+        final var sample = new ArrayList<OffenderEvent>(events);
+        for (var i = 0; i < events; i++) {
+            sample.add(sampleEvent(i, random));
+        }
+        return sample;
+    }
+
+    private OffenderEvent sampleEvent(final int i, final Random random) {
+        final var eventType = EVENT_TYPES[random.nextInt(EVENT_TYPES.length)];
+        final var builder = OffenderEvent.builder()
+                .eventId(Integer.toString(i))
+                .eventSource(i % 2 == 0 ? EventSource.XTAG : EventSource.API_OFFENDER_EVENTS)
+                .eventDatetime(START.plusNanos(86_400_000_000_000L / events * i))
+                .eventType(eventType)
+                .nomisEventType("P" + random.nextInt(40) + "_RESULT")
+                .rootOffenderId((long) random.nextInt(5000))
+                .offenderId((long) random.nextInt(5000))
+                .bookingId((long) random.nextInt(20000))
+                .agencyLocationId(AGENCIES[random.nextInt(AGENCIES.length)]);
+        if (eventType.startsWith("OFFENDER_MOVEMENT")) {
+            builder.movementSeq(1L).movementDateTime(START).movementType("ADM").directionCode("IN")
+                    .fromAgencyLocationId("OUT").toAgencyLocationId("MDI");
+        } else if (eventType.startsWith("ALERT")) {
+            builder.alertSeq(2L).alertType("X").alertCode("XA").alertDateTime(START);
+        } else if (eventType.startsWith("CASE_NOTE")) {
+            builder.caseNoteId((long) i);
+        }
+        return builder.build();
+    }
+}
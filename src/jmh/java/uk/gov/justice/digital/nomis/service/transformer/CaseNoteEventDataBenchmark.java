@@ -0,0 +1,58 @@
+package uk.gov.justice.digital.nomis.service.transformer;
+
+import org.apache.commons.lang3.StringUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * The single pass case note parser against the lookbehind patterns it replaced,
+ * recompiled per event as they were.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CaseNoteEventDataBenchmark {
+
+    private static final String CASE_NOTE = "{\"case_note\":{\"id\":61342651,\"contact_datetime\":\"2020-06-14 14:09:00\"\n" +
+            ",\"source\":{\"code\":\"INST\"\n,\"desc\":\"Prison\"\n" +
+            "},\"type\":{\"code\":\"GEN\"\n,\"desc\":\"General\"\n" +
+            "},\"sub_type\":{\"code\":\"OSE\"\n,\"desc\":\"\"\n" +
+            "},\"staff_member\":{\"id\":483079,\"name\":\"White, Barry\"\n,\"userid\":\"QWU90D\"\n" +
+            "},\"text\":\"" + "Discussed resettlement plans and confirmed an address on release. ".repeat(40) + "\"\n" +
+            ",\"amended\":false}}";
+
+    private final String eventData1 = CASE_NOTE.substring(0, CASE_NOTE.length() / 2);
+    private final String eventData2 = CASE_NOTE.substring(CASE_NOTE.length() / 2);
+    private final String eventData3 = null;
+
+    @Benchmark
+    public void caseNoteEventData(final Blackhole blackhole) {
+        final var caseNote = CaseNoteEventData.of(eventData1, eventData2, eventData3);
+        blackhole.consume(caseNote.getTypeCode() + "-" + caseNote.getSubTypeCode());
+        blackhole.consume(Long.valueOf(caseNote.getCaseNoteId()));
+    }
+
+    @Benchmark
+    public void patterns(final Blackhole blackhole) {
+        final var eventData = eventData1 + StringUtils.defaultString(eventData2) + StringUtils.defaultString(eventData3);
+        final var typeMatcher = Pattern.compile("(?<=\\btype.{0,4}\\bcode.{0,4})(\\w+)").matcher(eventData);
+        final var subtypeMatcher = Pattern.compile("(?<=\\bsub_type.{0,4}\\bcode.{0,4})(\\w+)").matcher(eventData);
+        if (typeMatcher.find() && subtypeMatcher.find()) {
+            blackhole.consume(String.format("%s-%s", typeMatcher.group(), subtypeMatcher.group()));
+        }
+
+        final var eventDataAgain = eventData1 + StringUtils.defaultString(eventData2) + StringUtils.defaultString(eventData3);
+        final var idMatcher = Pattern.compile("(?<=\\bcase_note.{0,4}\\bid.{0,4})(\\w+)").matcher(eventDataAgain);
+        if (idMatcher.find()) {
+            blackhole.consume(Long.valueOf(idMatcher.group()));
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package uk.gov.justice.digital.nomis.service.transformer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import uk.gov.justice.digital.nomis.CustodyApiApplication;
+import uk.gov.justice.digital.nomis.xtag.XtagContent;
+import uk.gov.justice.digital.nomis.xtag.XtagContentBinder;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Direct binding of payload maps against the JSON round trip it replaced.
+ * Run with the gc profiler (configured in build.gradle) to compare gc.alloc.rate.norm.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class XtagContentBinderBenchmark {
+
+    private List<Map<String, String>> maps;
+    private ObjectMapper objectMapper;
+
+    @Setup
+    public void setup() {
+        maps = XtagPayloadSamples.maps();
+        objectMapper = new CustodyApiApplication().objectMapper();
+    }
+
+    @Benchmark
+    public void xtagContentBinder(final Blackhole blackhole) {
+        for (final var map : maps) {
+            blackhole.consume(XtagContentBinder.bind(map));
+        }
+    }
+
+    @Benchmark
+    public void jsonRoundTrip(final Blackhole blackhole) throws Exception {
+        for (final var map : maps) {
+            blackhole.consume(objectMapper.readValue(objectMapper.writeValueAsString(map), XtagContent.class));
+        }
+    }
+}
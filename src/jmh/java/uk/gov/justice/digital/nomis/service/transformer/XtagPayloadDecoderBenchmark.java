@@ -0,0 +1,45 @@
+package uk.gov.justice.digital.nomis.service.transformer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.ObjectInputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The dedicated RAW payload decoder against plain {@link ObjectInputStream}, over the same samples.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class XtagPayloadDecoderBenchmark {
+
+    private List<byte[]> payloads;
+
+    @Setup
+    public void setup() {
+        payloads = XtagPayloadSamples.payloads();
+    }
+
+    @Benchmark
+    public void xtagPayloadDecoder(final Blackhole blackhole) throws Exception {
+        for (final var payload : payloads) {
+            blackhole.consume(XtagPayloadDecoder.decode(payload));
+        }
+    }
+
+    @Benchmark
+    public void objectInputStream(final Blackhole blackhole) throws Exception {
+        for (final var payload : payloads) {
+            blackhole.consume(new ObjectInputStream(new ByteArrayInputStream(payload)).readObject());
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package uk.gov.justice.digital.nomis.service.transformer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Payloads shaped like those the NOMIS triggers enqueue: a handful of id and code attributes,
+ * with the occasional long free text value.
+ */
+final class XtagPayloadSamples {
+
+    private XtagPayloadSamples() {
+    }
+
+    static List<Map<String, String>> maps() {
+        return List.of(
+                map("p_offender_id", "2580121",
+                        "p_offender_book_id", "1180543",
+                        "p_movement_seq", "3",
+                        "p_movement_type", "ADM",
+                        "p_movement_reason_code", "N",
+                        "p_direction_code", "IN",
+                        "p_from_agy_loc_id", "OUT",
+                        "p_to_agy_loc_id", "MDI",
+                        "p_movement_date", "2020-06-14",
+                        "p_movement_time", "2020-06-14 10:15:23",
+                        "p_record_inserted", "Y",
+                        "p_record_deleted", "N",
+                        "p_nomis_timestamp", "20200614101523.123456789"),
+                map("p_offender_id", "2580121",
+                        "p_offender_book_id", "1180543",
+                        "p_alert_seq", "7",
+                        "p_alert_type", "X",
+                        "p_alert_code", "XEL",
+                        "p_alert_date", "2020-06-14",
+                        "p_nomis_timestamp", "20200614101523.123456789"),
+                map("p_offender_id", "2580121",
+                        "p_root_offender_id", "2580121",
+                        "p_offender_id_display", "A1234AA",
+                        "p_nomis_timestamp", "20200614101523.123456789"),
+                map("p_case_note_id", "61342651",
+                        "p_offender_book_id", "1180543",
+                        "p_case_note_type", "GEN",
+                        "p_case_note_sub_type", "OSE",
+                        "p_case_note_text", "Discussed resettlement plans with the prisoner, who confirmed an address " +
+                                "on release and asked for a referral to the housing team. Follow up next week. ".repeat(4),
+                        "p_nomis_timestamp", "20200614101523.123456789"));
+    }
+
+    static List<byte[]> payloads() {
+        return List.of(maps().stream().map(XtagPayloadSamples::serialize).toArray(byte[][]::new));
+    }
+
+    private static Map<String, String> map(final String... keysAndValues) {
+        final var map = new HashMap<String, String>();
+        for (var i = 0; i < keysAndValues.length; i += 2) {
+            map.put(keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return map;
+    }
+
+    private static byte[] serialize(final Map<String, String> map) {
+        final var bytes = new ByteArrayOutputStream();
+        try (final var out = new ObjectOutputStream(bytes)) {
+            out.writeObject(map);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -18,6 +18,7 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Primary;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.security.oauth2.config.annotation.web.configuration.EnableResourceServer;
+import uk.gov.justice.digital.nomis.api.FieldSelection;
 
 @SpringBootApplication
 @Slf4j
@@ -31,12 +32,20 @@ public class CustodyApiApplication {
     @Bean(name = "globalObjectMapper")
     @Primary
     public ObjectMapper objectMapper() {
-        return new ObjectMapper()
+        return configure(new ObjectMapper());
+    }
+
+    /**
+     * The settings shared by every mapper of API resources, whatever format it writes.
+     */
+    public static ObjectMapper configure(final ObjectMapper objectMapper) {
+        return objectMapper
                 .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
                 .configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false)
                 .setSerializationInclusion(JsonInclude.Include.NON_NULL)
                 .setSerializationInclusion(JsonInclude.Include.NON_ABSENT)
                 .setSerializationInclusion(JsonInclude.Include.NON_EMPTY)
+                .setFilterProvider(FieldSelection.ALL_FIELDS)
                 .registerModules(new Jdk8Module(), new JavaTimeModule());
     }
 
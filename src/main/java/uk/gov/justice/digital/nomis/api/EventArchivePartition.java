@@ -0,0 +1,22 @@
+package uk.gov.justice.digital.nomis.api;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class EventArchivePartition {
+    private LocalDate date;
+    private String file;
+    private long events;
+    private long bytes;
+    private String sha256;
+    private LocalDateTime exportedAt;
+}
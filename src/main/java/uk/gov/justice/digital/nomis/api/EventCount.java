@@ -0,0 +1,24 @@
+package uk.gov.justice.digital.nomis.api;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * The number of events in one group. Properties not grouped by, or with no value, are left out.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class EventCount {
+    private String eventType;
+    private LocalDateTime hour;
+    private String agencyLocationId;
+    private long count;
+}
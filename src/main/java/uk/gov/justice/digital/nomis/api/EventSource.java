@@ -0,0 +1,10 @@
+package uk.gov.justice.digital.nomis.api;
+
+/**
+ * Where an {@link OffenderEvent} was read from. Declaration order is the tie-break order used when
+ * events from both sources share a timestamp.
+ */
+public enum EventSource {
+    API_OFFENDER_EVENTS,
+    XTAG
+}
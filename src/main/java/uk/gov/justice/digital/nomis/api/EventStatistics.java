@@ -0,0 +1,21 @@
+package uk.gov.justice.digital.nomis.api;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class EventStatistics {
+    private LocalDateTime from;
+    private LocalDateTime to;
+    private List<String> groupBy;
+    private long total;
+    private List<EventCount> counts;
+}
@@ -0,0 +1,19 @@
+package uk.gov.justice.digital.nomis.api;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class EventTypeMapping {
+    private String nomisEventType;
+    private String eventType;
+    private Map<String, List<String>> fields;
+}
@@ -0,0 +1,62 @@
+package uk.gov.justice.digital.nomis.api;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.ser.FilterProvider;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * The top level properties a client asked for with {@code ?fields=}. Resources annotated with
+ * {@code @JsonFilter(FieldSelection.FILTER)} are written with only these; everything else is written in full.
+ */
+@Value
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class FieldSelection {
+
+    public static final String FILTER = "fields";
+
+    /**
+     * Writes everything, for mappers that are not given a selection.
+     */
+    public static final FilterProvider ALL_FIELDS = new SimpleFilterProvider().setDefaultFilter(SimpleBeanPropertyFilter.serializeAll());
+
+    private Set<String> fields;
+
+    /**
+     * @throws IllegalArgumentException if any name is not a property of {@code type}
+     */
+    public static FieldSelection of(final Collection<String> names, final Class<?> type) {
+        final var properties = Arrays.stream(type.getDeclaredFields())
+                .filter(field -> !Modifier.isStatic(field.getModifiers()) && !field.isAnnotationPresent(JsonIgnore.class))
+                .map(java.lang.reflect.Field::getName)
+                .collect(Collectors.toSet());
+        final var fields = names.stream().map(String::trim).filter(name -> !name.isEmpty()).collect(Collectors.toSet());
+
+        final var unknown = fields.stream().filter(field -> !properties.contains(field)).sorted().collect(Collectors.toList());
+        if (!unknown.isEmpty()) {
+            throw new IllegalArgumentException(String.format("Unknown fields %s", unknown));
+        }
+        return new FieldSelection(Set.copyOf(fields));
+    }
+
+    public boolean includes(final String field) {
+        return fields.contains(field);
+    }
+
+    public boolean includesAny(final Collection<String> candidates) {
+        return candidates.stream().anyMatch(fields::contains);
+    }
+
+    public FilterProvider filterProvider() {
+        return new SimpleFilterProvider().addFilter(FILTER, SimpleBeanPropertyFilter.filterOutAllExcept(fields));
+    }
+}
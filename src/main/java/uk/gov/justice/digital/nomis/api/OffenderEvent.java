@@ -1,5 +1,7 @@
 package uk.gov.justice.digital.nomis.api;
 
+import com.fasterxml.jackson.annotation.JsonFilter;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -12,10 +14,13 @@ import java.time.LocalDateTime;
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
+@JsonFilter(FieldSelection.FILTER)
 public class OffenderEvent {
     private String eventId;
     private String eventType;
     private LocalDateTime eventDatetime;
+    @JsonIgnore
+    private EventSource eventSource;
 
     private Long rootOffenderId;
     private Long offenderId;
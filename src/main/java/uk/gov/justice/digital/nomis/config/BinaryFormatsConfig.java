@@ -0,0 +1,36 @@
+package uk.gov.justice.digital.nomis.config;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import uk.gov.justice.digital.nomis.CustodyApiApplication;
+
+/**
+ * CBOR ({@code application/cbor}) and Smile ({@code application/x-jackson-smile}) alongside JSON, chosen by
+ * the Accept header on any endpoint that does not fix its own content type, which includes /events and the
+ * offender resources. Both are written with the same settings as JSON, except that dates and date times
+ * are epoch values rather than ISO strings.
+ */
+@Configuration
+public class BinaryFormatsConfig {
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter() {
+        return new MappingJackson2CborHttpMessageConverter(binaryObjectMapperOf(new CBORFactory()));
+    }
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter() {
+        return new MappingJackson2SmileHttpMessageConverter(binaryObjectMapperOf(new SmileFactory()));
+    }
+
+    public static ObjectMapper binaryObjectMapperOf(final JsonFactory jsonFactory) {
+        return CustodyApiApplication.configure(new ObjectMapper(jsonFactory))
+                .registerModule(new EpochTimeModule());
+    }
+}
@@ -0,0 +1,50 @@
+package uk.gov.justice.digital.nomis.config;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import uk.gov.justice.digital.nomis.utils.NomisTime;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Writes date times as epoch milliseconds and dates as epoch days, for the binary formats. NOMIS date times
+ * are Europe/London local times; in the hour the clocks go back, the earlier of the two instants is used.
+ */
+public class EpochTimeModule extends SimpleModule {
+
+    public EpochTimeModule() {
+        super("EpochTimeModule");
+        addSerializer(LocalDateTime.class, new StdSerializer<>(LocalDateTime.class) {
+            @Override
+            public void serialize(final LocalDateTime value, final JsonGenerator gen, final SerializerProvider provider) throws IOException {
+                gen.writeNumber(value.atZone(NomisTime.LONDON).toInstant().toEpochMilli());
+            }
+        });
+        addSerializer(LocalDate.class, new StdSerializer<>(LocalDate.class) {
+            @Override
+            public void serialize(final LocalDate value, final JsonGenerator gen, final SerializerProvider provider) throws IOException {
+                gen.writeNumber(value.toEpochDay());
+            }
+        });
+        addDeserializer(LocalDateTime.class, new StdDeserializer<>(LocalDateTime.class) {
+            @Override
+            public LocalDateTime deserialize(final JsonParser p, final DeserializationContext ctxt) throws IOException {
+                return LocalDateTime.ofInstant(Instant.ofEpochMilli(p.getLongValue()), NomisTime.LONDON);
+            }
+        });
+        addDeserializer(LocalDate.class, new StdDeserializer<>(LocalDate.class) {
+            @Override
+            public LocalDate deserialize(final JsonParser p, final DeserializationContext ctxt) throws IOException {
+                return LocalDate.ofEpochDay(p.getLongValue());
+            }
+        });
+    }
+}
@@ -0,0 +1,94 @@
+package uk.gov.justice.digital.nomis.config;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class EventsConfig {
+
+    /**
+     * Runs the per-source event queries. Bounded in both threads and queue so a burst of
+     * /events requests cannot take more than its share of the connection pool.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService eventsFetchExecutor(@Value("${events.fetch.pool-size:8}") final Integer poolSize,
+                                               @Value("${events.fetch.queue-size:64}") final Integer queueSize,
+                                               final MeterRegistry meterRegistry) {
+        final var executor = new ThreadPoolExecutor(poolSize, poolSize,
+                60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueSize),
+                new ThreadFactoryBuilder().setNameFormat("events-fetch-%d").setDaemon(true).build(),
+                new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return ExecutorServiceMetrics.monitor(meterRegistry, executor, "events.fetch", List.of());
+    }
+
+    /**
+     * Decodes xtag payloads for {@link uk.gov.justice.digital.nomis.service.XtagDecodePipeline}. When the queue is
+     * full the fetch thread decodes the batch itself, which also stops it reading further ahead.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService xtagDecodeExecutor(@Value("${events.xtag.decode.pool-size:4}") final Integer poolSize,
+                                              @Value("${events.xtag.decode.queue-size:32}") final Integer queueSize,
+                                              final MeterRegistry meterRegistry) {
+        final var executor = new ThreadPoolExecutor(poolSize, poolSize,
+                60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueSize),
+                new ThreadFactoryBuilder().setNameFormat("xtag-decode-%d").setDaemon(true).build(),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return ExecutorServiceMetrics.monitor(meterRegistry, executor, "events.xtag.decode", List.of());
+    }
+
+    /**
+     * Polls for live events and sends heartbeats. One thread, so polls never overlap.
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ScheduledExecutorService eventsStreamScheduler() {
+        return Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("events-stream-tailer-%d").setDaemon(true).build());
+    }
+
+    /**
+     * Refreshes the recent events cache. One thread, so refreshes never overlap.
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ScheduledExecutorService eventsCacheScheduler() {
+        return Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("events-cache-%d").setDaemon(true).build());
+    }
+
+    /**
+     * Exports completed days to the events archive. One thread, so exports never overlap.
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ScheduledExecutorService eventsArchiveScheduler() {
+        return Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("events-archive-%d").setDaemon(true).build());
+    }
+
+    /**
+     * Writes live events out to subscribers. Each subscription has at most one delivery queued,
+     * so the queue is bounded by the number of subscribers.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService eventsStreamExecutor(@Value("${events.stream.pool-size:4}") final Integer poolSize,
+                                                final MeterRegistry meterRegistry) {
+        final var executor = new ThreadPoolExecutor(poolSize, poolSize,
+                60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                new ThreadFactoryBuilder().setNameFormat("events-stream-%d").setDaemon(true).build());
+        executor.allowCoreThreadTimeOut(true);
+        return ExecutorServiceMetrics.monitor(meterRegistry, executor, "events.stream", List.of());
+    }
+}
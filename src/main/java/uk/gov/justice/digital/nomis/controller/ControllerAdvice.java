@@ -1,12 +1,15 @@
 package uk.gov.justice.digital.nomis.controller;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
 import javax.persistence.EntityNotFoundException;
+import java.util.concurrent.RejectedExecutionException;
 
 
 @RestControllerAdvice
@@ -17,4 +20,21 @@ public class ControllerAdvice {
     public ResponseEntity handleNotFoundException(final Exception e) {
         return new ResponseEntity<>(e.getMessage(), HttpStatus.NOT_FOUND);
     }
+
+    /**
+     * The events fetch pool and its queue are full, so the request is turned away rather than left waiting.
+     */
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity handleRejectedExecutionException(final Exception e) {
+        log.warn("Turned a request away: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body("Too many requests in progress, try again shortly");
+    }
+
+    @ExceptionHandler(QueryTimeoutException.class)
+    public ResponseEntity handleQueryTimeoutException(final Exception e) {
+        log.warn("Query timed out: {}", e.getMessage());
+        return new ResponseEntity<>(e.getMessage(), HttpStatus.GATEWAY_TIMEOUT);
+    }
 }
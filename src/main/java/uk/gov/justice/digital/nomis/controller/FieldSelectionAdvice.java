@@ -0,0 +1,52 @@
+package uk.gov.justice.digital.nomis.controller;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJacksonValue;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.AbstractMappingJacksonResponseBodyAdvice;
+import uk.gov.justice.digital.nomis.api.FieldSelection;
+
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Writes responses with only the fields the handler accepted from {@code ?fields=}, in whichever of the
+ * Jackson formats was negotiated.
+ */
+@ControllerAdvice
+public class FieldSelectionAdvice extends AbstractMappingJacksonResponseBodyAdvice {
+
+    private static final String FIELD_SELECTION = FieldSelection.class.getName();
+
+    /**
+     * Checks the requested fields against {@code type} and keeps them for writing the response.
+     */
+    public static Optional<FieldSelection> fieldsOf(final Optional<Set<String>> maybeFields, final Class<?> type) {
+        final var fields = maybeFields.map(names -> {
+            try {
+                return FieldSelection.of(names, type);
+            } catch (final IllegalArgumentException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+            }
+        });
+        fields.ifPresent(selection -> RequestContextHolder.currentRequestAttributes()
+                .setAttribute(FIELD_SELECTION, selection, RequestAttributes.SCOPE_REQUEST));
+        return fields;
+    }
+
+    @Override
+    protected void beforeBodyWriteInternal(final MappingJacksonValue bodyContainer, final MediaType contentType,
+                                           final MethodParameter returnType, final ServerHttpRequest request,
+                                           final ServerHttpResponse response) {
+        Optional.ofNullable(RequestContextHolder.getRequestAttributes())
+                .map(attributes -> (FieldSelection) attributes.getAttribute(FIELD_SELECTION, RequestAttributes.SCOPE_REQUEST))
+                .ifPresent(selection -> bodyContainer.setFilters(selection.filterProvider()));
+    }
+}
@@ -51,7 +51,7 @@ public class ImagesController {
             @ApiResponse(code = 200, message = "OK")})
     public ResponseEntity<byte[]> getImageDataForNomsId(@PathVariable("nomsId") final String nomsId, @PathVariable("imageId") final Long imageId) {
 
-        return offenderService.getOffenderByNomsId(nomsId)
+        return offenderService.getOffenderIdentityByNomsId(nomsId)
                 .flatMap(ignored -> imagesService.getImageForImageId(imageId))
                 .map(bytes -> new ResponseEntity<>(bytes, HttpStatus.OK))
                 .orElse(new ResponseEntity<>(NOT_FOUND));
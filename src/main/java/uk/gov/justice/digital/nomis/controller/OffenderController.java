@@ -13,6 +13,9 @@ import uk.gov.justice.digital.nomis.api.Offender;
 import uk.gov.justice.digital.nomis.api.OffenderActiveBooking;
 import uk.gov.justice.digital.nomis.service.OffenderService;
 
+import java.util.Optional;
+import java.util.Set;
+
 import static org.springframework.http.HttpStatus.NOT_FOUND;
 
 @RestController
@@ -30,9 +33,14 @@ public class OffenderController {
     @ApiResponses({
             @ApiResponse(code = 404, message = "Offender or booking not found"),
             @ApiResponse(code = 200, message = "OK")})
-    public ResponseEntity<Offender> getOffender(@PathVariable("offenderId") final Long offenderId) {
+    @ApiImplicitParams({
+            @ApiImplicitParam(name = "fields", dataType = "string", paramType = "query", allowMultiple = true,
+                    value = "Comma separated list of the offender properties to return, eg nomsId,firstName,surname. " +
+                            "Bookings, identifiers and aliases are only read if asked for. Defaults to all of them.")})
+    public ResponseEntity<Offender> getOffender(@PathVariable("offenderId") final Long offenderId,
+                                                @RequestParam("fields") final Optional<Set<String>> maybeFields) {
 
-        return offenderService.getOffenderByOffenderId(offenderId)
+        return offenderService.getOffenderByOffenderId(offenderId, FieldSelectionAdvice.fieldsOf(maybeFields, Offender.class))
                 .map(offender -> new ResponseEntity<>(offender, HttpStatus.OK))
                 .orElse(new ResponseEntity<>(NOT_FOUND));
     }
@@ -41,9 +49,14 @@ public class OffenderController {
     @ApiResponses({
             @ApiResponse(code = 404, message = "Offender or booking not found"),
             @ApiResponse(code = 200, message = "OK")})
-    public ResponseEntity<Offender> getOffender(@PathVariable("nomsId") final String nomsId) {
+    @ApiImplicitParams({
+            @ApiImplicitParam(name = "fields", dataType = "string", paramType = "query", allowMultiple = true,
+                    value = "Comma separated list of the offender properties to return, eg nomsId,firstName,surname. " +
+                            "Bookings, identifiers and aliases are only read if asked for. Defaults to all of them.")})
+    public ResponseEntity<Offender> getOffender(@PathVariable("nomsId") final String nomsId,
+                                                @RequestParam("fields") final Optional<Set<String>> maybeFields) {
 
-        return offenderService.getOffenderByNomsId(nomsId)
+        return offenderService.getOffenderByNomsId(nomsId, FieldSelectionAdvice.fieldsOf(maybeFields, Offender.class))
                 .map(offender -> new ResponseEntity<>(offender, HttpStatus.OK))
                 .orElse(new ResponseEntity<>(NOT_FOUND));
     }
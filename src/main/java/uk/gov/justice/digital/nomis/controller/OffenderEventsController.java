@@ -1,21 +1,65 @@
 package uk.gov.justice.digital.nomis.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.google.common.io.BaseEncoding;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiImplicitParam;
 import io.swagger.annotations.ApiImplicitParams;
 import io.swagger.annotations.ApiOperation;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import uk.gov.justice.digital.nomis.api.EventArchivePartition;
+import uk.gov.justice.digital.nomis.api.EventStatistics;
+import uk.gov.justice.digital.nomis.api.EventTypeMapping;
+import uk.gov.justice.digital.nomis.api.FieldSelection;
 import uk.gov.justice.digital.nomis.api.OffenderEvent;
+import uk.gov.justice.digital.nomis.jpa.filters.OffenderEventsFilter;
+import uk.gov.justice.digital.nomis.service.EventArchiveService;
+import uk.gov.justice.digital.nomis.service.EventConsumerService;
+import uk.gov.justice.digital.nomis.service.EventCursor;
+import uk.gov.justice.digital.nomis.service.EventResponseCache;
+import uk.gov.justice.digital.nomis.service.EventStatisticsService;
+import uk.gov.justice.digital.nomis.service.EventSubscription;
+import uk.gov.justice.digital.nomis.service.EventTailer;
 import uk.gov.justice.digital.nomis.service.OffenderEventsService;
 
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.Principal;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.springframework.http.HttpStatus.NOT_FOUND;
 
@@ -23,13 +67,69 @@ import static org.springframework.http.HttpStatus.NOT_FOUND;
 @Api(description = "Offender case record events", tags = "Offender Events")
 public class OffenderEventsController {
 
-    ;
+    public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
+    public static final String NEXT_CURSOR = "Next-Cursor";
+
+    private static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType(APPLICATION_NDJSON_VALUE);
+
+    // Events written per SSE delivery, so one busy subscriber cannot hold a stream thread indefinitely
+    private static final int STREAM_BATCH_SIZE = 500;
+
+    private static final int MAX_POLL_WAIT_SECONDS = 60;
+
+    private static final Set<EventStatisticsService.GroupBy> DEFAULT_GROUP_BY = Set.of(EventStatisticsService.GroupBy.TYPE);
+
+    private static final MediaType APPLICATION_GZIP = MediaType.parseMediaType("application/gzip");
+
+    // Tomcat writes a file named in these request attributes straight from the page cache to the socket
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private static final List<MediaType> BINARY_TYPES = List.of(
+            MediaType.parseMediaType("application/cbor"), MediaType.parseMediaType("application/x-jackson-smile"));
+
+    private static final Pattern CONSUMER_NAME = Pattern.compile("[A-Za-z0-9_.-]{1,64}");
 
     private final OffenderEventsService offenderEventsService;
+    private final EventTailer eventTailer;
+    private final EventConsumerService eventConsumerService;
+    private final EventStatisticsService eventStatisticsService;
+    private final EventResponseCache eventResponseCache;
+    private final EventArchiveService eventArchiveService;
+    private final ObjectWriter eventWriter;
+    private final ObjectWriter eventsWriter;
+    private final Duration streamTimeout;
+    private final int maxConsumerBatch;
+    private final Duration maxStatsRange;
+    private final Duration cachedMaxAge;
 
     @Autowired
-    public OffenderEventsController(final OffenderEventsService offenderEventsService) {
+    public OffenderEventsController(final OffenderEventsService offenderEventsService,
+                                    final EventTailer eventTailer,
+                                    final EventConsumerService eventConsumerService,
+                                    final EventStatisticsService eventStatisticsService,
+                                    final EventResponseCache eventResponseCache,
+                                    final EventArchiveService eventArchiveService,
+                                    @Qualifier("globalObjectMapper") final ObjectMapper objectMapper,
+                                    @Value("${events.stream.timeout:PT30M}") final Duration streamTimeout,
+                                    @Value("${events.consumers.max-batch:1000}") final Integer maxConsumerBatch,
+                                    @Value("${events.stats.max-range:P31D}") final Duration maxStatsRange,
+                                    @Value("${events.response-cache.max-age:P1D}") final Duration cachedMaxAge) {
         this.offenderEventsService = offenderEventsService;
+        this.eventTailer = eventTailer;
+        this.eventConsumerService = eventConsumerService;
+        this.eventStatisticsService = eventStatisticsService;
+        this.eventResponseCache = eventResponseCache;
+        this.eventArchiveService = eventArchiveService;
+        this.eventWriter = objectMapper.writerFor(OffenderEvent.class);
+        this.eventsWriter = objectMapper.writerFor(objectMapper.getTypeFactory().constructCollectionType(List.class, OffenderEvent.class));
+        this.streamTimeout = streamTimeout;
+        this.maxConsumerBatch = maxConsumerBatch;
+        this.maxStatsRange = maxStatsRange;
+        this.cachedMaxAge = cachedMaxAge;
     }
 
     @RequestMapping(path = "/events", method = RequestMethod.GET)
@@ -42,23 +142,480 @@ public class OffenderEventsController {
             @ApiImplicitParam(name = "type", dataType = "string", paramType = "query", allowMultiple = true,
                     value = "Comma separated list of event types to filter inclusively:\n" +
                             "BALANCE_UPDATE\nCOURT_SENTENCE-CHANGED\nALERT-DELETED\nPERSON_ADDRESS-UPDATED\nOFFENDER_ADDRESS-UPDATED\nADDRESS-UPDATED\nPERSON_ADDRESS-DELETED\nOFFENDER_ADDRESS-DELETED\nADDRESS-DELETED\nPERSON_ADDRESS-INSERTED\nHDC_FINE-INSERTED\nHDC_CONDITION-CHANGED\nOFFENDER_EMPLOYMENT-INSERTED\nOFFENDER_EMPLOYMENT-UPDATED\nOFFENDER_EMPLOYMENT-DELETED\nPHONE-INSERTED\nPHONE-UPDATED\nPHONE-DELETED\nHEARING_RESULT-CHANGED\nHEARING_RESULT-DELETED\nHEARING_DATE-CHANGED\nSENTENCE_CALCULATION_DATES-CHANGED\nOFFENDER_PROFILE_DETAILS-UPDATED\nOFFENDER_PROFILE_DETAILS-INSERTED\nALERT-INSERTED\nALERT-UPDATED\nASSESSMENT-CHANGED\nIMPRISONMENT_STATUS-CHANGED\nOFFENDER_IDENTIFIER-INSERTED\nOFFENDER_IDENTIFIER-DELETED\nEDUCATION_LEVEL-INSERTED\nEDUCATION_LEVEL-UPDATED\nEDUCATION_LEVEL-DELETED\nCONTACT_PERSON-INSERTED\nCONTACT_PERSON-UPDATED\nCONTACT_PERSON-DELETED\nOFFENDER-UPDATED\nOFFENDER_ALIAS-CHANGED\nADDRESS_USAGE-INSERTED\nADDRESS_USAGE-UPDATED\nADDRESS_USAGE-DELETED\nOFFENDER_DETAILS-CHANGED\nOFFENDER_BOOKING-INSERTED\nOFFENDER_BOOKING-CHANGED\nOFFENDER_BOOKING-REASSIGNED\nEXTERNAL_MOVEMENT_RECORD-INSERTED\nEXTERNAL_MOVEMENT_RECORD-DELETED\nEXTERNAL_MOVEMENT_RECORD-UPDATED\nOFFENDER_MOVEMENT-DISCHARGE\nOFFENDER_MOVEMENT-RECEPTION\nMATERNITY_STATUS-INSERTED\nMATERNITY_STATUS-UPDATED\nRISK_SCORE-CHANGED\nRISK_SCORE-DELETED\nOFFENDER_SANCTION-CHANGED\nBOOKING_NUMBER-CHANGED"),
-            @ApiImplicitParam(name = "sortBy", dataType = "string", paramType = "query", value = "Sort order")
-
+            @ApiImplicitParam(name = "sortBy", dataType = "string", paramType = "query", value = "Sort order"),
+            @ApiImplicitParam(name = "cursor", dataType = "string", paramType = "query",
+                    value = "Opaque position from the **Next-Cursor** header of a previous response. Only events after it, in the requested sort order, are returned."),
+            @ApiImplicitParam(name = "limit", dataType = "int", paramType = "query", value = "Maximum number of events to return"),
+            @ApiImplicitParam(name = "fields", dataType = "string", paramType = "query", allowMultiple = true,
+                    value = "Comma separated list of the event properties to return, eg eventType,eventDatetime,offenderIdDisplay. Defaults to all of them.")
     })
     @ApiOperation(value = "Get events", notes = "**from** and **to** query params are optional.\n" +
             "An awful lot of events occur every day. To guard against unintentionally heavy queries, the following rules are applied:\n" +
             "If **both** are absent, scope will be limited to 24 hours starting from midnight yesterday.\n" +
             "If **to** is present but **from** is absent, **from** will be defaulted to 24 hours before **to**.\n" +
-            "If **from** is present but **to** is absent, **to** will be defaulted to 24 hours after **from**.")
-    public ResponseEntity<List<OffenderEvent>> getEvents(@DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) final @RequestParam("from") Optional<LocalDateTime> maybeFrom,
+            "If **from** is present but **to** is absent, **to** will be defaulted to 24 hours after **from**.\n" +
+            "To read the feed incrementally, pass the **Next-Cursor** response header back as **cursor** on the next call. " +
+            "The cursor takes the place of **from** (or **to** when sorting descending), so each call continues exactly where the last one stopped.\n" +
+            "JSON responses for windows wholly in the past carry a strong **ETag** and may be cached; **If-None-Match** is answered with 304.",
+            response = OffenderEvent.class, responseContainer = "List")
+    public ResponseEntity<?> getEvents(@DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) final @RequestParam("from") Optional<LocalDateTime> maybeFrom,
                                                          @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) final @RequestParam("to") Optional<LocalDateTime> maybeTo,
                                                          final @RequestParam("type") Optional<Set<String>> maybeTypeFilter,
-                                                         final @RequestParam("sortBy") Optional<SortTypes> maybeSortBy) {
-        return offenderEventsService.getEvents(maybeFrom, maybeTo, maybeTypeFilter, maybeSortBy)
-                .map(events -> new ResponseEntity<>(events, HttpStatus.OK))
+                                                         final @RequestParam("sortBy") Optional<SortTypes> maybeSortBy,
+                                                         final @RequestParam("cursor") Optional<String> maybeCursor,
+                                                         final @RequestParam("limit") Optional<Integer> maybeLimit,
+                                                         final @RequestParam("fields") Optional<Set<String>> maybeFields,
+                                                         final @RequestHeader HttpHeaders headers) {
+        final var cursor = maybeCursor.map(this::eventCursorOf);
+        if (maybeLimit.filter(limit -> limit < 1).isPresent()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be at least 1");
+        }
+        final var fields = FieldSelectionAdvice.fieldsOf(maybeFields, OffenderEvent.class);
+
+        final var cacheKey = responseCacheKeyOf(maybeFrom, maybeTo, maybeTypeFilter, maybeSortBy, maybeCursor, maybeLimit, fields, headers);
+        if (cacheKey.isPresent()) {
+            return eventResponseCache.get(cacheKey.get(), () -> offenderEventsService.getEvents(maybeFrom, maybeTo, maybeTypeFilter, maybeSortBy, cursor, maybeLimit, fields)
+                    .map(events -> EventResponseCache.CachedResponse.of(serialise(events, fields),
+                            nextCursorOf(events, cursor).map(EventCursor::encode))))
+                    .<ResponseEntity<?>>map(cached -> cachedPageOf(cached, headers))
+                    .orElse(new ResponseEntity<>(NOT_FOUND));
+        }
+
+        return offenderEventsService.getEvents(maybeFrom, maybeTo, maybeTypeFilter, maybeSortBy, cursor, maybeLimit, fields)
+                .<ResponseEntity<?>>map(events -> pageOf(events, cursor))
                 .orElse(new ResponseEntity<>(NOT_FOUND));
     }
 
+    /**
+     * Only explicit windows that are wholly in the past, written as JSON, are cached.
+     */
+    private Optional<EventResponseCache.Key> responseCacheKeyOf(final Optional<LocalDateTime> maybeFrom,
+                                                                final Optional<LocalDateTime> maybeTo,
+                                                                final Optional<Set<String>> maybeTypeFilter,
+                                                                final Optional<SortTypes> maybeSortBy,
+                                                                final Optional<String> maybeCursor,
+                                                                final Optional<Integer> maybeLimit,
+                                                                final Optional<FieldSelection> fields,
+                                                                final HttpHeaders headers) {
+        if (maybeFrom.isEmpty() || maybeTo.isEmpty() || !eventResponseCache.isCacheable(maybeTo.get()) || !acceptsJson(headers)) {
+            return Optional.empty();
+        }
+        final var filter = OffenderEventsFilter.builder()
+                .from(maybeFrom.get())
+                .to(maybeTo.get())
+                .types(maybeTypeFilter.map(types -> types.stream().map(String::toUpperCase).collect(Collectors.toSet())))
+                .direction(maybeSortBy.filter(SortTypes.TIMESTAMP_ASC::equals).map(sortBy -> Sort.Direction.ASC).orElse(Sort.Direction.DESC))
+                .fields(fields)
+                .build();
+        return Optional.of(new EventResponseCache.Key(filter, maybeCursor, maybeLimit, MediaType.APPLICATION_JSON_VALUE));
+    }
+
+    // Whether JSON would be negotiated, rather than one of the binary formats
+    private static boolean acceptsJson(final HttpHeaders headers) {
+        final var accepted = new ArrayList<>(headers.getAccept());
+        if (accepted.isEmpty()) {
+            return true;
+        }
+        MediaType.sortBySpecificityAndQuality(accepted);
+        for (final var mediaType : accepted) {
+            if (mediaType.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+                return true;
+            }
+            if (BINARY_TYPES.stream().anyMatch(mediaType::isCompatibleWith)) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Whether Accept-Encoding allows gzip, by its own q-value or else that of {@code *}. A q-value of 0 refuses it.
+     */
+    static boolean acceptsGzip(final HttpHeaders headers) {
+        Optional<Double> gzipQuality = Optional.empty();
+        Optional<Double> anyQuality = Optional.empty();
+        for (final var value : headers.getOrEmpty(HttpHeaders.ACCEPT_ENCODING)) {
+            for (final var coding : value.split(",")) {
+                final var parts = coding.split(";");
+                final var name = parts[0].trim().toLowerCase();
+                final var quality = qualityOf(parts);
+                if (name.equals("gzip") || name.equals("x-gzip")) {
+                    gzipQuality = Optional.of(quality);
+                } else if (name.equals("*")) {
+                    anyQuality = Optional.of(quality);
+                }
+            }
+        }
+        return gzipQuality.or(() -> anyQuality).map(quality -> quality > 0.0).orElse(false);
+    }
+
+    private static double qualityOf(final String[] codingParts) {
+        for (int i = 1; i < codingParts.length; i++) {
+            final var param = codingParts[i].trim();
+            if (param.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(param.substring(2).trim());
+                } catch (final NumberFormatException e) {
+                    // Unreadable, so treated as refusing the coding
+                    return 0.0;
+                }
+            }
+        }
+        return 1.0;
+    }
+
+    private byte[] serialise(final List<OffenderEvent> events, final Optional<FieldSelection> fields) {
+        try {
+            return fields.map(selection -> eventsWriter.with(selection.filterProvider())).orElse(eventsWriter).writeValueAsBytes(events);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Spring answers a matching If-None-Match with 304 from the ETag alone, so a cached response never reaches the database.
+     * The gzipped and identity bodies are different representations, so each has its own strong ETag.
+     */
+    private ResponseEntity<byte[]> cachedPageOf(final EventResponseCache.CachedResponse cached, final HttpHeaders headers) {
+        final var gzip = acceptsGzip(headers);
+        final var response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(gzip ? cached.getGzipEtag() : cached.getEtag())
+                .cacheControl(CacheControl.maxAge(cachedMaxAge.toSeconds(), TimeUnit.SECONDS).cachePrivate())
+                .varyBy(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING);
+        cached.getNextCursor().ifPresent(next -> response.header(NEXT_CURSOR, next));
+        if (gzip) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(cached.getGzipped());
+        }
+        return response.body(cached.getBody());
+    }
+
+    @RequestMapping(path = "/events/types", method = RequestMethod.GET)
+    @ResponseBody
+    @ApiOperation(value = "Get supported event types", notes = "Each raw NOMIS xtag type, the event types it is translated to, " +
+            "and which xtag payload properties populate each event property. Any of the event types may be used as a **type** filter on /events.")
+    public List<EventTypeMapping> getEventTypes() {
+        return offenderEventsService.getEventTypes();
+    }
+
+    @RequestMapping(path = "/events/stats", method = RequestMethod.GET)
+    @ResponseBody
+    @ApiImplicitParams({
+            @ApiImplicitParam(name = "from", dataType = "date", paramType = "query",
+                    value = "ISO 8601 Date Time without zone or offset (local date time), eg 2017-07-24T09:18:15"),
+            @ApiImplicitParam(name = "to", dataType = "date", paramType = "query",
+                    value = "ISO 8601 Date Time without zone or offset (local date time), eg 2017-07-24T09:18:15"),
+            @ApiImplicitParam(name = "groupBy", dataType = "string", paramType = "query", allowMultiple = true,
+                    value = "Comma separated list of any of **type**, **hour** and **agency**. Defaults to **type**.")
+    })
+    @ApiOperation(value = "Count events", notes = "Counts of the events /events would return for the same **from** and **to**, " +
+            "which default in the same way. Xtag events have no agency, so are counted under none when grouping by **agency**.")
+    public EventStatistics getEventStatistics(@DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) final @RequestParam("from") Optional<LocalDateTime> maybeFrom,
+                                              @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) final @RequestParam("to") Optional<LocalDateTime> maybeTo,
+                                              final @RequestParam("groupBy") Optional<Set<String>> maybeGroupBy) {
+        final var from = maybeFrom.orElse(maybeTo.map(to -> to.minusDays(1)).orElse(LocalDate.now().atStartOfDay()));
+        final var to = maybeTo.orElse(from.plusDays(1));
+        if (to.isBefore(from)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "to must not be before from");
+        }
+        if (Duration.between(from, to).compareTo(maxStatsRange) > 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, String.format("from and to must be no more than %s apart", maxStatsRange));
+        }
+
+        final var groupBy = maybeGroupBy.map(this::groupByOf).orElse(DEFAULT_GROUP_BY);
+        return eventStatisticsService.getStatistics(from, to, groupBy);
+    }
+
+    private Set<EventStatisticsService.GroupBy> groupByOf(final Set<String> names) {
+        try {
+            return names.stream()
+                    .map(name -> EventStatisticsService.GroupBy.valueOf(name.trim().toUpperCase()))
+                    .collect(Collectors.toSet());
+        } catch (final IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "groupBy may only contain type, hour and agency", e);
+        }
+    }
+
+    @RequestMapping(path = "/events/archive", method = RequestMethod.GET)
+    @ResponseBody
+    @ApiOperation(value = "List archived days", notes = "The days of events archived so far, each with its event count, size and SHA-256.")
+    public List<EventArchivePartition> getArchive() {
+        return eventArchiveService.getPartitions();
+    }
+
+    @RequestMapping(path = "/events/archive/{date}", method = RequestMethod.GET)
+    @ApiOperation(value = "Download a day of events", notes = "Every event from the given day, oldest first, as gzipped newline delimited JSON. " +
+            "The same events /events returns for the day, without querying the database. 404 until the day has been archived.")
+    public ResponseEntity<?> getArchivedDay(@DateTimeFormat(iso = DateTimeFormat.ISO.DATE) final @PathVariable("date") LocalDate date,
+                                            final HttpServletRequest request) {
+        return eventArchiveService.getPartition(date)
+                .<ResponseEntity<?>>map(partition -> archivedFileOf(partition, request))
+                .orElse(new ResponseEntity<>(NOT_FOUND));
+    }
+
+    /**
+     * Hands the file to Tomcat's sendfile where the connector supports it, otherwise transfers it
+     * channel to channel, so it is never read into the heap. Conditional and HEAD requests are answered
+     * before either, as sendfile would write the file after a response that must not have a body.
+     */
+    private ResponseEntity<?> archivedFileOf(final EventArchivePartition partition, final HttpServletRequest request) {
+        final var path = eventArchiveService.fileOf(partition);
+        final var size = partition.getBytes();
+        final var etag = "\"" + partition.getSha256() + "\"";
+        final var cacheControl = CacheControl.maxAge(cachedMaxAge.toSeconds(), TimeUnit.SECONDS).cachePrivate();
+
+        if (new ServletWebRequest(request).checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(cacheControl).build();
+        }
+
+        final var response = ResponseEntity.ok()
+                .contentType(APPLICATION_GZIP)
+                .contentLength(size)
+                .eTag(etag)
+                .header("Digest", "sha-256=" + BaseEncoding.base64().encode(BaseEncoding.base16().lowerCase().decode(partition.getSha256())))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.builder("attachment").filename(partition.getFile()).build().toString())
+                .cacheControl(cacheControl);
+
+        if (!HttpMethod.GET.matches(request.getMethod())) {
+            return response.build();
+        }
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, path.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, 0L);
+            request.setAttribute(SENDFILE_END, size);
+            return response.build();
+        }
+
+        final StreamingResponseBody body = outputStream -> {
+            try (final var file = FileChannel.open(path, StandardOpenOption.READ)) {
+                final var target = Channels.newChannel(outputStream);
+                for (var position = 0L; position < size; ) {
+                    final var sent = file.transferTo(position, size - position, target);
+                    if (sent <= 0L) {
+                        throw new IOException(String.format("%s is shorter than its manifest entry", path));
+                    }
+                    position += sent;
+                }
+            }
+        };
+        return response.body(body);
+    }
+
+    @RequestMapping(path = "/events/stream", method = RequestMethod.GET, produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @ApiImplicitParams({
+            @ApiImplicitParam(name = "type", dataType = "string", paramType = "query", allowMultiple = true,
+                    value = "Comma separated list of event types to filter inclusively, as for /events"),
+            @ApiImplicitParam(name = "offenderId", dataType = "long", paramType = "query", value = "Only events for this offender"),
+            @ApiImplicitParam(name = "cursor", dataType = "string", paramType = "query",
+                    value = "Resume after this position. The **Last-Event-ID** header, sent by browsers when reconnecting, takes precedence.")
+    })
+    @ApiOperation(value = "Stream live events", notes = "Server-Sent Events. Each event's **id** is a cursor; reconnecting with it as " +
+            "**Last-Event-ID** (or **cursor**) resumes without gaps. Without one, only events from now on are sent. " +
+            "A comment is sent every few seconds as a heartbeat. A subscriber that falls too far behind is disconnected and should reconnect.")
+    public SseEmitter streamLiveEvents(final @RequestParam("type") Optional<Set<String>> maybeTypeFilter,
+                                       final @RequestParam("offenderId") Optional<Long> maybeOffenderId,
+                                       final @RequestParam("cursor") Optional<String> maybeCursor,
+                                       final @RequestHeader(name = "Last-Event-ID", required = false) Optional<String> maybeLastEventId) {
+        final var cursor = maybeLastEventId.or(() -> maybeCursor).map(this::eventCursorOf);
+        final var emitter = new SseEmitter(streamTimeout.toMillis());
+
+        final var subscription = eventTailer.subscribe(maybeTypeFilter, maybeOffenderId, cursor, new EventSubscription.Listener() {
+            @Override
+            public void onAvailable(final EventSubscription subscription) {
+                try {
+                    for (var events = subscription.drain(STREAM_BATCH_SIZE); !events.isEmpty(); events = subscription.drain(STREAM_BATCH_SIZE)) {
+                        for (final var event : events) {
+                            emitter.send(SseEmitter.event()
+                                    .id(EventCursor.of(event).encode())
+                                    .name(event.getEventType())
+                                    .data(event, MediaType.APPLICATION_JSON));
+                        }
+                    }
+                    if (subscription.isClosed()) {
+                        emitter.complete();
+                    }
+                } catch (final IOException | IllegalStateException e) {
+                    // The client has gone, or the emitter has already completed
+                    eventTailer.unsubscribe(subscription);
+                }
+            }
+
+            @Override
+            public void onHeartbeat(final EventSubscription subscription) {
+                try {
+                    emitter.send(SseEmitter.event().comment("heartbeat"));
+                } catch (final IOException | IllegalStateException e) {
+                    eventTailer.unsubscribe(subscription);
+                }
+            }
+        });
+
+        emitter.onCompletion(() -> eventTailer.unsubscribe(subscription));
+        emitter.onTimeout(() -> eventTailer.unsubscribe(subscription));
+        emitter.onError(e -> eventTailer.unsubscribe(subscription));
+        return emitter;
+    }
+
+    @RequestMapping(path = "/events/poll", method = RequestMethod.GET)
+    @ApiImplicitParams({
+            @ApiImplicitParam(name = "type", dataType = "string", paramType = "query", allowMultiple = true,
+                    value = "Comma separated list of event types to filter inclusively, as for /events"),
+            @ApiImplicitParam(name = "offenderId", dataType = "long", paramType = "query", value = "Only events for this offender"),
+            @ApiImplicitParam(name = "cursor", dataType = "string", paramType = "query",
+                    value = "The **Next-Cursor** header of the previous response. Without one, only events from now on are returned."),
+            @ApiImplicitParam(name = "wait", dataType = "int", paramType = "query", value = "Seconds to wait for an event, from 1 to 60. Default 30."),
+            @ApiImplicitParam(name = "limit", dataType = "int", paramType = "query", value = "Maximum number of events to return. Default 100.")
+    })
+    @ApiOperation(value = "Long-poll for live events", notes = "For clients that cannot use /events/stream. Returns as soon as there is at least " +
+            "one event after **cursor**, or an empty list once **wait** has passed. Pass the **Next-Cursor** header back as **cursor** on the next call; " +
+            "it is set on empty responses too, so no events are missed between calls.")
+    public DeferredResult<ResponseEntity<List<OffenderEvent>>> pollLiveEvents(final @RequestParam("type") Optional<Set<String>> maybeTypeFilter,
+                                                                              final @RequestParam("offenderId") Optional<Long> maybeOffenderId,
+                                                                              final @RequestParam("cursor") Optional<String> maybeCursor,
+                                                                              final @RequestParam("wait") Optional<Integer> maybeWait,
+                                                                              final @RequestParam("limit") Optional<Integer> maybeLimit) {
+        final var cursor = maybeCursor.map(this::eventCursorOf);
+        final var wait = maybeWait.orElse(30);
+        final var limit = maybeLimit.orElse(100);
+        // A zero async timeout would mean waiting forever
+        if (wait < 1 || wait > MAX_POLL_WAIT_SECONDS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "wait must be between 1 and " + MAX_POLL_WAIT_SECONDS);
+        }
+        if (limit < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be at least 1");
+        }
+
+        final var result = new DeferredResult<ResponseEntity<List<OffenderEvent>>>(TimeUnit.SECONDS.toMillis(wait));
+
+        // Without a cursor, an empty response still carries one, so the next call resumes where this one started
+        final var subscription = eventTailer.subscribe(maybeTypeFilter, maybeOffenderId, cursor, subscribed -> {
+            if (result.isSetOrExpired()) {
+                return;
+            }
+            final var events = subscribed.drain(limit);
+            if (!events.isEmpty() || subscribed.isClosed()) {
+                result.setResult(pageOf(events, Optional.of(subscribed.getStartedAfter())));
+            }
+        });
+
+        result.onTimeout(() -> result.setResult(pageOf(List.of(), Optional.of(subscription.getStartedAfter()))));
+        result.onCompletion(() -> eventTailer.unsubscribe(subscription));
+        return result;
+    }
+
+    @RequestMapping(path = "/events/consumers/{name}/next", method = RequestMethod.GET)
+    @ApiImplicitParams({
+            @ApiImplicitParam(name = "max", dataType = "int", paramType = "query", value = "Maximum number of events to return. Default 100."),
+            @ApiImplicitParam(name = "type", dataType = "string", paramType = "query", allowMultiple = true,
+                    value = "Comma separated list of event types to filter inclusively, as for /events"),
+            @ApiImplicitParam(name = "from", dataType = "date", paramType = "query",
+                    value = "Where a consumer with no committed offset starts. Defaults to midnight today. Ignored once an offset has been committed.")
+    })
+    @ApiOperation(value = "Get the next events for a named consumer", notes = "Consumers are scoped to the calling client. " +
+            "Returns the events after the consumer's committed offset, oldest first, without moving it. " +
+            "Once they have been processed, pass the **Next-Cursor** header to /events/consumers/{name}/commit to advance.")
+    public ResponseEntity<List<OffenderEvent>> nextConsumerEvents(final @PathVariable("name") String name,
+                                                                  final @RequestParam("max") Optional<Integer> maybeMax,
+                                                                  final @RequestParam("type") Optional<Set<String>> maybeTypeFilter,
+                                                                  @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) final @RequestParam("from") Optional<LocalDateTime> maybeFrom,
+                                                                  final Principal principal) {
+        final var clientId = clientIdOf(principal);
+        final var consumerName = consumerNameOf(name);
+        final var max = maybeMax.orElse(100);
+        if (max < 1 || max > maxConsumerBatch) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "max must be between 1 and " + maxConsumerBatch);
+        }
+
+        final var events = eventConsumerService.next(clientId, consumerName, max, maybeTypeFilter, maybeFrom);
+        return pageOf(events, events.isEmpty() ? eventConsumerService.getOffset(clientId, consumerName) : Optional.empty());
+    }
+
+    @RequestMapping(path = "/events/consumers/{name}/commit", method = RequestMethod.POST)
+    @ApiImplicitParams({
+            @ApiImplicitParam(name = "cursor", dataType = "string", paramType = "query", required = true,
+                    value = "The **Next-Cursor** header of a /events/consumers/{name}/next response")
+    })
+    @ApiOperation(value = "Commit a named consumer's offset", notes = "Moves the offset forward to **cursor**. " +
+            "Committing an earlier position than the current offset is ignored. The offset now held is returned as **Next-Cursor**.")
+    public ResponseEntity<Void> commitConsumerOffset(final @PathVariable("name") String name,
+                                                     final @RequestParam("cursor") String cursor,
+                                                     final Principal principal) {
+        final var committed = eventConsumerService.commit(clientIdOf(principal), consumerNameOf(name), eventCursorOf(cursor));
+        return ResponseEntity.noContent().header(NEXT_CURSOR, committed.encode()).build();
+    }
+
+    private String clientIdOf(final Principal principal) {
+        // The same client_id claim ClientTrackingTelemetryModule records against each request
+        if (principal instanceof OAuth2Authentication) {
+            return ((OAuth2Authentication) principal).getOAuth2Request().getClientId();
+        }
+        if (principal != null) {
+            return principal.getName();
+        }
+        throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Consumers are scoped to the calling client, so need an authenticated request");
+    }
+
+    private String consumerNameOf(final String name) {
+        if (!CONSUMER_NAME.matcher(name).matches()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Consumer names are 1 to 64 letters, digits, '_', '.' or '-'");
+        }
+        return name;
+    }
+
+    private ResponseEntity<List<OffenderEvent>> pageOf(final List<OffenderEvent> events, final Optional<EventCursor> cursor) {
+        final var response = ResponseEntity.ok();
+        nextCursorOf(events, cursor).ifPresent(next -> response.header(NEXT_CURSOR, next.encode()));
+        return response.body(events);
+    }
+
+    private EventCursor eventCursorOf(final String token) {
+        try {
+            return EventCursor.decode(token);
+        } catch (final IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor", e);
+        }
+    }
+
+    private Optional<EventCursor> nextCursorOf(final List<OffenderEvent> events, final Optional<EventCursor> cursor) {
+        // An empty page leaves the position where it was
+        return events.isEmpty() ? cursor : Optional.of(EventCursor.of(events.get(events.size() - 1)));
+    }
+
+    @RequestMapping(path = "/events", method = RequestMethod.GET, produces = APPLICATION_NDJSON_VALUE)
+    @ApiImplicitParams({
+            @ApiImplicitParam(name = "fields", dataType = "string", paramType = "query", allowMultiple = true,
+                    value = "Comma separated list of the event properties to return, eg eventType,eventDatetime,offenderIdDisplay. Defaults to all of them.")
+    })
+    @ApiOperation(value = "Stream events as newline delimited JSON", notes = "Selected with **Accept: application/x-ndjson**. " +
+            "Takes the same parameters as the JSON variant, but events are written one per line as they are read from the database, " +
+            "so memory use does not grow with the width of the window.")
+    public ResponseEntity<StreamingResponseBody> streamEvents(@DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) final @RequestParam("from") Optional<LocalDateTime> maybeFrom,
+                                                              @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) final @RequestParam("to") Optional<LocalDateTime> maybeTo,
+                                                              final @RequestParam("type") Optional<Set<String>> maybeTypeFilter,
+                                                              final @RequestParam("sortBy") Optional<SortTypes> maybeSortBy,
+                                                              final @RequestParam("fields") Optional<Set<String>> maybeFields) {
+        final var fields = FieldSelectionAdvice.fieldsOf(maybeFields, OffenderEvent.class);
+        final var writer = fields.map(selection -> eventWriter.with(selection.filterProvider())).orElse(eventWriter);
+        final StreamingResponseBody body = outputStream -> {
+            try (final var events = offenderEventsService.streamEvents(maybeFrom, maybeTo, maybeTypeFilter, maybeSortBy, fields)) {
+                writeNdjson(events, writer, outputStream);
+            }
+        };
+        return ResponseEntity.ok().contentType(APPLICATION_NDJSON).body(body);
+    }
+
+    private void writeNdjson(final Stream<OffenderEvent> events, final ObjectWriter writer, final OutputStream outputStream) {
+        events.forEachOrdered(event -> {
+            try {
+                outputStream.write(writer.writeValueAsBytes(event));
+                outputStream.write('\n');
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
     public enum SortTypes {
         TIMESTAMP_ASC("TIMESTAMP_ASC"),
         TIMESTAMP_DESC("TIMESTAMP_DESC");
@@ -0,0 +1,45 @@
+package uk.gov.justice.digital.nomis.jpa.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.IdClass;
+import javax.persistence.Table;
+import java.sql.Timestamp;
+
+/**
+ * The last event a named consumer of a client has committed, as the parts of an event cursor.
+ */
+@Data
+@Entity
+@Table(name = "API_EVENT_CONSUMER_OFFSETS", schema = "API_OWNER")
+@IdClass(EventConsumerOffsetPK.class)
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class EventConsumerOffset {
+
+    @Id
+    @Column(name = "CLIENT_ID")
+    private String clientId;
+    @Id
+    @Column(name = "CONSUMER_NAME")
+    private String consumerName;
+
+    @Column(name = "EVENT_DATETIME")
+    private Timestamp eventDatetime;
+    @Column(name = "EVENT_SOURCE")
+    private String eventSource;
+    @Column(name = "EVENT_ID")
+    private String eventId;
+
+    @Column(name = "CREATE_DATETIME")
+    private Timestamp createDatetime;
+    @Column(name = "MODIFY_DATETIME")
+    private Timestamp modifyDatetime;
+}
@@ -0,0 +1,23 @@
+package uk.gov.justice.digital.nomis.jpa.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Column;
+import javax.persistence.Id;
+import java.io.Serializable;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EventConsumerOffsetPK implements Serializable {
+    @Column(name = "CLIENT_ID")
+    @Id
+    private String clientId;
+
+    @Column(name = "CONSUMER_NAME")
+    @Id
+    private String consumerName;
+
+}
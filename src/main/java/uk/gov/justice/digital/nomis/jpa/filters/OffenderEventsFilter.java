@@ -1,16 +1,20 @@
 package uk.gov.justice.digital.nomis.jpa.filters;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import lombok.Builder;
 import lombok.EqualsAndHashCode;
 import lombok.Value;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.format.annotation.DateTimeFormat;
+import uk.gov.justice.digital.nomis.api.FieldSelection;
 import uk.gov.justice.digital.nomis.jpa.entity.OffenderEvent;
 
 import javax.persistence.criteria.*;
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
@@ -33,6 +37,13 @@ public class OffenderEventsFilter implements Specification<OffenderEvent> {
     @Builder.Default
     private Optional<Long> offenderId = Optional.empty();
 
+    @Builder.Default
+    private Sort.Direction direction = Sort.Direction.DESC;
+
+    // Only what the response will be written with; not part of the query
+    @Builder.Default
+    private Optional<FieldSelection> fields = Optional.empty();
+
     @Override
     public Predicate toPredicate(final Root<OffenderEvent> root, final CriteriaQuery<?> query, final CriteriaBuilder cb) {
         var tsFrom = Timestamp.valueOf(from);
@@ -55,18 +66,36 @@ public class OffenderEventsFilter implements Specification<OffenderEvent> {
                 .add(cb.greaterThanOrEqualTo(eventTimestamp, tsFrom))
                 .add(cb.lessThanOrEqualTo(eventTimestamp, tsTo));
 
-        types.ifPresent(filter -> {
-            filter.add("CASE_NOTE");
-            predicateBuilder.add(valueInList(cb, eventType, filter));
-        });
+        // The filter is shared by the concurrent source fetches, so case notes are added to a copy
+        types.ifPresent(filter -> predicateBuilder.add(valueInList(cb, eventType,
+                ImmutableSet.<String>builder().addAll(filter).add("CASE_NOTE").build())));
 
         offenderId.ifPresent(id -> predicateBuilder.add(cb.equal(rootOffenderId, id)));
 
         final var predicates = predicateBuilder.build();
 
+        if (Long.class != query.getResultType()) {
+            final var eventId = root.get("eventId");
+            query.orderBy(direction.isAscending()
+                    ? List.of(cb.asc(eventTimestamp), cb.asc(eventId))
+                    : List.of(cb.desc(eventTimestamp), cb.desc(eventId)));
+        }
+
         return cb.and(predicates.toArray(new Predicate[predicates.size()]));
     }
 
+    public static class OffenderEventsFilterBuilder {
+
+        /**
+         * Copied, so neither the caller nor a query can change the types under a fetch running on another thread.
+         */
+        public OffenderEventsFilterBuilder types(final Optional<Set<String>> types) {
+            this.types$value = types.<Set<String>>map(ImmutableSet::copyOf);
+            this.types$set = true;
+            return this;
+        }
+    }
+
     private Predicate valueInList(final CriteriaBuilder cb, final Path eventType, final Set<String> list) {
         final var inTypes = cb.in(eventType);
         list.stream().map(String::toUpperCase).forEach(inTypes::value);
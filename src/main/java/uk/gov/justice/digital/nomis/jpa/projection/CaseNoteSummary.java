@@ -0,0 +1,20 @@
+package uk.gov.justice.digital.nomis.jpa.projection;
+
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+import java.sql.Timestamp;
+
+/**
+ * The columns of a CASE_NOTE API_OFFENDER_EVENTS row its counted event type and bucket are derived from.
+ */
+@Value
+@AllArgsConstructor
+public class CaseNoteSummary {
+    private Timestamp eventTimestamp;
+    private String agencyLocId;
+    private String eventType;
+    private String eventData1;
+    private String eventData2;
+    private String eventData3;
+}
@@ -0,0 +1,25 @@
+package uk.gov.justice.digital.nomis.jpa.projection;
+
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+import java.time.LocalDateTime;
+
+/**
+ * A count of API_OFFENDER_EVENTS rows sharing an event type, hour of event timestamp and agency.
+ */
+@Value
+@AllArgsConstructor
+public class EventCountSummary {
+    private String eventType;
+    private Integer year;
+    private Integer month;
+    private Integer day;
+    private Integer hour;
+    private String agencyLocId;
+    private Long count;
+
+    public LocalDateTime getHourStart() {
+        return LocalDateTime.of(year, month, day, hour, 0);
+    }
+}
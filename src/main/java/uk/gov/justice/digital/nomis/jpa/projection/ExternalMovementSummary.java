@@ -0,0 +1,24 @@
+package uk.gov.justice.digital.nomis.jpa.projection;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Value;
+
+import java.sql.Timestamp;
+
+/**
+ * The columns of an external movement that event enrichment reads.
+ */
+@Value
+@Builder
+@AllArgsConstructor
+public class ExternalMovementSummary {
+    private Long bookingId;
+    private Long movementSeq;
+    private String nomsId;
+    private String fromAgyLocId;
+    private String toAgyLocId;
+    private String directionCode;
+    private Timestamp movementTime;
+    private String movementType;
+}
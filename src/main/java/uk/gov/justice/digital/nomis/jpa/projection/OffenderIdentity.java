@@ -0,0 +1,20 @@
+package uk.gov.justice.digital.nomis.jpa.projection;
+
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+/**
+ * Just the identifiers of an offender record, optionally reached through one of its bookings.
+ */
+@Value
+@AllArgsConstructor
+public class OffenderIdentity {
+    private Long bookingId;
+    private Long offenderId;
+    private Long rootOffenderId;
+    private String nomsId;
+
+    public OffenderIdentity(final Long offenderId, final Long rootOffenderId, final String nomsId) {
+        this(null, offenderId, rootOffenderId, nomsId);
+    }
+}
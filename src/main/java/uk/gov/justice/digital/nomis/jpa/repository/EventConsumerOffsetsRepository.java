@@ -0,0 +1,19 @@
+package uk.gov.justice.digital.nomis.jpa.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import uk.gov.justice.digital.nomis.jpa.entity.EventConsumerOffset;
+import uk.gov.justice.digital.nomis.jpa.entity.EventConsumerOffsetPK;
+
+import javax.persistence.LockModeType;
+import java.util.Optional;
+
+@Repository
+public interface EventConsumerOffsetsRepository extends JpaRepository<EventConsumerOffset, EventConsumerOffsetPK> {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select o from EventConsumerOffset o where o.clientId = ?1 and o.consumerName = ?2")
+    Optional<EventConsumerOffset> findForUpdate(String clientId, String consumerName);
+}
@@ -0,0 +1,39 @@
+package uk.gov.justice.digital.nomis.jpa.repository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Makes the {@link FetchSizePolicy} of each query, from the shared bounds and memory budget.
+ */
+@Component
+public class FetchSizePolicies {
+
+    private final MeterRegistry meterRegistry;
+    private final int minFetchSize;
+    private final int maxFetchSize;
+    private final long budgetBytes;
+    private final double initialRowsPerHour;
+
+    @Autowired
+    public FetchSizePolicies(final MeterRegistry meterRegistry,
+                             @Value("${jdbc.fetch.min-size:10}") final int minFetchSize,
+                             @Value("${jdbc.fetch.max-size:10000}") final int maxFetchSize,
+                             @Value("${jdbc.fetch.budget-bytes:4194304}") final long budgetBytes,
+                             @Value("${jdbc.fetch.initial-rows-per-hour:1000}") final double initialRowsPerHour) {
+        this.meterRegistry = meterRegistry;
+        this.minFetchSize = minFetchSize;
+        this.maxFetchSize = maxFetchSize;
+        this.budgetBytes = budgetBytes;
+        this.initialRowsPerHour = initialRowsPerHour;
+    }
+
+    /**
+     * @param rowBytes the most a row of the query's select list is expected to take in the driver's buffers
+     */
+    public FetchSizePolicy policyOf(final String query, final int rowBytes) {
+        return new FetchSizePolicy(query, rowBytes, minFetchSize, maxFetchSize, budgetBytes, initialRowsPerHour, meterRegistry);
+    }
+}
@@ -0,0 +1,115 @@
+package uk.gov.justice.digital.nomis.jpa.repository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Picks the JDBC fetch size for one query: enough rows to bring back the expected result in one round trip,
+ * but no more than fit in the memory budget at the query's row width, as the driver sizes its buffers from
+ * the fetch size whether or not the rows arrive. Windowed queries estimate their result from the rows per
+ * hour seen by earlier runs.
+ * <p>
+ * The rows each read returns are counted as they are consumed. Neither Hibernate nor the driver reports its
+ * fetches, so round trips and rows per fetch are estimated from those rows and the fetch size, and are named
+ * as estimates.
+ */
+public class FetchSizePolicy {
+
+    // Weight of each run in the rows per hour estimate
+    private static final double ALPHA = 0.2;
+
+    private final int minFetchSize;
+    private final int maxFetchSize;
+    private volatile double rowsPerHour;
+    private final DistributionSummary rowsRead;
+    private final Counter estimatedRoundTrips;
+    private final DistributionSummary estimatedRowsPerFetch;
+    private final DistributionSummary fetchSizes;
+
+    FetchSizePolicy(final String query, final int rowBytes, final int minFetchSize, final int maxFetchSize,
+                    final long budgetBytes, final double initialRowsPerHour, final MeterRegistry meterRegistry) {
+        this.minFetchSize = minFetchSize;
+        this.maxFetchSize = (int) Math.max(minFetchSize, Math.min(maxFetchSize, budgetBytes / rowBytes));
+        this.rowsPerHour = initialRowsPerHour;
+        this.rowsRead = meterRegistry.summary("jdbc.fetch.rows", "query", query);
+        this.estimatedRoundTrips = meterRegistry.counter("jdbc.fetch.estimated-round-trips", "query", query);
+        this.estimatedRowsPerFetch = meterRegistry.summary("jdbc.fetch.estimated-rows-per-fetch", "query", query);
+        this.fetchSizes = meterRegistry.summary("jdbc.fetch.size", "query", query);
+    }
+
+    /**
+     * Fetch size for a result of about {@code estimatedRows}. One over, so the fetch that finds the end of
+     * the cursor is the one that brings back the last rows.
+     */
+    public int forRows(final long estimatedRows) {
+        final var fetchSize = (int) Math.max(minFetchSize, Math.min(maxFetchSize, estimatedRows + 1L));
+        fetchSizes.record(fetchSize);
+        return fetchSize;
+    }
+
+    /**
+     * Fetch size for the rows between {@code from} and {@code to}, at the rows per hour seen so far. An open
+     * window is sized for as many rows as the budget allows.
+     */
+    public int forWindow(final LocalDateTime from, final LocalDateTime to) {
+        if (from == null || to == null) {
+            return forRows(maxFetchSize);
+        }
+        return forRows((long) Math.ceil(rowsPerHour * hoursOf(from, to)));
+    }
+
+    /**
+     * Records a finished read of {@code rows} at {@code fetchSize}: the rows themselves, and the fetches
+     * the driver would have needed for them, the last of which finds the end of the cursor.
+     */
+    public void record(final long rows, final int fetchSize) {
+        final var trips = rows / fetchSize + 1L;
+        rowsRead.record(rows);
+        estimatedRoundTrips.increment(trips);
+        estimatedRowsPerFetch.record((double) rows / trips);
+    }
+
+    /**
+     * Records a finished read of the window between {@code from} and {@code to}, and folds its rows per hour
+     * into the estimate.
+     */
+    public void record(final long rows, final int fetchSize, final LocalDateTime from, final LocalDateTime to) {
+        record(rows, fetchSize);
+        final var hours = from != null && to != null ? hoursOf(from, to) : 0.0;
+        if (hours > 0.0) {
+            rowsPerHour = (1.0 - ALPHA) * rowsPerHour + ALPHA * (rows / hours);
+        }
+    }
+
+    /**
+     * {@code rows}, recording the read when the stream is closed.
+     */
+    public <T> Stream<T> recording(final Stream<T> rows, final int fetchSize) {
+        final var count = new AtomicLong();
+        return rows.peek(row -> count.incrementAndGet())
+                .onClose(() -> record(count.get(), fetchSize));
+    }
+
+    /**
+     * {@code rows}, recording the window's read when the stream is closed.
+     */
+    public <T> Stream<T> recording(final Stream<T> rows, final int fetchSize, final LocalDateTime from, final LocalDateTime to) {
+        final var count = new AtomicLong();
+        return rows.peek(row -> count.incrementAndGet())
+                .onClose(() -> record(count.get(), fetchSize, from, to));
+    }
+
+    double getRowsPerHour() {
+        return rowsPerHour;
+    }
+
+    private static double hoursOf(final LocalDateTime from, final LocalDateTime to) {
+        return Math.max(0L, Duration.between(from, to).toMillis()) / 3_600_000.0;
+    }
+}
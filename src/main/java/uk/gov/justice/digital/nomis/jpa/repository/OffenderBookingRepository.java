@@ -2,10 +2,20 @@ package uk.gov.justice.digital.nomis.jpa.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import uk.gov.justice.digital.nomis.jpa.entity.OffenderBooking;
+import uk.gov.justice.digital.nomis.jpa.projection.OffenderIdentity;
+
+import java.util.Collection;
+import java.util.List;
 
 @Repository
-public interface OffenderBookingRepository extends JpaRepository<OffenderBooking, Long>, JpaSpecificationExecutor<OffenderBooking> {
+public interface OffenderBookingRepository extends JpaRepository<OffenderBooking, Long>, JpaSpecificationExecutor<OffenderBooking>, OffenderBookingRepositoryCustom {
+
+    @Query("select new uk.gov.justice.digital.nomis.jpa.projection.OffenderIdentity(b.offenderBookId, o.offenderId, o.rootOffenderId, o.offenderIdDisplay) " +
+            "from OffenderBooking b join b.offender o where b.offenderBookId in :bookingIds")
+    List<OffenderIdentity> findIdentitiesByOffenderBookIdIn(@Param("bookingIds") Collection<Long> bookingIds);
 
 }
@@ -0,0 +1,14 @@
+package uk.gov.justice.digital.nomis.jpa.repository;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import uk.gov.justice.digital.nomis.jpa.entity.OffenderBooking;
+import uk.gov.justice.digital.nomis.jpa.filters.OffenderBookingFilter;
+
+public interface OffenderBookingRepositoryCustom {
+
+    /**
+     * A page of matching bookings with their offenders, read at a fetch size sized to the page.
+     */
+    Page<OffenderBooking> findAll(OffenderBookingFilter filter, Pageable pageable);
+}
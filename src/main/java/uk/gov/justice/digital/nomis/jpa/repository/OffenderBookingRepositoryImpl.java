@@ -0,0 +1,62 @@
+package uk.gov.justice.digital.nomis.jpa.repository;
+
+import org.hibernate.jpa.QueryHints;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+import uk.gov.justice.digital.nomis.jpa.entity.OffenderBooking;
+import uk.gov.justice.digital.nomis.jpa.filters.OffenderBookingFilter;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+public class OffenderBookingRepositoryImpl implements OffenderBookingRepositoryCustom {
+
+    // OFFENDER_BOOKINGS joined to the OFFENDERS row the filter fetches with it
+    private static final int ROW_BYTES = 4096;
+
+    private final FetchSizePolicy fetchSizePolicy;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    public OffenderBookingRepositoryImpl(final FetchSizePolicies fetchSizePolicies) {
+        this.fetchSizePolicy = fetchSizePolicies.policyOf("offender-bookings", ROW_BYTES);
+    }
+
+    @Override
+    public Page<OffenderBooking> findAll(final OffenderBookingFilter filter, final Pageable pageable) {
+        final var cb = entityManager.getCriteriaBuilder();
+        final var query = cb.createQuery(OffenderBooking.class);
+        final var root = query.from(OffenderBooking.class);
+        query.select(root).where(filter.toPredicate(root, query, cb));
+        if (pageable.getSort().isSorted()) {
+            query.orderBy(QueryUtils.toOrders(pageable.getSort(), root, cb));
+        }
+
+        final var typedQuery = entityManager.createQuery(query);
+        final int fetchSize;
+        if (pageable.isPaged()) {
+            typedQuery.setFirstResult((int) pageable.getOffset()).setMaxResults(pageable.getPageSize());
+            fetchSize = fetchSizePolicy.forRows(pageable.getPageSize());
+        } else {
+            fetchSize = fetchSizePolicy.forRows(Integer.MAX_VALUE);
+        }
+
+        final var bookings = typedQuery.setHint(QueryHints.HINT_FETCH_SIZE, fetchSize).getResultList();
+        fetchSizePolicy.record(bookings.size(), fetchSize);
+
+        return PageableExecutionUtils.getPage(bookings, pageable, () -> countOf(filter));
+    }
+
+    private long countOf(final OffenderBookingFilter filter) {
+        final var cb = entityManager.getCriteriaBuilder();
+        final var query = cb.createQuery(Long.class);
+        final var root = query.from(OffenderBooking.class);
+        query.select(cb.count(root)).where(filter.toPredicate(root, query, cb));
+        return entityManager.createQuery(query).getSingleResult();
+    }
+}
@@ -2,9 +2,24 @@ package uk.gov.justice.digital.nomis.jpa.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import uk.gov.justice.digital.nomis.jpa.entity.OffenderEvent;
+import uk.gov.justice.digital.nomis.jpa.projection.EventCountSummary;
+
+import java.sql.Timestamp;
+import java.util.List;
 
 @Repository
-public interface OffenderEventsRepository extends JpaRepository<OffenderEvent, Long>, JpaSpecificationExecutor<OffenderEvent> {
+public interface OffenderEventsRepository extends JpaRepository<OffenderEvent, Long>, JpaSpecificationExecutor<OffenderEvent>, OffenderEventsRepositoryCustom {
+
+    /**
+     * Counts by type, hour and agency, except case notes, whose API event type comes from their event data.
+     */
+    @Query("select new uk.gov.justice.digital.nomis.jpa.projection.EventCountSummary(e.eventType, year(e.eventTimestamp), month(e.eventTimestamp), " +
+            "day(e.eventTimestamp), hour(e.eventTimestamp), e.agencyLocId, count(e)) " +
+            "from OffenderEvent e where e.eventTimestamp >= :from and e.eventTimestamp <= :to and upper(e.eventType) <> 'CASE_NOTE' " +
+            "group by e.eventType, year(e.eventTimestamp), month(e.eventTimestamp), day(e.eventTimestamp), hour(e.eventTimestamp), e.agencyLocId")
+    List<EventCountSummary> countByTypeHourAndAgency(@Param("from") Timestamp from, @Param("to") Timestamp to);
 }
@@ -0,0 +1,30 @@
+package uk.gov.justice.digital.nomis.jpa.repository;
+
+import uk.gov.justice.digital.nomis.jpa.entity.OffenderEvent;
+import uk.gov.justice.digital.nomis.jpa.filters.OffenderEventsFilter;
+import uk.gov.justice.digital.nomis.jpa.projection.CaseNoteSummary;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+public interface OffenderEventsRepositoryCustom {
+
+    /**
+     * Matching events, ordered by event timestamp in the filter's direction, read at a fetch size
+     * sized to the filter's window.
+     */
+    List<OffenderEvent> findAll(OffenderEventsFilter oeFilter);
+
+    /**
+     * Streams matching events off an open cursor, ordered by event timestamp in the filter's direction.
+     * The stream holds its own connection and must be closed by the caller.
+     */
+    Stream<OffenderEvent> stream(OffenderEventsFilter oeFilter);
+
+    /**
+     * Streams the case note events from {@code from} to {@code to} inclusive, reduced to the columns their
+     * event type is read from. The stream holds its own connection and must be closed by the caller.
+     */
+    Stream<CaseNoteSummary> streamCaseNotes(LocalDateTime from, LocalDateTime to);
+}
@@ -0,0 +1,126 @@
+package uk.gov.justice.digital.nomis.jpa.repository;
+
+import org.hibernate.jpa.QueryHints;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import uk.gov.justice.digital.nomis.jpa.entity.OffenderEvent;
+import uk.gov.justice.digital.nomis.jpa.filters.OffenderEventsFilter;
+import uk.gov.justice.digital.nomis.jpa.projection.CaseNoteSummary;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class OffenderEventsRepositoryImpl implements OffenderEventsRepositoryCustom {
+
+    // OFFENDER_EVENTS is twenty short columns
+    private static final int ROW_BYTES = 512;
+
+    // Mostly the three event data segments
+    private static final int CASE_NOTE_ROW_BYTES = 12288;
+
+    private static final String SELECT_CASE_NOTES = "select new uk.gov.justice.digital.nomis.jpa.projection.CaseNoteSummary(" +
+            "e.eventTimestamp, e.agencyLocId, e.eventType, e.eventData1, e.eventData2, e.eventData3) " +
+            "from OffenderEvent e where e.eventTimestamp >= :from and e.eventTimestamp <= :to and upper(e.eventType) = 'CASE_NOTE'";
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final FetchSizePolicy fetchSizePolicy;
+    private final FetchSizePolicy caseNotesFetchSizePolicy;
+    private final Duration queryTimeout;
+
+    @PersistenceContext
+    private EntityManager sharedEntityManager;
+
+    @Autowired
+    public OffenderEventsRepositoryImpl(final EntityManagerFactory entityManagerFactory, final FetchSizePolicies fetchSizePolicies,
+                                        @Value("${events.fetch.timeout:PT2M}") final Duration queryTimeout) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.queryTimeout = queryTimeout;
+        this.fetchSizePolicy = fetchSizePolicies.policyOf("offender-events", ROW_BYTES);
+        this.caseNotesFetchSizePolicy = fetchSizePolicies.policyOf("case-notes", CASE_NOTE_ROW_BYTES);
+    }
+
+    @Override
+    public List<OffenderEvent> findAll(final OffenderEventsFilter oeFilter) {
+        final var fetchSize = fetchSizeOf(oeFilter);
+        final var events = queryOf(sharedEntityManager, oeFilter, fetchSize).getResultList();
+        record(oeFilter, events.size(), fetchSize);
+        return events;
+    }
+
+    @Override
+    public Stream<OffenderEvent> stream(final OffenderEventsFilter oeFilter) {
+        // A dedicated entity manager, so the cursor outlives any surrounding transaction
+        // and rows can be detached as they are read to keep the persistence context empty.
+        final var entityManager = entityManagerFactory.createEntityManager();
+        try {
+            final var fetchSize = fetchSizeOf(oeFilter);
+            final var rows = queryOf(entityManager, oeFilter, fetchSize)
+                    .setHint(QueryHints.HINT_READONLY, true)
+                    .getResultStream()
+                    .peek(entityManager::detach);
+            final var recorded = oeFilter.getOffenderId().isPresent()
+                    ? fetchSizePolicy.recording(rows, fetchSize)
+                    : fetchSizePolicy.recording(rows, fetchSize, oeFilter.getFrom(), oeFilter.getTo());
+            return recorded.onClose(entityManager::close);
+        } catch (final RuntimeException e) {
+            entityManager.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public Stream<CaseNoteSummary> streamCaseNotes(final LocalDateTime from, final LocalDateTime to) {
+        // Projected rows are not managed, so nothing builds up in the dedicated entity manager
+        final var entityManager = entityManagerFactory.createEntityManager();
+        try {
+            final var fetchSize = caseNotesFetchSizePolicy.forWindow(from, to);
+            final var rows = entityManager.createQuery(SELECT_CASE_NOTES, CaseNoteSummary.class)
+                    .setParameter("from", Timestamp.valueOf(from))
+                    .setParameter("to", Timestamp.valueOf(to))
+                    .setHint(QueryHints.HINT_FETCH_SIZE, fetchSize)
+                    .setHint(QueryHints.SPEC_HINT_TIMEOUT, queryTimeout.toMillis())
+                    .getResultStream();
+            return caseNotesFetchSizePolicy.recording(rows, fetchSize, from, to).onClose(entityManager::close);
+        } catch (final RuntimeException e) {
+            entityManager.close();
+            throw e;
+        }
+    }
+
+    private TypedQuery<OffenderEvent> queryOf(final EntityManager entityManager, final OffenderEventsFilter oeFilter, final int fetchSize) {
+        final var cb = entityManager.getCriteriaBuilder();
+        final var query = cb.createQuery(OffenderEvent.class);
+        final var root = query.from(OffenderEvent.class);
+
+        query.select(root).where(oeFilter.toPredicate(root, query, cb));
+
+        // Enforced by the driver, so a fetch abandoned at the timeout gives back its connection
+        return entityManager.createQuery(query)
+                .setHint(QueryHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(QueryHints.SPEC_HINT_TIMEOUT, queryTimeout.toMillis());
+    }
+
+    /**
+     * One offender's events are few whatever the window, so are not sized, or counted, by the window.
+     */
+    private int fetchSizeOf(final OffenderEventsFilter oeFilter) {
+        return oeFilter.getOffenderId().isPresent()
+                ? fetchSizePolicy.forRows(0L)
+                : fetchSizePolicy.forWindow(oeFilter.getFrom(), oeFilter.getTo());
+    }
+
+    private void record(final OffenderEventsFilter oeFilter, final long rows, final int fetchSize) {
+        if (oeFilter.getOffenderId().isPresent()) {
+            fetchSizePolicy.record(rows, fetchSize);
+        } else {
+            fetchSizePolicy.record(rows, fetchSize, oeFilter.getFrom(), oeFilter.getTo());
+        }
+    }
+}
@@ -7,7 +7,7 @@ import uk.gov.justice.digital.nomis.jpa.entity.OffenderExternalMovement;
 import java.util.Optional;
 
 @Repository
-public interface OffenderExternalMovementsRepository extends JpaRepository<OffenderExternalMovement, Long> {
+public interface OffenderExternalMovementsRepository extends JpaRepository<OffenderExternalMovement, Long>, OffenderExternalMovementsRepositoryCustom {
 
     Optional<OffenderExternalMovement> findByOffenderBookIdAndMovementSeq(Long movementSeq, Long bookingId);
 
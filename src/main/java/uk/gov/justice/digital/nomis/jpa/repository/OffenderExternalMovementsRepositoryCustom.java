@@ -0,0 +1,16 @@
+package uk.gov.justice.digital.nomis.jpa.repository;
+
+import uk.gov.justice.digital.nomis.jpa.projection.ExternalMovementSummary;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+public interface OffenderExternalMovementsRepositoryCustom {
+
+    /**
+     * Summaries of just the given movements, each a booking id and movement sequence. Callers keep to
+     * {@link uk.gov.justice.digital.nomis.utils.InLists#MAX_SIZE} movements a call.
+     */
+    List<ExternalMovementSummary> findSummariesByOffenderBookIdAndMovementSeqIn(Collection<Map.Entry<Long, Long>> bookingIdMovementSeqs);
+}
@@ -0,0 +1,44 @@
+package uk.gov.justice.digital.nomis.jpa.repository;
+
+import uk.gov.justice.digital.nomis.jpa.projection.ExternalMovementSummary;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class OffenderExternalMovementsRepositoryImpl implements OffenderExternalMovementsRepositoryCustom {
+
+    private static final String SELECT_SUMMARIES = "select new uk.gov.justice.digital.nomis.jpa.projection.ExternalMovementSummary(m.offenderBookId, m.movementSeq, o.offenderIdDisplay, " +
+            "m.fromAgyLocId, m.toAgyLocId, m.directionCode, m.movementTime, r.movementType) " +
+            "from OffenderExternalMovement m join m.id.offenderBooking b join b.offender o left join m.movementReason r " +
+            "where ";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * An OR of (booking id, movement sequence) pairs rather than a row value IN list, which Hibernate only
+     * writes as such for some dialects. Either way each pair is a probe of the primary key.
+     */
+    @Override
+    public List<ExternalMovementSummary> findSummariesByOffenderBookIdAndMovementSeqIn(final Collection<Map.Entry<Long, Long>> bookingIdMovementSeqs) {
+        if (bookingIdMovementSeqs.isEmpty()) {
+            return List.of();
+        }
+        final var movements = List.copyOf(bookingIdMovementSeqs);
+        final var where = IntStream.range(0, movements.size())
+                .mapToObj(i -> String.format("(m.offenderBookId = :bookingId%d and m.movementSeq = :movementSeq%d)", i, i))
+                .collect(Collectors.joining(" or "));
+
+        final var query = entityManager.createQuery(SELECT_SUMMARIES + where, ExternalMovementSummary.class);
+        for (int i = 0; i < movements.size(); i++) {
+            query.setParameter("bookingId" + i, movements.get(i).getKey());
+            query.setParameter("movementSeq" + i, movements.get(i).getValue());
+        }
+        return query.getResultList();
+    }
+}
@@ -1,23 +1,29 @@
 package uk.gov.justice.digital.nomis.jpa.repository;
 
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import uk.gov.justice.digital.nomis.jpa.entity.Offender;
+import uk.gov.justice.digital.nomis.jpa.projection.OffenderIdentity;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface OffenderRepository extends JpaRepository<Offender, Long> {
-
-    @Query("select o from Offender o where o.offenderId = o.rootOffenderId")
-    Page<Offender> findAllRootOffenders(Pageable pageable);
+public interface OffenderRepository extends JpaRepository<Offender, Long>, OffenderRepositoryCustom {
 
     List<Offender> findByOffenderIdDisplay(String nomsId);
 
+    @Query("select new uk.gov.justice.digital.nomis.jpa.projection.OffenderIdentity(o.offenderId, o.rootOffenderId, o.offenderIdDisplay) " +
+            "from Offender o where o.offenderId in :offenderIds")
+    List<OffenderIdentity> findIdentitiesByOffenderIdIn(@Param("offenderIds") Collection<Long> offenderIds);
+
+    @Query("select new uk.gov.justice.digital.nomis.jpa.projection.OffenderIdentity(o.offenderId, o.rootOffenderId, o.offenderIdDisplay) " +
+            "from Offender o where o.offenderIdDisplay = :nomsId and o.offenderId = o.rootOffenderId")
+    List<OffenderIdentity> findRootIdentitiesByOffenderIdDisplay(@Param("nomsId") String nomsId);
+
     default Optional<Offender> findByNomsId(final String nomsId) {
         return findByOffenderIdDisplay(nomsId).stream()
                 .filter(o -> o.getOffenderId().equals(o.getRootOffenderId()))
@@ -0,0 +1,13 @@
+package uk.gov.justice.digital.nomis.jpa.repository;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import uk.gov.justice.digital.nomis.jpa.entity.Offender;
+
+public interface OffenderRepositoryCustom {
+
+    /**
+     * A page of root offenders, read at a fetch size sized to the page.
+     */
+    Page<Offender> findAllRootOffenders(Pageable pageable);
+}
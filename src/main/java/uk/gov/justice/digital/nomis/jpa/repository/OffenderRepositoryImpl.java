@@ -0,0 +1,50 @@
+package uk.gov.justice.digital.nomis.jpa.repository;
+
+import org.hibernate.jpa.QueryHints;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+import uk.gov.justice.digital.nomis.jpa.entity.Offender;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+public class OffenderRepositoryImpl implements OffenderRepositoryCustom {
+
+    // OFFENDERS is nearly fifty columns, mostly names and codes
+    private static final int ROW_BYTES = 2048;
+
+    private static final String SELECT_ROOT_OFFENDERS = "select o from Offender o where o.offenderId = o.rootOffenderId";
+
+    private static final String COUNT_ROOT_OFFENDERS = "select count(o) from Offender o where o.offenderId = o.rootOffenderId";
+
+    private final FetchSizePolicy fetchSizePolicy;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    public OffenderRepositoryImpl(final FetchSizePolicies fetchSizePolicies) {
+        this.fetchSizePolicy = fetchSizePolicies.policyOf("root-offenders", ROW_BYTES);
+    }
+
+    @Override
+    public Page<Offender> findAllRootOffenders(final Pageable pageable) {
+        final var query = entityManager.createQuery(QueryUtils.applySorting(SELECT_ROOT_OFFENDERS, pageable.getSort(), "o"), Offender.class);
+        final int fetchSize;
+        if (pageable.isPaged()) {
+            query.setFirstResult((int) pageable.getOffset()).setMaxResults(pageable.getPageSize());
+            fetchSize = fetchSizePolicy.forRows(pageable.getPageSize());
+        } else {
+            fetchSize = fetchSizePolicy.forRows(Integer.MAX_VALUE);
+        }
+
+        final var offenders = query.setHint(QueryHints.HINT_FETCH_SIZE, fetchSize).getResultList();
+        fetchSizePolicy.record(offenders.size(), fetchSize);
+
+        return PageableExecutionUtils.getPage(offenders, pageable,
+                () -> entityManager.createQuery(COUNT_ROOT_OFFENDERS, Long.class).getSingleResult());
+    }
+}
@@ -3,27 +3,80 @@ package uk.gov.justice.digital.nomis.jpa.repository;
 import lombok.extern.slf4j.Slf4j;
 import oracle.sql.STRUCT;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
 import org.springframework.stereotype.Repository;
 import uk.gov.justice.digital.nomis.jpa.entity.XtagEventNonJpa;
 import uk.gov.justice.digital.nomis.jpa.filters.OffenderEventsFilter;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
+import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 @Slf4j
 @Repository
 public class OracleXtagEventsRepository implements XtagEventsRepository {
 
+    // USER_DATA is a pickled STRUCT carrying the RAW payload, so dominates the row either way
+    private static final int LEAN_ROW_BYTES = 4096;
+    private static final int FULL_ROW_BYTES = 8192;
+
+    // Just the columns the transform reads, bound by index in leanXtagEventOf
+    private static final String SELECT_LEAN_BY_ENQ_TIME = "select enq_time, user_data, msgid from XTAG.XTAG_LISTENER_TAB where enq_time >= ? and enq_time <= ? order by enq_time %1$s, msgid %1$s";
+
+    private static final String SELECT_FULL_BY_ENQ_TIME = "select * from XTAG.XTAG_LISTENER_TAB where enq_time >= ? and enq_time <= ? order by enq_time %1$s, msgid %1$s";
+
     private final JdbcTemplate jdbcTemplate;
+    private final boolean fullRow;
+    private final FetchSizePolicy fetchSizePolicy;
+    private final int queryTimeoutSeconds;
 
+    /**
+     * @param fullRow diagnostic switch to read every AQ bookkeeping column into {@link XtagEventNonJpa}
+     */
     @Autowired
-    public OracleXtagEventsRepository(final JdbcTemplate jdbcTemplate) {
+    public OracleXtagEventsRepository(final JdbcTemplate jdbcTemplate, final FetchSizePolicies fetchSizePolicies, @Value("${xtag.events.full-row:false}") final boolean fullRow,
+                                      @Value("${events.fetch.timeout:PT2M}") final Duration queryTimeout) {
         this.jdbcTemplate = jdbcTemplate;
+        // Enforced by the driver, so a fetch abandoned at the timeout gives back its connection
+        this.queryTimeoutSeconds = (int) Math.max(1L, queryTimeout.toSeconds());
+        this.fullRow = fullRow;
+        this.fetchSizePolicy = fetchSizePolicies.policyOf("xtag-events", fullRow ? FULL_ROW_BYTES : LEAN_ROW_BYTES);
+    }
+
+    private String selectByEnqTimeOf(final OffenderEventsFilter f) {
+        return String.format(fullRow ? SELECT_FULL_BY_ENQ_TIME : SELECT_LEAN_BY_ENQ_TIME, f.getDirection().name());
+    }
+
+    private Optional<XtagEventNonJpa> rowOf(final ResultSet rs) {
+        return fullRow ? xtagEventOf(rs) : leanXtagEventOf(rs);
+    }
+
+    private Optional<XtagEventNonJpa> leanXtagEventOf(final ResultSet rs) {
+        try {
+            return Optional.of(XtagEventNonJpa.builder()
+                    .enqTime(rs.getTimestamp(1))
+                    .userData((STRUCT) rs.getObject(2))
+                    .msgId(rs.getString(3))
+                    .build());
+        } catch (final SQLException e) {
+            log.error(e.getMessage());
+        } catch (final Throwable t) {
+            log.error("Caught throwable building XtagEventNonJpa. Will return empty and continue! : {} {}", t.getMessage(), t.getStackTrace());
+        }
+        return Optional.empty();
     }
 
     private Optional<XtagEventNonJpa> xtagEventOf(final ResultSet rs) {
@@ -77,9 +130,74 @@ public class OracleXtagEventsRepository implements XtagEventsRepository {
 
     @Override
     public List<XtagEventNonJpa> findAll(final OffenderEventsFilter f) {
-        final var results = jdbcTemplate.query("select * from XTAG.XTAG_LISTENER_TAB where enq_time >= ? and enq_time <= ?", (rs, rowNum) -> xtagEventOf(rs), Timestamp.valueOf(f.getFrom()), Timestamp.valueOf(f.getTo()));
+        final var sql = selectByEnqTimeOf(f);
+        final var fetchSize = fetchSizePolicy.forWindow(f.getFrom(), f.getTo());
+        final var results = jdbcTemplate.query(con -> {
+            final var ps = con.prepareStatement(sql);
+            ps.setFetchSize(fetchSize);
+            ps.setQueryTimeout(queryTimeoutSeconds);
+            ps.setTimestamp(1, Timestamp.valueOf(f.getFrom()));
+            ps.setTimestamp(2, Timestamp.valueOf(f.getTo()));
+            return ps;
+        }, (rs, rowNum) -> rowOf(rs));
+        fetchSizePolicy.record(results.size(), fetchSize, f.getFrom(), f.getTo());
         return results.stream().filter(Optional::isPresent).map(Optional::get).collect(Collectors.toList());
     }
 
+    @Override
+    public Stream<XtagEventNonJpa> stream(final OffenderEventsFilter f) {
+        final var sql = selectByEnqTimeOf(f);
+        final var fetchSize = fetchSizePolicy.forWindow(f.getFrom(), f.getTo());
+
+        Connection connection = null;
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        try {
+            // Deliberately not bound to any surrounding transaction: the cursor is drained
+            // after the calling service method returns, and is released when the stream is closed.
+            connection = jdbcTemplate.getDataSource().getConnection();
+            ps = connection.prepareStatement(sql);
+            ps.setFetchSize(fetchSize);
+            ps.setQueryTimeout(queryTimeoutSeconds);
+            ps.setTimestamp(1, Timestamp.valueOf(f.getFrom()));
+            ps.setTimestamp(2, Timestamp.valueOf(f.getTo()));
+            rs = ps.executeQuery();
+        } catch (final SQLException e) {
+            JdbcUtils.closeResultSet(rs);
+            JdbcUtils.closeStatement(ps);
+            JdbcUtils.closeConnection(connection);
+            throw jdbcTemplate.getExceptionTranslator().translate("stream xtag events", sql, e);
+        }
+
+        final var resultSet = rs;
+        final var statement = ps;
+        final var con = connection;
+
+        final var spliterator = new Spliterators.AbstractSpliterator<XtagEventNonJpa>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(final Consumer<? super XtagEventNonJpa> action) {
+                try {
+                    while (resultSet.next()) {
+                        final var maybeEvent = rowOf(resultSet);
+                        if (maybeEvent.isPresent()) {
+                            action.accept(maybeEvent.get());
+                            return true;
+                        }
+                    }
+                    return false;
+                } catch (final SQLException e) {
+                    throw jdbcTemplate.getExceptionTranslator().translate("stream xtag events", sql, e);
+                }
+            }
+        };
+
+        return fetchSizePolicy.recording(StreamSupport.stream(spliterator, false), fetchSize, f.getFrom(), f.getTo())
+                .onClose(() -> {
+                    JdbcUtils.closeResultSet(resultSet);
+                    JdbcUtils.closeStatement(statement);
+                    JdbcUtils.closeConnection(con);
+                });
+    }
+
 
 }
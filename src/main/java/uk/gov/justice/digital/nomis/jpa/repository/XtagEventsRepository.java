@@ -5,8 +5,18 @@ import uk.gov.justice.digital.nomis.jpa.entity.XtagEventNonJpa;
 import uk.gov.justice.digital.nomis.jpa.filters.OffenderEventsFilter;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface XtagEventsRepository {
+    /**
+     * Events ordered by enqueue time in the filter's direction.
+     */
     List<XtagEventNonJpa> findAll(OffenderEventsFilter oeFilter);
-}
\ No newline at end of file
+
+    /**
+     * As {@link #findAll}, read off an open cursor on a connection of its own, outside any transaction.
+     * The connection is released when the stream is closed.
+     */
+    Stream<XtagEventNonJpa> stream(OffenderEventsFilter oeFilter);
+}
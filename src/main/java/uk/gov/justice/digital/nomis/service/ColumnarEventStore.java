@@ -0,0 +1,431 @@
+package uk.gov.justice.digital.nomis.service;
+
+import com.google.common.collect.Iterators;
+import com.google.common.primitives.Ints;
+import org.springframework.data.domain.Sort;
+import uk.gov.justice.digital.nomis.api.EventSource;
+import uk.gov.justice.digital.nomis.api.OffenderEvent;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Holds events column by column rather than as {@link OffenderEvent}s, most of whose seventy-odd boxed
+ * fields are null for any one event type.
+ * <p>
+ * Events are kept in one immutable segment per hour of event time, rows sorted by feed position. Ids and
+ * timestamps are {@code long} columns, event types and agencies are codes into a dictionary shared by all
+ * segments, and the remaining fields are stored sparsely, only for the rows that have them. Range queries
+ * binary search each segment's time column; offender queries go through each segment's index of the
+ * offenders its rows relate to. Adding events to an hour replaces its segment, so there is a single writer
+ * and readers never see a segment change underneath them.
+ */
+public class ColumnarEventStore {
+
+    private static final long NULL = Long.MIN_VALUE;
+    private static final int NO_CODE = -1;
+    private static final EventSource[] EVENT_SOURCES = EventSource.values();
+    private static final Comparator<OffenderEvent> ORDER = EventCursor.orderOf(Sort.Direction.ASC);
+
+    private static final List<SparseField<?>> SPARSE_FIELDS = List.of(
+            SparseField.of(OffenderEvent::getAliasOffenderId, OffenderEvent::setAliasOffenderId),
+            SparseField.of(OffenderEvent::getPreviousOffenderId, OffenderEvent::setPreviousOffenderId),
+            SparseField.of(OffenderEvent::getOffenderIdDisplay, OffenderEvent::setOffenderIdDisplay),
+            SparseField.of(OffenderEvent::getBookingNumber, OffenderEvent::setBookingNumber),
+            SparseField.of(OffenderEvent::getPreviousBookingNumber, OffenderEvent::setPreviousBookingNumber),
+            SparseField.of(OffenderEvent::getSanctionSeq, OffenderEvent::setSanctionSeq),
+            SparseField.of(OffenderEvent::getMovementSeq, OffenderEvent::setMovementSeq),
+            SparseField.of(OffenderEvent::getImprisonmentStatusSeq, OffenderEvent::setImprisonmentStatusSeq),
+            SparseField.of(OffenderEvent::getAssessmentSeq, OffenderEvent::setAssessmentSeq),
+            SparseField.of(OffenderEvent::getAlertSeq, OffenderEvent::setAlertSeq),
+            SparseField.of(OffenderEvent::getAlertDateTime, OffenderEvent::setAlertDateTime),
+            SparseField.of(OffenderEvent::getAlertType, OffenderEvent::setAlertType),
+            SparseField.of(OffenderEvent::getAlertCode, OffenderEvent::setAlertCode),
+            SparseField.of(OffenderEvent::getExpiryDateTime, OffenderEvent::setExpiryDateTime),
+            SparseField.of(OffenderEvent::getCaseNoteId, OffenderEvent::setCaseNoteId),
+            SparseField.of(OffenderEvent::getRiskPredictorId, OffenderEvent::setRiskPredictorId),
+            SparseField.of(OffenderEvent::getAddressId, OffenderEvent::setAddressId),
+            SparseField.of(OffenderEvent::getPersonId, OffenderEvent::setPersonId),
+            SparseField.of(OffenderEvent::getSentenceCalculationId, OffenderEvent::setSentenceCalculationId),
+            SparseField.of(OffenderEvent::getOicHearingId, OffenderEvent::setOicHearingId),
+            SparseField.of(OffenderEvent::getOicOffenceId, OffenderEvent::setOicOffenceId),
+            SparseField.of(OffenderEvent::getPleaFindingCode, OffenderEvent::setPleaFindingCode),
+            SparseField.of(OffenderEvent::getFindingCode, OffenderEvent::setFindingCode),
+            SparseField.of(OffenderEvent::getResultSeq, OffenderEvent::setResultSeq),
+            SparseField.of(OffenderEvent::getAgencyIncidentId, OffenderEvent::setAgencyIncidentId),
+            SparseField.of(OffenderEvent::getChargeSeq, OffenderEvent::setChargeSeq),
+            SparseField.of(OffenderEvent::getIdentifierType, OffenderEvent::setIdentifierType),
+            SparseField.of(OffenderEvent::getIdentifierValue, OffenderEvent::setIdentifierValue),
+            SparseField.of(OffenderEvent::getOwnerId, OffenderEvent::setOwnerId),
+            SparseField.of(OffenderEvent::getOwnerClass, OffenderEvent::setOwnerClass),
+            SparseField.of(OffenderEvent::getSentenceSeq, OffenderEvent::setSentenceSeq),
+            SparseField.of(OffenderEvent::getConditionCode, OffenderEvent::setConditionCode),
+            SparseField.of(OffenderEvent::getOffenderSentenceConditionId, OffenderEvent::setOffenderSentenceConditionId),
+            SparseField.of(OffenderEvent::getAddressEndDate, OffenderEvent::setAddressEndDate),
+            SparseField.of(OffenderEvent::getPrimaryAddressFlag, OffenderEvent::setPrimaryAddressFlag),
+            SparseField.of(OffenderEvent::getMailAddressFlag, OffenderEvent::setMailAddressFlag),
+            SparseField.of(OffenderEvent::getAddressUsage, OffenderEvent::setAddressUsage),
+            SparseField.of(OffenderEvent::getIncidentCaseId, OffenderEvent::setIncidentCaseId),
+            SparseField.of(OffenderEvent::getIncidentPartySeq, OffenderEvent::setIncidentPartySeq),
+            SparseField.of(OffenderEvent::getIncidentRequirementSeq, OffenderEvent::setIncidentRequirementSeq),
+            SparseField.of(OffenderEvent::getIncidentQuestionSeq, OffenderEvent::setIncidentQuestionSeq),
+            SparseField.of(OffenderEvent::getIncidentResponseSeq, OffenderEvent::setIncidentResponseSeq),
+            SparseField.of(OffenderEvent::getBedAssignmentSeq, OffenderEvent::setBedAssignmentSeq),
+            SparseField.of(OffenderEvent::getLivingUnitId, OffenderEvent::setLivingUnitId),
+            SparseField.of(OffenderEvent::getMovementDateTime, OffenderEvent::setMovementDateTime),
+            SparseField.of(OffenderEvent::getMovementType, OffenderEvent::setMovementType),
+            SparseField.of(OffenderEvent::getMovementReasonCode, OffenderEvent::setMovementReasonCode),
+            SparseField.of(OffenderEvent::getDirectionCode, OffenderEvent::setDirectionCode),
+            SparseField.of(OffenderEvent::getEscortCode, OffenderEvent::setEscortCode),
+            SparseField.of(OffenderEvent::getFromAgencyLocationId, OffenderEvent::setFromAgencyLocationId),
+            SparseField.of(OffenderEvent::getToAgencyLocationId, OffenderEvent::setToAgencyLocationId)
+    );
+
+    private final Dictionary dictionary = new Dictionary();
+    private final ConcurrentSkipListMap<LocalDateTime, Segment> segments = new ConcurrentSkipListMap<>();
+    private final AtomicLong size = new AtomicLong();
+
+    /**
+     * Adds the events not already held, returning how many that was. Events without a timestamp are ignored.
+     * Not thread safe; there must be a single writer.
+     */
+    public int add(final Collection<OffenderEvent> events) {
+        final var byHour = events.stream()
+                .filter(oe -> oe.getEventDatetime() != null)
+                .collect(Collectors.groupingBy(oe -> oe.getEventDatetime().truncatedTo(ChronoUnit.HOURS)));
+
+        var added = 0;
+        for (final var hour : byHour.entrySet()) {
+            final var existing = segments.get(hour.getKey());
+            final var fresh = hour.getValue().stream()
+                    .filter(oe -> existing == null || !existing.contains(oe))
+                    .collect(Collectors.toCollection(() -> new TreeSet<>(ORDER)));
+            if (fresh.isEmpty()) {
+                continue;
+            }
+
+            final var rows = new ArrayList<OffenderEvent>(fresh.size() + (existing == null ? 0 : existing.size()));
+            if (existing == null) {
+                rows.addAll(fresh);
+            } else {
+                Iterators.addAll(rows, Iterators.mergeSorted(List.of(existing.events().iterator(), fresh.iterator()), ORDER));
+            }
+            segments.put(hour.getKey(), Segment.of(rows, dictionary));
+            size.addAndGet(fresh.size());
+            added += fresh.size();
+        }
+        return added;
+    }
+
+    /**
+     * Drops every hour that ended at or before {@code cutoff}. Events earlier in the hour the cutoff falls in
+     * are kept until the whole hour goes.
+     */
+    public void evictBefore(final LocalDateTime cutoff) {
+        final var stale = segments.headMap(cutoff.truncatedTo(ChronoUnit.HOURS));
+        stale.values().forEach(segment -> size.addAndGet(-segment.size()));
+        stale.clear();
+    }
+
+    /**
+     * Events from {@code from} to {@code to} inclusive in the given direction, of one of {@code maybeTypes} if
+     * given (already upper case), and related to {@code maybeOffenderId} if given, by the same rules as the
+     * database queries: API_OFFENDER_EVENTS rows by their root offender, xtags by offender, root offender or
+     * an offender owner. Events are only materialised as the stream is consumed.
+     */
+    public Stream<OffenderEvent> find(final LocalDateTime from,
+                                      final LocalDateTime to,
+                                      final Sort.Direction direction,
+                                      final Optional<Set<String>> maybeTypes,
+                                      final Optional<Long> maybeOffenderId) {
+        final var fromNanos = nanosOf(from);
+        final var toNanos = nanosOf(to);
+        final var typeCodes = maybeTypes.map(types -> types.stream().mapToInt(dictionary::codeOf).filter(code -> code != NO_CODE).toArray());
+
+        final var hours = segments.subMap(from.truncatedTo(ChronoUnit.HOURS), true, to, true);
+        final var ordered = direction.isAscending() ? hours.values() : hours.descendingMap().values();
+
+        return ordered.stream().flatMap(segment -> segment.rows(fromNanos, toNanos, direction, maybeOffenderId)
+                .filter(row -> typeCodes.map(codes -> Ints.contains(codes, segment.eventType[row])).orElse(true))
+                .mapToObj(segment::eventAt));
+    }
+
+    public long size() {
+        return size.get();
+    }
+
+    private static long nanosOf(final LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC) * 1_000_000_000L + dateTime.getNano();
+    }
+
+    private static LocalDateTime dateTimeOf(final long nanos) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(nanos, 1_000_000_000L), (int) Math.floorMod(nanos, 1_000_000_000L), ZoneOffset.UTC);
+    }
+
+    private static long longOf(final Long value) {
+        return value == null ? NULL : value;
+    }
+
+    private static Long valueOf(final long value) {
+        return value == NULL ? null : value;
+    }
+
+    private static Set<Long> relatedOffenderIdsOf(final OffenderEvent oe) {
+        final var ids = new LinkedHashSet<Long>();
+        ids.add(oe.getRootOffenderId());
+        if (oe.getEventSource() != EventSource.API_OFFENDER_EVENTS) {
+            ids.add(oe.getOffenderId());
+            if ("OFF".equals(oe.getOwnerClass())) {
+                ids.add(oe.getOwnerId());
+            }
+        }
+        ids.remove(null);
+        return ids;
+    }
+
+    /**
+     * One hour of events. Immutable once built.
+     */
+    private static final class Segment {
+        private static final int[] NO_ROWS = new int[0];
+
+        private final Dictionary dictionary;
+        private final long[] eventDatetime;
+        private final byte[] eventSource;
+        private final String[] eventId;
+        private final int[] eventType;
+        private final int[] nomisEventType;
+        private final int[] agencyLocationId;
+        private final long[] rootOffenderId;
+        private final long[] offenderId;
+        private final long[] bookingId;
+        // Aligned with SPARSE_FIELDS, null where no row has a value
+        private final SparseColumn[] sparse;
+        private final Map<Long, int[]> rowsByOffenderId;
+
+        private Segment(final Dictionary dictionary, final int rows) {
+            this.dictionary = dictionary;
+            this.eventDatetime = new long[rows];
+            this.eventSource = new byte[rows];
+            this.eventId = new String[rows];
+            this.eventType = new int[rows];
+            this.nomisEventType = new int[rows];
+            this.agencyLocationId = new int[rows];
+            this.rootOffenderId = new long[rows];
+            this.offenderId = new long[rows];
+            this.bookingId = new long[rows];
+            this.sparse = new SparseColumn[SPARSE_FIELDS.size()];
+            this.rowsByOffenderId = new HashMap<>();
+        }
+
+        /**
+         * Builds a segment from events already in feed order.
+         */
+        static Segment of(final List<OffenderEvent> events, final Dictionary dictionary) {
+            final var segment = new Segment(dictionary, events.size());
+            final var sparseRows = new ArrayList<List<Integer>>();
+            final var sparseValues = new ArrayList<List<Object>>();
+            SPARSE_FIELDS.forEach(field -> {
+                sparseRows.add(new ArrayList<>());
+                sparseValues.add(new ArrayList<>());
+            });
+            final var offenderRows = new HashMap<Long, List<Integer>>();
+
+            for (var row = 0; row < events.size(); row++) {
+                final var oe = events.get(row);
+                segment.eventDatetime[row] = nanosOf(oe.getEventDatetime());
+                segment.eventSource[row] = oe.getEventSource() == null ? -1 : (byte) oe.getEventSource().ordinal();
+                segment.eventId[row] = oe.getEventId();
+                segment.eventType[row] = dictionary.encode(oe.getEventType());
+                segment.nomisEventType[row] = dictionary.encode(oe.getNomisEventType());
+                segment.agencyLocationId[row] = dictionary.encode(oe.getAgencyLocationId());
+                segment.rootOffenderId[row] = longOf(oe.getRootOffenderId());
+                segment.offenderId[row] = longOf(oe.getOffenderId());
+                segment.bookingId[row] = longOf(oe.getBookingId());
+
+                for (var field = 0; field < SPARSE_FIELDS.size(); field++) {
+                    final var value = SPARSE_FIELDS.get(field).getter.apply(oe);
+                    if (value != null) {
+                        sparseRows.get(field).add(row);
+                        sparseValues.get(field).add(value);
+                    }
+                }
+
+                final var finalRow = row;
+                relatedOffenderIdsOf(oe).forEach(id -> offenderRows.computeIfAbsent(id, key -> new ArrayList<>()).add(finalRow));
+            }
+
+            for (var field = 0; field < SPARSE_FIELDS.size(); field++) {
+                if (!sparseRows.get(field).isEmpty()) {
+                    segment.sparse[field] = new SparseColumn(Ints.toArray(sparseRows.get(field)), sparseValues.get(field).toArray());
+                }
+            }
+            offenderRows.forEach((id, rows) -> segment.rowsByOffenderId.put(id, Ints.toArray(rows)));
+            return segment;
+        }
+
+        int size() {
+            return eventDatetime.length;
+        }
+
+        boolean contains(final OffenderEvent oe) {
+            final var nanos = nanosOf(oe.getEventDatetime());
+            final var source = oe.getEventSource() == null ? -1 : (byte) oe.getEventSource().ordinal();
+            for (var row = firstAtOrAfter(nanos); row < size() && eventDatetime[row] == nanos; row++) {
+                if (eventSource[row] == source && Objects.equals(eventId[row], oe.getEventId())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        IntStream rows(final long fromNanos, final long toNanos, final Sort.Direction direction, final Optional<Long> maybeOffenderId) {
+            final var first = firstAtOrAfter(fromNanos);
+            final var end = firstAtOrAfter(toNanos == Long.MAX_VALUE ? toNanos : toNanos + 1);
+
+            final var candidates = maybeOffenderId
+                    .map(id -> Arrays.stream(rowsByOffenderId.getOrDefault(id, NO_ROWS)).filter(row -> row >= first && row < end).toArray())
+                    .orElse(null);
+            if (candidates == null) {
+                return direction.isAscending()
+                        ? IntStream.range(first, end)
+                        : IntStream.range(0, end - first).map(i -> end - 1 - i);
+            }
+            return direction.isAscending()
+                    ? Arrays.stream(candidates)
+                    : IntStream.range(0, candidates.length).map(i -> candidates[candidates.length - 1 - i]);
+        }
+
+        // Binary search of the time column
+        private int firstAtOrAfter(final long nanos) {
+            var low = 0;
+            var high = size();
+            while (low < high) {
+                final var mid = (low + high) >>> 1;
+                if (eventDatetime[mid] < nanos) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        OffenderEvent eventAt(final int row) {
+            final var oe = new OffenderEvent();
+            oe.setEventDatetime(dateTimeOf(eventDatetime[row]));
+            oe.setEventSource(eventSource[row] < 0 ? null : EVENT_SOURCES[eventSource[row]]);
+            oe.setEventId(eventId[row]);
+            oe.setEventType(dictionary.decode(eventType[row]));
+            oe.setNomisEventType(dictionary.decode(nomisEventType[row]));
+            oe.setAgencyLocationId(dictionary.decode(agencyLocationId[row]));
+            oe.setRootOffenderId(valueOf(rootOffenderId[row]));
+            oe.setOffenderId(valueOf(offenderId[row]));
+            oe.setBookingId(valueOf(bookingId[row]));
+            for (var field = 0; field < sparse.length; field++) {
+                if (sparse[field] != null) {
+                    SPARSE_FIELDS.get(field).set(oe, sparse[field].get(row));
+                }
+            }
+            return oe;
+        }
+
+        List<OffenderEvent> events() {
+            return IntStream.range(0, size()).mapToObj(this::eventAt).collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Values for just the rows that have one, found by binary search on the row number.
+     */
+    private static final class SparseColumn {
+        private final int[] rows;
+        private final Object[] values;
+
+        SparseColumn(final int[] rows, final Object[] values) {
+            this.rows = rows;
+            this.values = values;
+        }
+
+        Object get(final int row) {
+            final var index = Arrays.binarySearch(rows, row);
+            return index < 0 ? null : values[index];
+        }
+    }
+
+    private static final class SparseField<T> {
+        private final Function<OffenderEvent, T> getter;
+        private final BiConsumer<OffenderEvent, T> setter;
+
+        private SparseField(final Function<OffenderEvent, T> getter, final BiConsumer<OffenderEvent, T> setter) {
+            this.getter = getter;
+            this.setter = setter;
+        }
+
+        static <T> SparseField<T> of(final Function<OffenderEvent, T> getter, final BiConsumer<OffenderEvent, T> setter) {
+            return new SparseField<>(getter, setter);
+        }
+
+        @SuppressWarnings("unchecked")
+        void set(final OffenderEvent oe, final Object value) {
+            if (value != null) {
+                setter.accept(oe, (T) value);
+            }
+        }
+    }
+
+    /**
+     * Codes for repeated strings, shared by every segment. Codes are only ever added, and a code is written
+     * before any segment using it is published, so readers can decode without locking.
+     */
+    private static final class Dictionary {
+        private final Map<String, Integer> codes = new ConcurrentHashMap<>();
+        private volatile String[] values = new String[256];
+        private int next;
+
+        synchronized int encode(final String value) {
+            if (value == null) {
+                return NO_CODE;
+            }
+            final var existing = codes.get(value);
+            if (existing != null) {
+                return existing;
+            }
+            if (next == values.length) {
+                values = Arrays.copyOf(values, next * 2);
+            }
+            values[next] = value;
+            codes.put(value, next);
+            return next++;
+        }
+
+        int codeOf(final String value) {
+            return codes.getOrDefault(value, NO_CODE);
+        }
+
+        String decode(final int code) {
+            return code == NO_CODE ? null : values[code];
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package uk.gov.justice.digital.nomis.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.google.common.io.BaseEncoding;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import uk.gov.justice.digital.nomis.api.EventArchivePartition;
+import uk.gov.justice.digital.nomis.api.OffenderEvent;
+import uk.gov.justice.digital.nomis.controller.OffenderEventsController;
+
+import javax.annotation.PostConstruct;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Each completed day of transformed events, written once to local disk as a gzipped NDJSON partition, so that
+ * back-fills of whole days are served from the file rather than the database.
+ * <p>
+ * A day is exported once it ended more than {@code events.archive.settle-delay} ago, going back
+ * {@code events.archive.days}. Partitions are written to a temporary file and moved into place, and only then
+ * recorded in {@code manifest.json} with their size and SHA-256, so a partition in the manifest is always complete.
+ * Both are checked against the file when the manifest is read back on start.
+ */
+@Slf4j
+@Component
+public class EventArchiveService {
+
+    private static final String MANIFEST = "manifest.json";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final OffenderEventsService offenderEventsService;
+    private final ScheduledExecutorService scheduler;
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter eventWriter;
+    private final boolean enabled;
+    private final Path directory;
+    private final Duration settleDelay;
+    private final Integer days;
+    private final Duration interval;
+
+    private final Map<LocalDate, EventArchivePartition> partitions = new ConcurrentHashMap<>();
+
+    @Autowired
+    public EventArchiveService(final OffenderEventsService offenderEventsService,
+                               @Qualifier("eventsArchiveScheduler") final ScheduledExecutorService scheduler,
+                               @Qualifier("globalObjectMapper") final ObjectMapper objectMapper,
+                               @Value("${events.archive.enabled:false}") final boolean enabled,
+                               @Value("${events.archive.directory:${java.io.tmpdir}/custody-api-archive}") final String directory,
+                               @Value("${events.archive.settle-delay:PT1H}") final Duration settleDelay,
+                               @Value("${events.archive.days:7}") final Integer days,
+                               @Value("${events.archive.interval:PT1H}") final Duration interval) {
+        this.offenderEventsService = offenderEventsService;
+        this.scheduler = scheduler;
+        this.objectMapper = objectMapper;
+        this.eventWriter = objectMapper.writerFor(OffenderEvent.class);
+        this.enabled = enabled;
+        this.directory = Paths.get(directory);
+        this.settleDelay = settleDelay;
+        this.days = days;
+        this.interval = interval;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (enabled) {
+            loadManifest();
+            scheduler.scheduleWithFixedDelay(this::exportCompletedDays, 0L, interval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public List<EventArchivePartition> getPartitions() {
+        return partitions.values().stream()
+                .sorted(Comparator.comparing(EventArchivePartition::getDate))
+                .collect(Collectors.toList());
+    }
+
+    public Optional<EventArchivePartition> getPartition(final LocalDate date) {
+        return Optional.ofNullable(partitions.get(date));
+    }
+
+    public Path fileOf(final EventArchivePartition partition) {
+        return directory.resolve(partition.getFile());
+    }
+
+    void exportCompletedDays() {
+        final var lastCompleted = LocalDateTime.now().minus(settleDelay).toLocalDate().minusDays(1L);
+        for (var date = lastCompleted.minusDays(days - 1L); !date.isAfter(lastCompleted); date = date.plusDays(1L)) {
+            if (partitions.containsKey(date)) {
+                continue;
+            }
+            try {
+                export(date);
+            } catch (final RuntimeException e) {
+                // Left out of the manifest, so the next run tries again
+                log.error("Failed to archive events for {}: {}", date, e.getMessage(), e);
+            }
+        }
+    }
+
+    void export(final LocalDate date) {
+        final var file = "events-" + date + ".ndjson.gz";
+        final var tmp = directory.resolve(file + ".tmp");
+        final var count = new AtomicLong();
+        final MessageDigest sha256 = sha256();
+
+        log.info("Archiving events for {}", date);
+        try {
+            Files.createDirectories(directory);
+            try (final var out = new GZIPOutputStream(new DigestOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), BUFFER_SIZE), sha256), BUFFER_SIZE);
+                 final var events = offenderEventsService.streamEvents(Optional.of(date.atStartOfDay()), Optional.of(date.plusDays(1L).atStartOfDay().minusNanos(1L)),
+                         Optional.empty(), Optional.of(OffenderEventsController.SortTypes.TIMESTAMP_ASC), Optional.empty())) {
+                events.forEachOrdered(event -> {
+                    try {
+                        out.write(eventWriter.writeValueAsBytes(event));
+                        out.write('\n');
+                    } catch (final IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    count.incrementAndGet();
+                });
+            }
+            Files.move(tmp, directory.resolve(file), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            partitions.put(date, EventArchivePartition.builder()
+                    .date(date)
+                    .file(file)
+                    .events(count.get())
+                    .bytes(Files.size(directory.resolve(file)))
+                    .sha256(BaseEncoding.base16().lowerCase().encode(sha256.digest()))
+                    .exportedAt(LocalDateTime.now())
+                    .build());
+            saveManifest();
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            deleteQuietly(tmp);
+        }
+        log.info("Archived {} events for {}", count.get(), date);
+    }
+
+    private void loadManifest() {
+        final var manifest = directory.resolve(MANIFEST);
+        if (!Files.exists(manifest)) {
+            return;
+        }
+        try {
+            final List<EventArchivePartition> recorded = objectMapper.readValue(manifest.toFile(), new TypeReference<>() {
+            });
+            // A partition whose file has gone, or no longer matches its size and checksum, is exported again
+            recorded.stream()
+                    .filter(this::isIntact)
+                    .forEach(partition -> partitions.put(partition.getDate(), partition));
+        } catch (final IOException e) {
+            log.warn("Ignoring unreadable events archive manifest {}: {}", manifest, e.getMessage());
+        }
+    }
+
+    private boolean isIntact(final EventArchivePartition partition) {
+        final var file = fileOf(partition);
+        try {
+            if (Files.size(file) != partition.getBytes()) {
+                return false;
+            }
+            final var sha256 = sha256();
+            try (final var in = new DigestInputStream(Files.newInputStream(file), sha256)) {
+                in.transferTo(OutputStream.nullOutputStream());
+            }
+            if (!BaseEncoding.base16().lowerCase().encode(sha256.digest()).equals(partition.getSha256())) {
+                log.warn("Archived events file {} does not match its checksum", file);
+                return false;
+            }
+            return true;
+        } catch (final IOException e) {
+            return false;
+        }
+    }
+
+    private synchronized void saveManifest() throws IOException {
+        final var tmp = directory.resolve(MANIFEST + ".tmp");
+        objectMapper.writeValue(tmp.toFile(), getPartitions());
+        Files.move(tmp, directory.resolve(MANIFEST), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void deleteQuietly(final Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (final IOException e) {
+            log.warn("Could not delete {}: {}", path, e.getMessage());
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package uk.gov.justice.digital.nomis.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import uk.gov.justice.digital.nomis.api.EventSource;
+import uk.gov.justice.digital.nomis.api.OffenderEvent;
+import uk.gov.justice.digital.nomis.controller.OffenderEventsController;
+import uk.gov.justice.digital.nomis.jpa.entity.EventConsumerOffset;
+import uk.gov.justice.digital.nomis.jpa.entity.EventConsumerOffsetPK;
+import uk.gov.justice.digital.nomis.jpa.repository.EventConsumerOffsetsRepository;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Named consumer groups over the event feed. Each client's consumers keep a committed offset, so a consumer
+ * asks for what comes next rather than re-reading overlapping time windows, and only rows newer than its
+ * offset are read. Reads stop {@code events.stream.lag} short of now, as the live tailer's do, so an event
+ * committed after its timestamp is not left behind an offset that has already moved past it.
+ */
+@Slf4j
+@Service
+public class EventConsumerService {
+
+    private final OffenderEventsService offenderEventsService;
+    private final EventConsumerOffsetsRepository eventConsumerOffsetsRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration lag;
+
+    @Autowired
+    public EventConsumerService(final OffenderEventsService offenderEventsService,
+                                final EventConsumerOffsetsRepository eventConsumerOffsetsRepository,
+                                final PlatformTransactionManager transactionManager,
+                                @Value("${events.stream.lag:PT1M}") final Duration lag) {
+        this.offenderEventsService = offenderEventsService;
+        this.eventConsumerOffsetsRepository = eventConsumerOffsetsRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.lag = lag;
+    }
+
+    /**
+     * Up to {@code max} events after the consumer's committed offset, oldest first. Does not move the offset.
+     * A consumer with nothing committed starts from {@code maybeFrom}, or midnight today.
+     */
+    public List<OffenderEvent> next(final String clientId,
+                                    final String consumerName,
+                                    final int max,
+                                    final Optional<Set<String>> maybeTypeFilter,
+                                    final Optional<LocalDateTime> maybeFrom) {
+        final var maybeOffset = getOffset(clientId, consumerName);
+        final var from = maybeOffset.map(EventCursor::getEventDatetime)
+                .orElse(maybeFrom.orElse(LocalDate.now().atStartOfDay()));
+        final var to = LocalDateTime.now().minus(lag);
+        if (!from.isBefore(to)) {
+            return List.of();
+        }
+
+        return offenderEventsService.getEvents(Optional.of(from), Optional.of(to), maybeTypeFilter,
+                Optional.of(OffenderEventsController.SortTypes.TIMESTAMP_ASC), maybeOffset, Optional.of(max))
+                .orElse(List.of());
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<EventCursor> getOffset(final String clientId, final String consumerName) {
+        return eventConsumerOffsetsRepository.findById(new EventConsumerOffsetPK(clientId, consumerName))
+                .map(this::eventCursorOf);
+    }
+
+    /**
+     * Moves the consumer's offset forward to {@code cursor}. Committing a position at or before the current
+     * offset changes nothing, so retried and out of order commits are harmless. Returns the offset now held.
+     */
+    public EventCursor commit(final String clientId, final String consumerName, final EventCursor cursor) {
+        try {
+            return transactionTemplate.execute(status -> commitLocked(clientId, consumerName, cursor));
+        } catch (final DataIntegrityViolationException e) {
+            // A concurrent first commit inserted the row first, so this time there is one to lock
+            log.debug("Offset for {}/{} created concurrently, retrying: {}", clientId, consumerName, e.getMessage());
+            return transactionTemplate.execute(status -> commitLocked(clientId, consumerName, cursor));
+        }
+    }
+
+    private EventCursor commitLocked(final String clientId, final String consumerName, final EventCursor cursor) {
+        final var now = Timestamp.valueOf(LocalDateTime.now());
+        final var offset = eventConsumerOffsetsRepository.findForUpdate(clientId, consumerName)
+                .orElseGet(() -> EventConsumerOffset.builder()
+                        .clientId(clientId)
+                        .consumerName(consumerName)
+                        .createDatetime(now)
+                        .build());
+
+        if (offset.getEventDatetime() != null && !eventCursorOf(offset).isBefore(cursor)) {
+            return eventCursorOf(offset);
+        }
+
+        offset.setEventDatetime(Timestamp.valueOf(cursor.getEventDatetime()));
+        offset.setEventSource(cursor.getEventSource().name());
+        offset.setEventId(cursor.getEventId());
+        offset.setModifyDatetime(now);
+        // Flushed here, so a duplicate insert fails inside the transaction rather than at its commit
+        eventConsumerOffsetsRepository.saveAndFlush(offset);
+        return cursor;
+    }
+
+    private EventCursor eventCursorOf(final EventConsumerOffset offset) {
+        return EventCursor.builder()
+                .eventDatetime(offset.getEventDatetime().toLocalDateTime())
+                .eventSource(EventSource.valueOf(offset.getEventSource()))
+                .eventId(offset.getEventId())
+                .build();
+    }
+}
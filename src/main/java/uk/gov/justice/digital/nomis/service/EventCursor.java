@@ -0,0 +1,109 @@
+package uk.gov.justice.digital.nomis.service;
+
+import lombok.Builder;
+import lombok.Value;
+import org.springframework.data.domain.Sort;
+import uk.gov.justice.digital.nomis.api.EventSource;
+import uk.gov.justice.digital.nomis.api.OffenderEvent;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.Comparator;
+
+/**
+ * A position in the merged event feed. Events are totally ordered by (eventDatetime, source, eventId),
+ * which matches the order both sources are read from the database in, so a feed can be resumed
+ * from the last event a client saw without overlapping time windows.
+ */
+@Value
+@Builder
+public class EventCursor {
+
+    // Ids are unsigned integers (API_OFFENDER_EVENTS) or fixed width hex (XTAG MSGID), so
+    // comparing length first gives the same order as the database does.
+    private static final Comparator<String> BY_EVENT_ID = Comparator.comparing(String::length).thenComparing(Comparator.naturalOrder());
+
+    private static final Comparator<OffenderEvent> ASCENDING = Comparator
+            .comparing(OffenderEvent::getEventDatetime)
+            .thenComparing(OffenderEvent::getEventSource, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(OffenderEvent::getEventId, Comparator.nullsLast(BY_EVENT_ID));
+
+    private static final Comparator<OffenderEvent> DESCENDING = ASCENDING.reversed();
+
+    private static final String SEPARATOR = "|";
+
+    private LocalDateTime eventDatetime;
+    private EventSource eventSource;
+    private String eventId;
+
+    /**
+     * The position just before every event at {@code eventDatetime}, for resuming from a time rather than an event.
+     */
+    public static EventCursor before(final LocalDateTime eventDatetime) {
+        return EventCursor.builder()
+                .eventDatetime(eventDatetime)
+                .eventSource(EventSource.values()[0])
+                .eventId("")
+                .build();
+    }
+
+    public static EventCursor of(final OffenderEvent offenderEvent) {
+        return EventCursor.builder()
+                .eventDatetime(offenderEvent.getEventDatetime())
+                .eventSource(offenderEvent.getEventSource())
+                .eventId(offenderEvent.getEventId())
+                .build();
+    }
+
+    public static Comparator<OffenderEvent> orderOf(final Sort.Direction direction) {
+        return direction.isAscending() ? ASCENDING : DESCENDING;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the token was not produced by {@link #encode()}
+     */
+    public static EventCursor decode(final String token) {
+        try {
+            final var parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split("\\" + SEPARATOR, 3);
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Malformed event cursor " + token);
+            }
+            return EventCursor.builder()
+                    .eventDatetime(LocalDateTime.parse(parts[0]))
+                    .eventSource(EventSource.valueOf(parts[1]))
+                    .eventId(parts[2])
+                    .build();
+        } catch (final DateTimeParseException e) {
+            throw new IllegalArgumentException("Malformed event cursor " + token, e);
+        }
+    }
+
+    public String encode() {
+        final var raw = eventDatetime + SEPARATOR + eventSource.name() + SEPARATOR + eventId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * True if the event comes strictly after this position when read in the given direction.
+     */
+    public boolean precedes(final OffenderEvent offenderEvent, final Sort.Direction direction) {
+        return orderOf(direction).compare(asEvent(), offenderEvent) < 0;
+    }
+
+    /**
+     * True if this position comes strictly before {@code other} in ascending order.
+     */
+    public boolean isBefore(final EventCursor other) {
+        return ASCENDING.compare(asEvent(), other.asEvent()) < 0;
+    }
+
+    private OffenderEvent asEvent() {
+        return OffenderEvent.builder()
+                .eventDatetime(eventDatetime)
+                .eventSource(eventSource)
+                .eventId(eventId)
+                .build();
+    }
+}
@@ -0,0 +1,123 @@
+package uk.gov.justice.digital.nomis.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import uk.gov.justice.digital.nomis.jpa.filters.OffenderEventsFilter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serialised /events responses for windows that closed more than {@code events.response-cache.settle-delay} ago,
+ * and so will not change. Held gzipped, up to {@code events.response-cache.max-bytes} in all, least recently used
+ * first out.
+ */
+@Component
+public class EventResponseCache {
+
+    private final boolean enabled;
+    private final Duration settleDelay;
+    private final Cache<Key, CachedResponse> responses;
+
+    @Autowired
+    public EventResponseCache(final MeterRegistry meterRegistry,
+                              @Value("${events.response-cache.enabled:true}") final boolean enabled,
+                              @Value("${events.response-cache.settle-delay:PT10M}") final Duration settleDelay,
+                              @Value("${events.response-cache.max-bytes:67108864}") final Long maxBytes) {
+        this.enabled = enabled;
+        this.settleDelay = settleDelay;
+        this.responses = GuavaCacheMetrics.monitor(meterRegistry,
+                CacheBuilder.newBuilder()
+                        .maximumWeight(maxBytes)
+                        .weigher((Key key, CachedResponse response) -> response.getGzipped().length)
+                        .recordStats()
+                        .build(),
+                "events.responses");
+    }
+
+    /**
+     * Whether a response for a window ending at {@code to} may be cached.
+     */
+    public boolean isCacheable(final LocalDateTime to) {
+        return enabled && to.plus(settleDelay).isBefore(LocalDateTime.now());
+    }
+
+    /**
+     * The cached response for {@code key}, or the one {@code loader} makes, which is then kept. Nothing is kept
+     * if the loader has nothing.
+     */
+    public Optional<CachedResponse> get(final Key key, final Supplier<Optional<CachedResponse>> loader) {
+        final var cached = responses.getIfPresent(key);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        final var loaded = loader.get();
+        loaded.ifPresent(response -> responses.put(key, response));
+        return loaded;
+    }
+
+    /**
+     * Everything a response depends on: the normalised filter, with types upper-cased and fields if any, plus
+     * the paging and the representation.
+     */
+    @lombok.Value
+    public static class Key {
+        private OffenderEventsFilter filter;
+        private Optional<String> cursor;
+        private Optional<Integer> limit;
+        private String contentType;
+    }
+
+    @lombok.Value
+    public static class CachedResponse {
+        private byte[] gzipped;
+        private String etag;
+        private Optional<String> nextCursor;
+
+        /**
+         * The ETag is strong: a hash of the exact bytes.
+         */
+        public static CachedResponse of(final byte[] body, final Optional<String> nextCursor) {
+            return new CachedResponse(gzip(body), "\"" + Hashing.sha256().hashBytes(body).toString().substring(0, 32) + "\"", nextCursor);
+        }
+
+        /**
+         * The ETag of the gzipped body, which is a different representation of the same events.
+         */
+        public String getGzipEtag() {
+            return etag.substring(0, etag.length() - 1) + "-gzip\"";
+        }
+
+        public byte[] getBody() {
+            try (final var in = new GZIPInputStream(new ByteArrayInputStream(gzipped))) {
+                return in.readAllBytes();
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private static byte[] gzip(final byte[] body) {
+            final var out = new ByteArrayOutputStream(body.length / 4 + 64);
+            try (final var gzip = new GZIPOutputStream(out)) {
+                gzip.write(body);
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return out.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package uk.gov.justice.digital.nomis.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import uk.gov.justice.digital.nomis.api.EventCount;
+import uk.gov.justice.digital.nomis.api.EventStatistics;
+import uk.gov.justice.digital.nomis.api.OffenderEvent;
+import uk.gov.justice.digital.nomis.jpa.filters.OffenderEventsFilter;
+import uk.gov.justice.digital.nomis.jpa.repository.OffenderEventsRepository;
+import uk.gov.justice.digital.nomis.service.transformer.OffenderEventsTransformer;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Event counts, grouped by any of type, hour and agency, without reading the events themselves: API_OFFENDER_EVENTS
+ * are counted by the database, apart from case notes, and xtags are reduced to their type, mostly without decoding
+ * payloads. Xtags carry no agency, so are counted under none when grouping by it.
+ * <p>
+ * Counts are always taken per type and hour, and per agency if grouping by it, then rolled up. Hours that closed
+ * more than {@code events.stats.lag} ago will not change, so their counts are cached.
+ */
+@Service
+public class EventStatisticsService {
+
+    public enum GroupBy {
+        TYPE, HOUR, AGENCY
+    }
+
+    private final OffenderEventsRepository offenderEventsRepository;
+    private final OffenderEventsTransformer offenderEventsTransformer;
+    private final XtagEventsService xtagEventsService;
+    private final Duration lag;
+    private final Cache<ClosedHour, Map<Bucket, Long>> closedHours;
+
+    @Autowired
+    public EventStatisticsService(final OffenderEventsRepository offenderEventsRepository,
+                                  final OffenderEventsTransformer offenderEventsTransformer,
+                                  final XtagEventsService xtagEventsService,
+                                  final MeterRegistry meterRegistry,
+                                  @Value("${events.stats.lag:PT5M}") final Duration lag,
+                                  @Value("${events.stats.cache-size:20000}") final Long cacheSize) {
+        this.offenderEventsRepository = offenderEventsRepository;
+        this.offenderEventsTransformer = offenderEventsTransformer;
+        this.xtagEventsService = xtagEventsService;
+        this.lag = lag;
+        this.closedHours = GuavaCacheMetrics.monitor(meterRegistry,
+                CacheBuilder.newBuilder().maximumSize(cacheSize).recordStats().<ClosedHour, Map<Bucket, Long>>build(),
+                "events.stats");
+    }
+
+    public EventStatistics getStatistics(final LocalDateTime from, final LocalDateTime to, final Set<GroupBy> groupBy) {
+        final var withAgency = groupBy.contains(GroupBy.AGENCY);
+        final var counts = new HashMap<Bucket, Long>();
+
+        // Whole closed hours come from the cache, loaded a run of consecutive misses at a time;
+        // anything else (part hours at either end, and hours still open) is counted directly
+        final var missing = new ArrayList<LocalDateTime>();
+        for (var start = from; !start.isAfter(to); start = start.truncatedTo(ChronoUnit.HOURS).plusHours(1L)) {
+            final var hour = start.truncatedTo(ChronoUnit.HOURS);
+            final var end = endOf(hour).isAfter(to) ? to : endOf(hour);
+
+            if (!start.equals(hour) || !end.equals(endOf(hour)) || !isClosed(hour)) {
+                addAll(counts, count(start, end, withAgency));
+                continue;
+            }
+            final var cached = closedHours.getIfPresent(new ClosedHour(hour, withAgency));
+            if (cached != null) {
+                addAll(counts, cached);
+            } else {
+                missing.add(hour);
+            }
+        }
+        runsOf(missing).forEach(run -> addAll(counts, loadClosedHours(run, withAgency)));
+
+        final var rolledUp = counts.entrySet().stream().collect(Collectors.groupingBy(
+                entry -> entry.getKey().rollUp(groupBy),
+                Collectors.summingLong(Map.Entry::getValue)));
+
+        final var eventCounts = rolledUp.entrySet().stream()
+                .map(entry -> EventCount.builder()
+                        .eventType(entry.getKey().getEventType())
+                        .hour(entry.getKey().getHour())
+                        .agencyLocationId(entry.getKey().getAgencyLocationId())
+                        .count(entry.getValue())
+                        .build())
+                .sorted(Comparator.comparing(EventCount::getHour, Comparator.nullsFirst(Comparator.naturalOrder()))
+                        .thenComparing(EventCount::getEventType, Comparator.nullsFirst(Comparator.naturalOrder()))
+                        .thenComparing(EventCount::getAgencyLocationId, Comparator.nullsFirst(Comparator.naturalOrder())))
+                .collect(Collectors.toList());
+
+        return EventStatistics.builder()
+                .from(from)
+                .to(to)
+                .groupBy(groupBy.stream().sorted().map(g -> g.name().toLowerCase()).collect(Collectors.toList()))
+                .total(eventCounts.stream().mapToLong(EventCount::getCount).sum())
+                .counts(eventCounts)
+                .build();
+    }
+
+    private boolean isClosed(final LocalDateTime hour) {
+        return hour.plusHours(1L).plus(lag).isBefore(LocalDateTime.now());
+    }
+
+    private static LocalDateTime endOf(final LocalDateTime hour) {
+        return hour.plusHours(1L).minusNanos(1L);
+    }
+
+    private static List<List<LocalDateTime>> runsOf(final List<LocalDateTime> hours) {
+        final var runs = new ArrayList<List<LocalDateTime>>();
+        for (final var hour : hours) {
+            if (runs.isEmpty() || !last(runs.get(runs.size() - 1)).plusHours(1L).equals(hour)) {
+                runs.add(new ArrayList<>());
+            }
+            runs.get(runs.size() - 1).add(hour);
+        }
+        return runs;
+    }
+
+    private static <T> T last(final List<T> list) {
+        return list.get(list.size() - 1);
+    }
+
+    private Map<Bucket, Long> loadClosedHours(final List<LocalDateTime> run, final boolean withAgency) {
+        final var counts = count(run.get(0), endOf(last(run)), withAgency);
+        final var byHour = counts.entrySet().stream().collect(Collectors.groupingBy(
+                entry -> entry.getKey().getHour(),
+                Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue)));
+        // Empty hours are cached too, so quiet hours are not counted again
+        run.forEach(hour -> closedHours.put(new ClosedHour(hour, withAgency), Map.copyOf(byHour.getOrDefault(hour, Map.of()))));
+        return counts;
+    }
+
+    /**
+     * Counts per type and hour, and per agency if {@code withAgency}, of events from {@code from} to {@code to} inclusive.
+     */
+    Map<Bucket, Long> count(final LocalDateTime from, final LocalDateTime to, final boolean withAgency) {
+        final var counts = new HashMap<Bucket, Long>();
+
+        offenderEventsRepository.countByTypeHourAndAgency(Timestamp.valueOf(from), Timestamp.valueOf(to))
+                .forEach(summary -> counts.merge(new Bucket(summary.getEventType(), summary.getHourStart(), withAgency ? summary.getAgencyLocId() : null),
+                        summary.getCount(), Long::sum));
+
+        // Their API event type is in their event data, so they are read a row at a time rather than grouped in SQL
+        try (final var caseNotes = offenderEventsRepository.streamCaseNotes(from, to)) {
+            caseNotes.forEach(caseNote -> counts.merge(new Bucket(offenderEventsTransformer.caseNoteEventTypeOf(caseNote),
+                    caseNote.getEventTimestamp().toLocalDateTime().truncatedTo(ChronoUnit.HOURS),
+                    withAgency ? caseNote.getAgencyLocId() : null), 1L, Long::sum));
+        }
+
+        final var xtagFilter = OffenderEventsFilter.builder().from(from).to(to).build();
+        try (final var xtagEvents = xtagEventsService.streamSummaries(xtagFilter)) {
+            xtagEvents
+                    // The enqueue time window only approximates the event time one across clock changes
+                    .filter(oe -> !oe.getEventDatetime().isBefore(from) && !oe.getEventDatetime().isAfter(to))
+                    .forEach(oe -> counts.merge(bucketOf(oe), 1L, Long::sum));
+        }
+        return counts;
+    }
+
+    private static Bucket bucketOf(final OffenderEvent oe) {
+        return new Bucket(oe.getEventType(), oe.getEventDatetime().truncatedTo(ChronoUnit.HOURS), null);
+    }
+
+    private static void addAll(final Map<Bucket, Long> counts, final Map<Bucket, Long> more) {
+        more.forEach((bucket, count) -> counts.merge(bucket, count, Long::sum));
+    }
+
+    @lombok.Value
+    static class ClosedHour {
+        private LocalDateTime hour;
+        private boolean withAgency;
+    }
+
+    @lombok.Value
+    static class Bucket {
+        private String eventType;
+        private LocalDateTime hour;
+        private String agencyLocationId;
+
+        Bucket rollUp(final Set<GroupBy> groupBy) {
+            return new Bucket(groupBy.contains(GroupBy.TYPE) ? eventType : null,
+                    groupBy.contains(GroupBy.HOUR) ? hour : null,
+                    groupBy.contains(GroupBy.AGENCY) ? agencyLocationId : null);
+        }
+    }
+}
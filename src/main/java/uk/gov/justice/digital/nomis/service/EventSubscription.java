@@ -0,0 +1,175 @@
+package uk.gov.justice.digital.nomis.service;
+
+import org.springframework.data.domain.Sort;
+import uk.gov.justice.digital.nomis.api.OffenderEvent;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * One consumer of the live event feed: its filters, and a bounded buffer of matching events waiting to be
+ * delivered. {@link EventTailer} offers events without blocking; delivery to the consumer happens on the
+ * stream executor, one {@link Listener} call at a time per subscription.
+ */
+public class EventSubscription {
+
+    public enum OverflowPolicy {
+        /** Discard the oldest buffered event to make room, and carry on */
+        DROP_OLDEST,
+        /** Close the subscription; the consumer can reconnect from the last event it saw */
+        DISCONNECT
+    }
+
+    /**
+     * Called on the stream executor, never concurrently for the same subscription.
+     */
+    public interface Listener {
+        void onAvailable(EventSubscription subscription);
+
+        default void onHeartbeat(final EventSubscription subscription) {
+        }
+    }
+
+    private final Set<String> typeFilter;
+    private final Optional<Long> maybeOffenderId;
+    private final int capacity;
+    private final OverflowPolicy overflowPolicy;
+    private final Listener listener;
+
+    private final Deque<OffenderEvent> buffer = new ArrayDeque<>();
+    private final AtomicBoolean signalled = new AtomicBoolean();
+    private final Object deliveryLock = new Object();
+    private long dropped;
+    private volatile boolean closed;
+
+    // Set when subscribing: where the subscription took up the feed, and how far a backfill replayed
+    private volatile EventCursor startedAfter;
+    private EventCursor backfilledTo;
+
+    EventSubscription(final Set<String> typeFilter, final Optional<Long> maybeOffenderId, final int capacity,
+                      final OverflowPolicy overflowPolicy, final Listener listener) {
+        this.typeFilter = typeFilter;
+        this.maybeOffenderId = maybeOffenderId;
+        this.capacity = capacity;
+        this.overflowPolicy = overflowPolicy;
+        this.listener = listener;
+    }
+
+    /**
+     * Same rules as the type and offender filters on /events.
+     */
+    public boolean matches(final OffenderEvent oe) {
+        return (typeFilter.isEmpty() || typeFilter.contains(oe.getEventType()))
+                && maybeOffenderId.map(id -> id.equals(oe.getOffenderId()) ||
+                id.equals(oe.getRootOffenderId()) ||
+                (id.equals(oe.getOwnerId()) && "OFF".equals(oe.getOwnerClass())))
+                .orElse(true);
+    }
+
+    /**
+     * Buffers a live event. Returns false if the buffer was full and the subscription has been closed.
+     */
+    synchronized boolean offer(final OffenderEvent oe) {
+        if (closed) {
+            return false;
+        }
+        // The backfill read the database up to the time it ran, which later polls read again
+        if (backfilledTo != null && !backfilledTo.precedes(oe, Sort.Direction.ASC)) {
+            return true;
+        }
+        if (buffer.size() >= capacity) {
+            if (overflowPolicy == OverflowPolicy.DISCONNECT) {
+                closed = true;
+                return false;
+            }
+            buffer.pollFirst();
+            dropped++;
+        }
+        buffer.addLast(oe);
+        return true;
+    }
+
+    /**
+     * Events the consumer missed before subscribing. Not bounded by the buffer capacity, as the
+     * tailer already caps how much it replays.
+     */
+    synchronized void replay(final Collection<OffenderEvent> events) {
+        buffer.addAll(events);
+    }
+
+    /**
+     * Live events at or before {@code position} are dropped, as a backfill has already replayed up to it.
+     */
+    synchronized void backfilledTo(final EventCursor position) {
+        backfilledTo = position;
+    }
+
+    void startedAfter(final EventCursor position) {
+        startedAfter = position;
+    }
+
+    /**
+     * The position in the feed just before the first event this subscription can be sent, so a consumer
+     * that was sent nothing can resume from there.
+     */
+    public EventCursor getStartedAfter() {
+        return startedAfter;
+    }
+
+    /**
+     * Takes up to {@code max} buffered events, oldest first.
+     */
+    public synchronized List<OffenderEvent> drain(final int max) {
+        final var events = new ArrayList<OffenderEvent>(Math.min(max, buffer.size()));
+        while (events.size() < max && !buffer.isEmpty()) {
+            events.add(buffer.pollFirst());
+        }
+        return events;
+    }
+
+    public synchronized boolean hasBuffered() {
+        return !buffer.isEmpty();
+    }
+
+    public synchronized long getDropped() {
+        return dropped;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    void close() {
+        closed = true;
+    }
+
+    /**
+     * Schedules a delivery unless one is already pending; a delivery in progress drains whatever
+     * arrives while it runs, so signals are never lost.
+     */
+    void signal(final Executor executor) {
+        if (signalled.compareAndSet(false, true)) {
+            executor.execute(() -> {
+                signalled.set(false);
+                synchronized (deliveryLock) {
+                    listener.onAvailable(this);
+                }
+            });
+        }
+    }
+
+    void heartbeat(final Executor executor) {
+        executor.execute(() -> {
+            synchronized (deliveryLock) {
+                listener.onHeartbeat(this);
+            }
+        });
+    }
+}
@@ -0,0 +1,319 @@
+package uk.gov.justice.digital.nomis.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import uk.gov.justice.digital.nomis.api.OffenderEvent;
+import uk.gov.justice.digital.nomis.controller.OffenderEventsController;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Tails both event sources for every live subscriber at once. Each poll reads the window from just before
+ * the previous poll's end (the shared high-watermark) up to now, so every new event is read and transformed
+ * once however many consumers there are, then offered to each subscriber whose filters it matches.
+ * <p>
+ * The window overlaps the previous one by {@code events.stream.lag}, to pick up events committed after
+ * their timestamp; events already published are recognised by source and id and skipped. Recently published
+ * events are kept so a consumer can resume from its last event; older positions are backfilled from the
+ * database a page at a time until the backfill reaches the published events. A backfill reads up to the time
+ * it runs, which the next poll reads again, so the subscription drops live events up to the last one it was
+ * backfilled. A backfill longer than {@code events.stream.max-backfill} is delivered and the subscription then
+ * closed, so the consumer reconnects from the last event it was sent and the backfill continues from there.
+ * With no subscribers for {@code events.stream.idle-timeout} the tailer stops polling and forgets its position.
+ */
+@Slf4j
+@Service
+public class EventTailer {
+
+    private final OffenderEventsService offenderEventsService;
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService streamExecutor;
+    private final Duration pollInterval;
+    private final Duration lag;
+    private final Duration heartbeatInterval;
+    private final Duration idleTimeout;
+    private final int bufferSize;
+    private final int maxBackfill;
+    private final EventSubscription.OverflowPolicy overflowPolicy;
+    private final Counter published;
+    private final Counter disconnected;
+
+    private final Set<EventSubscription> subscriptions = ConcurrentHashMap.newKeySet();
+
+    // Published events in publication order, keyed by source and id. Guarded by itself; publishing and
+    // subscribing both hold it, so a new subscriber sees each published event either in its replay or live,
+    // never both.
+    private final LinkedHashMap<String, OffenderEvent> history;
+    private OffenderEvent lastPublished;
+
+    // Only changed by the polling thread
+    private final Map<String, LocalDateTime> seen = new HashMap<>();
+    private volatile LocalDateTime watermark;
+
+    private volatile Instant lastActive = Instant.EPOCH;
+
+    @Autowired
+    public EventTailer(final OffenderEventsService offenderEventsService,
+                       @Qualifier("eventsStreamScheduler") final ScheduledExecutorService scheduler,
+                       @Qualifier("eventsStreamExecutor") final ExecutorService streamExecutor,
+                       final MeterRegistry meterRegistry,
+                       @Value("${events.stream.poll-interval:PT2S}") final Duration pollInterval,
+                       @Value("${events.stream.lag:PT1M}") final Duration lag,
+                       @Value("${events.stream.heartbeat:PT15S}") final Duration heartbeatInterval,
+                       @Value("${events.stream.idle-timeout:PT5M}") final Duration idleTimeout,
+                       @Value("${events.stream.history-size:10000}") final Integer historySize,
+                       @Value("${events.stream.buffer-size:1000}") final Integer bufferSize,
+                       @Value("${events.stream.max-backfill:100000}") final Integer maxBackfill,
+                       @Value("${events.stream.overflow:DISCONNECT}") final EventSubscription.OverflowPolicy overflowPolicy) {
+        this.offenderEventsService = offenderEventsService;
+        this.scheduler = scheduler;
+        this.streamExecutor = streamExecutor;
+        this.pollInterval = pollInterval;
+        this.lag = lag;
+        this.heartbeatInterval = heartbeatInterval;
+        this.idleTimeout = idleTimeout;
+        this.bufferSize = bufferSize;
+        this.maxBackfill = maxBackfill;
+        this.overflowPolicy = overflowPolicy;
+        this.history = new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, OffenderEvent> eldest) {
+                return size() > historySize;
+            }
+        };
+        this.published = meterRegistry.counter("events.stream.published");
+        this.disconnected = meterRegistry.counter("events.stream.disconnected");
+        meterRegistry.gaugeCollectionSize("events.stream.subscriptions", List.of(), subscriptions);
+    }
+
+    @PostConstruct
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::poll, pollInterval.toMillis(), pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+        scheduler.scheduleAtFixedRate(this::heartbeat, heartbeatInterval.toMillis(), heartbeatInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Subscribes to live events, first replaying anything after {@code maybeCursor}. Without a cursor only
+     * events published from now on are delivered.
+     */
+    public EventSubscription subscribe(final Optional<Set<String>> maybeTypeFilter,
+                                       final Optional<Long> maybeOffenderId,
+                                       final Optional<EventCursor> maybeCursor,
+                                       final EventSubscription.Listener listener) {
+        final var typeFilter = maybeTypeFilter
+                .map(types -> types.stream().map(String::toUpperCase).collect(Collectors.toSet()))
+                .orElse(Set.of());
+        final var subscription = new EventSubscription(typeFilter, maybeOffenderId, bufferSize, overflowPolicy, listener);
+
+        final var backfill = maybeCursor.filter(cursor -> !isInHistory(cursor))
+                .map(cursor -> backfillAfter(cursor, maybeTypeFilter))
+                .orElse(List.of());
+
+        if (backfill.size() >= maxBackfill) {
+            // Not caught up: send what there is and close, so the consumer resumes from the last of it
+            log.info("Backfill of {} events reached the limit, closing the subscription for the consumer to resume", backfill.size());
+            subscription.startedAfter(maybeCursor.get());
+            subscription.replay(backfill.stream().filter(subscription::matches).collect(Collectors.toList()));
+            subscription.close();
+            subscription.signal(streamExecutor);
+            return subscription;
+        }
+
+        synchronized (history) {
+            final var replay = new ArrayList<OffenderEvent>(backfill);
+            maybeCursor.ifPresent(cursor -> replay.addAll(historyAfter(cursor, backfill)));
+            if (!backfill.isEmpty()) {
+                subscription.backfilledTo(EventCursor.of(backfill.get(backfill.size() - 1)));
+            }
+            subscription.startedAfter(maybeCursor.orElseGet(this::head));
+            subscription.replay(replay.stream().filter(subscription::matches).collect(Collectors.toList()));
+            subscriptions.add(subscription);
+        }
+        lastActive = Instant.now();
+
+        if (subscription.hasBuffered()) {
+            subscription.signal(streamExecutor);
+        }
+        return subscription;
+    }
+
+    public void unsubscribe(final EventSubscription subscription) {
+        subscription.close();
+        if (subscriptions.remove(subscription)) {
+            lastActive = Instant.now();
+        }
+    }
+
+    void poll() {
+        try {
+            if (subscriptions.isEmpty() && lastActive.plus(idleTimeout).isBefore(Instant.now())) {
+                goIdle();
+                return;
+            }
+
+            final var to = LocalDateTime.now();
+            final var from = Optional.ofNullable(watermark).orElse(to).minus(lag);
+
+            final var events = offenderEventsService.getEvents(Optional.of(from), Optional.of(to), Optional.empty(),
+                    Optional.of(OffenderEventsController.SortTypes.TIMESTAMP_ASC))
+                    .orElse(List.of());
+
+            seen.values().removeIf(eventDatetime -> eventDatetime.isBefore(from));
+            final var fresh = events.stream()
+                    .filter(oe -> seen.putIfAbsent(keyOf(oe), oe.getEventDatetime()) == null)
+                    .collect(Collectors.toList());
+
+            watermark = to;
+            publish(fresh);
+        } catch (final RuntimeException e) {
+            // Leave the watermark where it was, so the next poll retries the same window
+            log.error("Failed to poll for live events: {}", e.getMessage(), e);
+        }
+    }
+
+    private void publish(final List<OffenderEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+
+        final var toSignal = new ArrayList<EventSubscription>();
+        final var overflowed = new ArrayList<EventSubscription>();
+
+        synchronized (history) {
+            for (final var oe : events) {
+                history.put(keyOf(oe), oe);
+                lastPublished = oe;
+                for (final var subscription : subscriptions) {
+                    if (subscription.matches(oe)) {
+                        (subscription.offer(oe) ? toSignal : overflowed).add(subscription);
+                    }
+                }
+            }
+        }
+        published.increment(events.size());
+
+        overflowed.stream().distinct().forEach(subscription -> {
+            log.warn("Disconnecting live event subscriber whose buffer of {} events is full", bufferSize);
+            disconnected.increment();
+            unsubscribe(subscription);
+            subscription.signal(streamExecutor);
+        });
+        toSignal.stream().distinct().forEach(subscription -> subscription.signal(streamExecutor));
+    }
+
+    private void heartbeat() {
+        try {
+            subscriptions.forEach(subscription -> subscription.heartbeat(streamExecutor));
+        } catch (final RuntimeException e) {
+            log.error("Failed to send heartbeats: {}", e.getMessage(), e);
+        }
+    }
+
+    private void goIdle() {
+        if (watermark != null) {
+            log.info("No live event subscribers for {}, pausing", idleTimeout);
+            watermark = null;
+            seen.clear();
+            // Nothing is read while idle, so history would have a gap in it
+            synchronized (history) {
+                history.clear();
+                lastPublished = null;
+            }
+        }
+    }
+
+    private boolean isInHistory(final EventCursor cursor) {
+        synchronized (history) {
+            return history.containsKey(keyOf(cursor));
+        }
+    }
+
+    /**
+     * Where a subscriber without a cursor takes up the feed: after the last event published, or if there is none
+     * since going idle, where the next poll starts reading. Callers hold the history lock.
+     */
+    private EventCursor head() {
+        if (lastPublished != null) {
+            return EventCursor.of(lastPublished);
+        }
+        final var polledTo = watermark;
+        return EventCursor.before(Optional.ofNullable(polledTo).orElse(LocalDateTime.now()).minus(lag));
+    }
+
+    // Callers hold the history lock
+    private List<OffenderEvent> historyAfter(final EventCursor cursor, final List<OffenderEvent> backfill) {
+        final var key = keyOf(cursor);
+        if (history.containsKey(key)) {
+            final var after = new ArrayList<OffenderEvent>();
+            var found = false;
+            for (final var entry : history.entrySet()) {
+                if (found) {
+                    after.add(entry.getValue());
+                }
+                found = found || entry.getKey().equals(key);
+            }
+            return after;
+        }
+
+        final var backfilled = backfill.stream().map(EventTailer::keyOf).collect(Collectors.toSet());
+        return history.entrySet().stream()
+                .filter(entry -> !backfilled.contains(entry.getKey()))
+                .map(Map.Entry::getValue)
+                .filter(oe -> cursor.precedes(oe, Sort.Direction.ASC))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Events after {@code cursor}, read a page at a time until a page comes back short, or ends on an event the
+     * tailer has published (history has everything after that), or {@code maxBackfill} events have been read.
+     */
+    private List<OffenderEvent> backfillAfter(final EventCursor cursor, final Optional<Set<String>> maybeTypeFilter) {
+        final var backfill = new ArrayList<OffenderEvent>();
+        var after = cursor;
+        while (backfill.size() < maxBackfill) {
+            final var pageSize = Math.min(bufferSize, maxBackfill - backfill.size());
+            final var page = offenderEventsService.getEvents(Optional.of(after.getEventDatetime()), Optional.of(LocalDateTime.now()), maybeTypeFilter,
+                    Optional.of(OffenderEventsController.SortTypes.TIMESTAMP_ASC), Optional.of(after), Optional.of(pageSize))
+                    .orElse(Collections.emptyList());
+            backfill.addAll(page);
+            if (page.size() < pageSize) {
+                break;
+            }
+            after = EventCursor.of(page.get(page.size() - 1));
+            if (isInHistory(after)) {
+                break;
+            }
+        }
+        return backfill;
+    }
+
+    private static String keyOf(final OffenderEvent oe) {
+        return oe.getEventSource() + "|" + oe.getEventId();
+    }
+
+    private static String keyOf(final EventCursor cursor) {
+        return cursor.getEventSource() + "|" + cursor.getEventId();
+    }
+}
@@ -0,0 +1,221 @@
+package uk.gov.justice.digital.nomis.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import uk.gov.justice.digital.nomis.api.OffenderEvent;
+import uk.gov.justice.digital.nomis.jpa.filters.OffenderEventsFilter;
+import uk.gov.justice.digital.nomis.jpa.repository.OffenderEventsRepository;
+import uk.gov.justice.digital.nomis.service.transformer.OffenderEventsTransformer;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A trailing window of transformed and enriched events from both sources, kept up to date in the background,
+ * so the usual queries about the last day or two are answered without touching the database.
+ * <p>
+ * Each source is read forward from its own high-watermark, re-reading {@code events.cache.lag} before it to
+ * pick up rows committed after their timestamp; events already held are recognised by their position in the
+ * feed. Events are held in a {@link ColumnarEventStore}, and whole hours older than the window are evicted
+ * as it moves on. A query is only answered from here if it starts inside the window and the last refresh was
+ * recent enough; anything else goes to the database. Queries reaching past the last refresh, as those up to
+ * now or the end of today do, are answered up to it, leaving the database only the few seconds after.
+ */
+@Slf4j
+@Component
+public class EventWindowCache {
+
+    private final OffenderEventsRepository offenderEventsRepository;
+    private final OffenderEventsTransformer offenderEventsTransformer;
+    private final XtagEventsService xtagEventsService;
+    private final ScheduledExecutorService scheduler;
+    private final boolean enabled;
+    private final Duration window;
+    private final Duration refreshInterval;
+    private final Duration lag;
+    private final Duration maxStaleness;
+    private final Duration loadChunk;
+    private final Counter hits;
+    private final Counter misses;
+
+    private final ColumnarEventStore events = new ColumnarEventStore();
+
+    // Null until the first full load completes
+    private volatile LocalDateTime coveredFrom;
+    private volatile Instant lastRefreshed = Instant.EPOCH;
+
+    // Only touched by the refresh thread, but read by the lag gauge
+    private volatile LocalDateTime offenderEventsWatermark;
+    private volatile LocalDateTime xtagEventsWatermark;
+
+    @Autowired
+    public EventWindowCache(final OffenderEventsRepository offenderEventsRepository,
+                            final OffenderEventsTransformer offenderEventsTransformer,
+                            final XtagEventsService xtagEventsService,
+                            @Qualifier("eventsCacheScheduler") final ScheduledExecutorService scheduler,
+                            final MeterRegistry meterRegistry,
+                            @Value("${events.cache.enabled:false}") final boolean enabled,
+                            @Value("${events.cache.window:PT72H}") final Duration window,
+                            @Value("${events.cache.refresh-interval:PT5S}") final Duration refreshInterval,
+                            @Value("${events.cache.lag:PT1M}") final Duration lag,
+                            @Value("${events.cache.max-staleness:PT30S}") final Duration maxStaleness,
+                            @Value("${events.cache.load-chunk:PT6H}") final Duration loadChunk) {
+        this.offenderEventsRepository = offenderEventsRepository;
+        this.offenderEventsTransformer = offenderEventsTransformer;
+        this.xtagEventsService = xtagEventsService;
+        this.scheduler = scheduler;
+        this.enabled = enabled;
+        this.window = window;
+        this.refreshInterval = refreshInterval;
+        this.lag = lag;
+        this.maxStaleness = maxStaleness;
+        this.loadChunk = loadChunk;
+        this.hits = meterRegistry.counter("events.cache.requests", "result", "hit");
+        this.misses = meterRegistry.counter("events.cache.requests", "result", "miss");
+        meterRegistry.gauge("events.cache.size", events, ColumnarEventStore::size);
+        meterRegistry.gauge("events.cache.lag.seconds", this, EventWindowCache::lagSeconds);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (enabled) {
+            scheduler.scheduleWithFixedDelay(this::refresh, 0L, refreshInterval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * The events matching the filter in its direction, as far as the window has read them, if it can answer
+     * the filter at all.
+     */
+    public Optional<CachedEvents> find(final OffenderEventsFilter oeFilter) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        final var from = oeFilter.getFrom().isBefore(oeFilter.getTo()) ? oeFilter.getFrom() : oeFilter.getTo();
+        final var to = oeFilter.getFrom().isBefore(oeFilter.getTo()) ? oeFilter.getTo() : oeFilter.getFrom();
+
+        final var maybeEnd = coveredTo(from);
+        if (maybeEnd.isEmpty()) {
+            misses.increment();
+            return Optional.empty();
+        }
+        hits.increment();
+
+        final var end = maybeEnd.get();
+        final var typeFilter = oeFilter.getTypes()
+                .map(types -> types.stream().map(String::toUpperCase).collect(Collectors.toSet()));
+        final var held = events.find(from, to.isAfter(end) ? end : to, oeFilter.getDirection(), typeFilter, oeFilter.getOffenderId());
+        final var rest = to.isAfter(end)
+                ? Optional.of(oeFilter.toBuilder().from(end.plusNanos(1L)).to(to).build())
+                : Optional.<OffenderEventsFilter>empty();
+
+        return Optional.of(new CachedEvents(held, rest));
+    }
+
+    /**
+     * How far both sources have been read into the window, if {@code from} is inside it and it was refreshed
+     * recently enough.
+     */
+    private Optional<LocalDateTime> coveredTo(final LocalDateTime from) {
+        final var start = coveredFrom;
+        final var offenderEventsEnd = offenderEventsWatermark;
+        final var xtagEventsEnd = xtagEventsWatermark;
+        if (start == null || offenderEventsEnd == null || xtagEventsEnd == null
+                || from.isBefore(start) || !lastRefreshed.plus(maxStaleness).isAfter(Instant.now())) {
+            return Optional.empty();
+        }
+        final var end = offenderEventsEnd.isBefore(xtagEventsEnd) ? offenderEventsEnd : xtagEventsEnd;
+        return from.isAfter(end) ? Optional.empty() : Optional.of(end);
+    }
+
+    void refresh() {
+        try {
+            final var now = LocalDateTime.now();
+            if (coveredFrom == null) {
+                load(now.minus(window), now);
+            } else {
+                offenderEventsWatermark = addOffenderEvents(offenderEventsWatermark.minus(lag), now);
+                xtagEventsWatermark = addXtagEvents(xtagEventsWatermark.minus(lag), now);
+            }
+            evictBefore(now.minus(window));
+            lastRefreshed = Instant.now();
+        } catch (final RuntimeException e) {
+            // Watermarks are left where they were, so the next refresh retries; queries go to the database meanwhile
+            log.error("Failed to refresh the events cache: {}", e.getMessage(), e);
+        }
+    }
+
+    private void load(final LocalDateTime from, final LocalDateTime to) {
+        log.info("Loading events cache from {} to {}", from, to);
+        for (var chunkFrom = from; chunkFrom.isBefore(to); chunkFrom = chunkFrom.plus(loadChunk)) {
+            final var chunkTo = chunkFrom.plus(loadChunk).isBefore(to) ? chunkFrom.plus(loadChunk) : to;
+            addOffenderEvents(chunkFrom, chunkTo);
+            addXtagEvents(chunkFrom, chunkTo);
+        }
+        offenderEventsWatermark = to;
+        xtagEventsWatermark = to;
+        coveredFrom = from;
+        log.info("Loaded {} events into the events cache", events.size());
+    }
+
+    private LocalDateTime addOffenderEvents(final LocalDateTime from, final LocalDateTime to) {
+        add(offenderEventsRepository.findAll(filterOf(from, to)).stream()
+                .map(offenderEventsTransformer::offenderEventOf)
+                .collect(Collectors.toList()));
+        return to;
+    }
+
+    private LocalDateTime addXtagEvents(final LocalDateTime from, final LocalDateTime to) {
+        add(xtagEventsService.findAll(filterOf(from, to)));
+        return to;
+    }
+
+    private void add(final Collection<OffenderEvent> loaded) {
+        events.add(loaded);
+    }
+
+    private void evictBefore(final LocalDateTime cutoff) {
+        events.evictBefore(cutoff);
+        if (coveredFrom != null && coveredFrom.isBefore(cutoff)) {
+            coveredFrom = cutoff;
+        }
+    }
+
+    private double lagSeconds() {
+        final var offenderEvents = offenderEventsWatermark;
+        final var xtagEvents = xtagEventsWatermark;
+        if (offenderEvents == null || xtagEvents == null) {
+            return Double.NaN;
+        }
+        final var oldest = offenderEvents.isBefore(xtagEvents) ? offenderEvents : xtagEvents;
+        return Duration.between(oldest, LocalDateTime.now()).toMillis() / 1000.0;
+    }
+
+    private static OffenderEventsFilter filterOf(final LocalDateTime from, final LocalDateTime to) {
+        return OffenderEventsFilter.builder().from(from).to(to).direction(Sort.Direction.ASC).build();
+    }
+
+    /**
+     * What the window holds of a query, and the filter for the rest of it, after the last refresh, if the
+     * query reaches that far. The rest starts a nanosecond after the held events end, so nothing is in both.
+     */
+    @lombok.Value
+    public static class CachedEvents {
+        private Stream<OffenderEvent> held;
+        private Optional<OffenderEventsFilter> rest;
+    }
+}
@@ -1,52 +1,200 @@
 package uk.gov.justice.digital.nomis.service;
 
-import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Range;
+import com.google.common.collect.Streams;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import uk.gov.justice.digital.nomis.api.EventTypeMapping;
+import uk.gov.justice.digital.nomis.api.FieldSelection;
 import uk.gov.justice.digital.nomis.api.OffenderEvent;
 import uk.gov.justice.digital.nomis.controller.OffenderEventsController;
 import uk.gov.justice.digital.nomis.jpa.filters.OffenderEventsFilter;
 import uk.gov.justice.digital.nomis.jpa.repository.OffenderEventsRepository;
 import uk.gov.justice.digital.nomis.service.transformer.OffenderEventsTransformer;
+import uk.gov.justice.digital.nomis.service.transformer.XtagEventRegistry;
 
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+/**
+ * Not transactional itself: each source is read on its own fetch thread, and the repositories and
+ * {@link XtagEventsService} manage their own read-only transactions and connections.
+ */
 @Service
-@Transactional(readOnly = true)
 public class OffenderEventsService {
 
-    private static final Comparator<uk.gov.justice.digital.nomis.api.OffenderEvent> BY_OFFENDER_EVENT_TIMESTAMP =
-            Comparator.comparing(uk.gov.justice.digital.nomis.api.OffenderEvent::getEventDatetime);
-
-    private static final Comparator<uk.gov.justice.digital.nomis.api.OffenderEvent> BY_OFFENDER_EVENT_TIMESTAMP_DESC = BY_OFFENDER_EVENT_TIMESTAMP.reversed();
-
     private final OffenderEventsTransformer offenderEventsTransformer;
     private final OffenderEventsRepository offenderEventsRepository;
     private final XtagEventsService xtagEventsService;
+    private final EventWindowCache eventWindowCache;
+    private final ExecutorService eventsFetchExecutor;
+    private final Duration fetchTimeout;
+    private final Duration splitThreshold;
+    private final Duration splitSize;
+    private final Integer splitParallelism;
 
     @Autowired
     public OffenderEventsService(final OffenderEventsTransformer offenderEventsTransformer,
                                  final OffenderEventsRepository offenderEventsRepository,
-                                 final XtagEventsService xtagEventsService) {
+                                 final XtagEventsService xtagEventsService,
+                                 final EventWindowCache eventWindowCache,
+                                 @Qualifier("eventsFetchExecutor") final ExecutorService eventsFetchExecutor,
+                                 @Value("${events.fetch.timeout:PT2M}") final Duration fetchTimeout,
+                                 @Value("${events.fetch.split-threshold:P1D}") final Duration splitThreshold,
+                                 @Value("${events.fetch.split-size:PT1H}") final Duration splitSize,
+                                 @Value("${events.fetch.split-parallelism:4}") final Integer splitParallelism) {
         this.offenderEventsTransformer = offenderEventsTransformer;
         this.offenderEventsRepository = offenderEventsRepository;
         this.xtagEventsService = xtagEventsService;
+        this.eventWindowCache = eventWindowCache;
+        this.eventsFetchExecutor = eventsFetchExecutor;
+        this.fetchTimeout = fetchTimeout;
+        this.splitThreshold = splitThreshold;
+        this.splitSize = splitSize;
+        this.splitParallelism = splitParallelism;
     }
 
     public Optional<List<OffenderEvent>> getEvents(final Optional<LocalDateTime> maybeFrom,
                                                    final Optional<LocalDateTime> maybeTo,
                                                    final Optional<Set<String>> maybeTypeFilter,
                                                    final Optional<OffenderEventsController.SortTypes> maybeSortBy) {
+        return getEvents(maybeFrom, maybeTo, maybeTypeFilter, maybeSortBy, Optional.empty(), Optional.empty());
+    }
+
+    public Optional<List<OffenderEvent>> getEvents(final Optional<LocalDateTime> maybeFrom,
+                                                   final Optional<LocalDateTime> maybeTo,
+                                                   final Optional<Set<String>> maybeTypeFilter,
+                                                   final Optional<OffenderEventsController.SortTypes> maybeSortBy,
+                                                   final Optional<EventCursor> maybeCursor,
+                                                   final Optional<Integer> maybeLimit) {
+        return getEvents(maybeFrom, maybeTo, maybeTypeFilter, maybeSortBy, maybeCursor, maybeLimit, Optional.empty());
+    }
+
+    /**
+     * Events strictly after {@code maybeCursor} in the requested order. With a limit, both sources are
+     * streamed and only read as far as is needed to fill the page. With {@code maybeFields}, work to fill
+     * properties that will not be written is skipped.
+     */
+    public Optional<List<OffenderEvent>> getEvents(final Optional<LocalDateTime> maybeFrom,
+                                                   final Optional<LocalDateTime> maybeTo,
+                                                   final Optional<Set<String>> maybeTypeFilter,
+                                                   final Optional<OffenderEventsController.SortTypes> maybeSortBy,
+                                                   final Optional<EventCursor> maybeCursor,
+                                                   final Optional<Integer> maybeLimit,
+                                                   final Optional<FieldSelection> maybeFields) {
+        final var direction = directionOf(maybeSortBy);
+
+        // The cursor narrows whichever end of the window the feed is being read from
+        final var cursorDatetime = maybeCursor.map(EventCursor::getEventDatetime);
+        final var effectiveFrom = direction.isAscending() ? laterOf(maybeFrom, cursorDatetime) : maybeFrom;
+        final var effectiveTo = direction.isAscending() ? maybeTo : earlierOf(maybeTo, cursorDatetime);
+
+        final var from = fromOrDefault(effectiveFrom, effectiveTo);
+        final var to = toOrDefault(effectiveTo, from);
+
+        final var oeFilter = OffenderEventsFilter.builder().from(from).to(to).types(maybeTypeFilter).direction(direction).fields(maybeFields).build();
+        final Predicate<OffenderEvent> afterCursor = oe -> maybeCursor.map(cursor -> cursor.precedes(oe, direction)).orElse(true);
+
+        final var cached = eventWindowCache.find(oeFilter);
+        if (cached.isPresent()) {
+            try (final var events = eventsOf(cached.get())) {
+                final var page = events.filter(afterCursor);
+                return Optional.of(maybeLimit.map(limit -> page.limit(limit)).orElse(page).collect(Collectors.toList()));
+            }
+        }
+
+        if (maybeLimit.isPresent()) {
+            try (final var events = streamOf(oeFilter)) {
+                return Optional.of(events.filter(afterCursor).limit(maybeLimit.get()).collect(Collectors.toList()));
+            }
+        }
+
+        return getFilteredOffenderEvents(oeFilter)
+                .map(events -> events.stream().filter(afterCursor).collect(Collectors.toList()));
+    }
+
+    /**
+     * Streams events straight off the database cursors, merging the two ordered sources as they are read.
+     * The returned stream holds open connections and must be closed by the caller.
+     */
+    public Stream<OffenderEvent> streamEvents(final Optional<LocalDateTime> maybeFrom,
+                                              final Optional<LocalDateTime> maybeTo,
+                                              final Optional<Set<String>> maybeTypeFilter,
+                                              final Optional<OffenderEventsController.SortTypes> maybeSortBy,
+                                              final Optional<FieldSelection> maybeFields) {
         final var from = fromOrDefault(maybeFrom, maybeTo);
         final var to = toOrDefault(maybeTo, from);
 
-        final var oeFilter = OffenderEventsFilter.builder().from(from).to(to).types(maybeTypeFilter).build();
-        return getFilteredOffenderEvents(oeFilter, maybeSortBy);
+        final var oeFilter = OffenderEventsFilter.builder().from(from).to(to).types(maybeTypeFilter).direction(directionOf(maybeSortBy)).fields(maybeFields).build();
+        return eventWindowCache.find(oeFilter).map(this::eventsOf).orElseGet(() -> streamOf(oeFilter));
+    }
+
+    /**
+     * The events the window holds, with the rest of the query after its last refresh read from the database,
+     * after them or, newest first, before them.
+     */
+    private Stream<OffenderEvent> eventsOf(final EventWindowCache.CachedEvents cached) {
+        return cached.getRest()
+                .map(rest -> rest.getDirection().isAscending()
+                        ? Stream.concat(cached.getHeld(), streamOf(rest))
+                        : Stream.concat(streamOf(rest), cached.getHeld()))
+                .orElse(cached.getHeld());
+    }
+
+    private Stream<OffenderEvent> streamOf(final OffenderEventsFilter oeFilter) {
+        final var offenderEvents = offenderEventsRepository.stream(oeFilter);
+        final Stream<OffenderEvent> xtagEvents;
+        try {
+            xtagEvents = xtagEventsService.stream(oeFilter);
+        } catch (final RuntimeException e) {
+            offenderEvents.close();
+            throw e;
+        }
+
+        final var typeFilter = typeFilterOf(oeFilter);
+
+        final var merged = Iterators.mergeSorted(List.of(
+                offenderEvents.map(offenderEventsTransformer::offenderEventOf).iterator(),
+                xtagEvents.filter(oe -> isOffenderRelated(oeFilter, oe)).iterator()),
+                EventCursor.orderOf(oeFilter.getDirection()));
+
+        return Streams.stream(merged)
+                .filter(oe -> typeFilter.isEmpty() || typeFilter.contains(oe.getEventType()))
+                .onClose(offenderEvents::close)
+                .onClose(xtagEvents::close);
+    }
+
+    private Optional<LocalDateTime> laterOf(final Optional<LocalDateTime> maybeFrom, final Optional<LocalDateTime> maybeCursorDatetime) {
+        return maybeCursorDatetime
+                .map(cursor -> maybeFrom.filter(from -> from.isAfter(cursor)).orElse(cursor))
+                .or(() -> maybeFrom);
+    }
+
+    private Optional<LocalDateTime> earlierOf(final Optional<LocalDateTime> maybeTo, final Optional<LocalDateTime> maybeCursorDatetime) {
+        return maybeCursorDatetime
+                .map(cursor -> maybeTo.filter(to -> to.isBefore(cursor)).orElse(cursor))
+                .or(() -> maybeTo);
     }
 
     private LocalDateTime toOrDefault(final Optional<LocalDateTime> maybeTo, final LocalDateTime from) {
@@ -57,6 +205,13 @@ public class OffenderEventsService {
         return maybeFrom.orElse(maybeTo.map(to -> to.minusDays(1)).orElse(LocalDate.now().atStartOfDay()));
     }
 
+    /**
+     * The xtag event types this service can translate, and which payload properties fill each event property.
+     */
+    public List<EventTypeMapping> getEventTypes() {
+        return XtagEventRegistry.catalogue();
+    }
+
     public Optional<List<OffenderEvent>> getEventsForOffenderId(final Long offenderId,
                                                                 final Optional<LocalDateTime> maybeFrom,
                                                                 final Optional<LocalDateTime> maybeTo,
@@ -65,40 +220,169 @@ public class OffenderEventsService {
         final var from = fromOrDefault(maybeFrom, maybeTo);
         final var to = toOrDefault(maybeTo, from);
 
-        final var offenderEventsFilter = OffenderEventsFilter.builder().from(from).to(to).types(maybeTypeFilter).offenderId(Optional.of(offenderId)).build();
-        return getFilteredOffenderEvents(offenderEventsFilter, maybeSortBy);
+        final var offenderEventsFilter = OffenderEventsFilter.builder().from(from).to(to).types(maybeTypeFilter).offenderId(Optional.of(offenderId)).direction(directionOf(maybeSortBy)).build();
+        final var cached = eventWindowCache.find(offenderEventsFilter);
+        if (cached.isPresent()) {
+            try (final var events = eventsOf(cached.get())) {
+                return Optional.of(events.collect(Collectors.toList()));
+            }
+        }
+        return getFilteredOffenderEvents(offenderEventsFilter);
     }
 
-    private Optional<List<OffenderEvent>> getFilteredOffenderEvents(final OffenderEventsFilter oeFilter, final Optional<OffenderEventsController.SortTypes> maybeSortBy) {
+    private Optional<List<OffenderEvent>> getFilteredOffenderEvents(final OffenderEventsFilter oeFilter) {
+        final var ranges = subRangesOf(oeFilter.getFrom(), oeFilter.getTo(), splitThreshold, splitSize);
+        if (ranges.size() > 1) {
+            return Optional.of(getChunkedEvents(oeFilter, ranges));
+        }
+
+        final var offenderEventsFuture = fetch("API_OFFENDER_EVENTS", () -> offenderEventsOf(oeFilter));
+        final var xtagEventsFuture = fetch("XTAG", () -> xtagEventsOf(oeFilter));
 
-        final var offenderEvents = Optional.ofNullable(offenderEventsRepository.findAll(oeFilter))
+        final var offenderEvents = resultOf(offenderEventsFuture, xtagEventsFuture);
+        final var xtagEvents = resultOf(xtagEventsFuture, offenderEventsFuture);
+
+        return Optional.of(mergedOf(oeFilter, offenderEvents, xtagEvents));
+    }
+
+    /**
+     * Reads each sub-range as its own task, both sources one after the other, with at most
+     * {@code events.fetch.split-parallelism} running at once. The sub-ranges are disjoint and taken in
+     * the filter's direction, so the ordered chunks only need joining end to end. Only this thread
+     * waits on the chunks, never a fetch thread, so a full pool cannot deadlock on itself.
+     */
+    private List<OffenderEvent> getChunkedEvents(final OffenderEventsFilter oeFilter, final List<Range<LocalDateTime>> ranges) {
+        final var ordered = oeFilter.getDirection().isAscending() ? ranges : Lists.reverse(ranges);
+        final var inFlight = new ArrayDeque<CompletableFuture<List<OffenderEvent>>>();
+        final var events = new ArrayList<OffenderEvent>();
+
+        var next = 0;
+        try {
+            while (next < ordered.size() || !inFlight.isEmpty()) {
+                while (next < ordered.size() && inFlight.size() < splitParallelism) {
+                    final var range = ordered.get(next++);
+                    final var chunkFilter = oeFilter.toBuilder().from(range.lowerEndpoint()).to(range.upperEndpoint()).build();
+                    inFlight.add(fetch("chunked", () -> mergedOf(chunkFilter, offenderEventsOf(chunkFilter), xtagEventsOf(chunkFilter))));
+                }
+                events.addAll(inFlight.remove().join());
+            }
+        } catch (final CompletionException e) {
+            inFlight.forEach(future -> future.cancel(true));
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+        return events;
+    }
+
+    /**
+     * Splits windows wider than {@code threshold} into consecutive closed ranges of {@code size}, rounded to whole
+     * hours. A range never ends where {@link XtagEventsService#asUtcPlusOne} jumps, or near the autumn clock change,
+     * so the xtag enqueue windows of the ranges still meet exactly and each range comes back in order on its own.
+     */
+    static List<Range<LocalDateTime>> subRangesOf(final LocalDateTime from, final LocalDateTime to,
+                                                  final Duration threshold, final Duration size) {
+        if (Duration.between(from, to).compareTo(threshold) <= 0) {
+            return List.of(Range.closed(from, to));
+        }
+        final var hours = Math.max(1L, size.toHours());
+        final var ranges = new ArrayList<Range<LocalDateTime>>();
+        var start = from;
+        for (var cut = from.truncatedTo(ChronoUnit.HOURS).plusHours(hours); cut.isBefore(to); cut = cut.plusHours(hours)) {
+            if (isSafeCut(cut)) {
+                ranges.add(Range.closed(start, cut.minusNanos(1L)));
+                start = cut;
+            }
+        }
+        ranges.add(Range.closed(start, to));
+        return ranges;
+    }
+
+    private static boolean isSafeCut(final LocalDateTime cut) {
+        final var xtagCut = XtagEventsService.asUtcPlusOne(cut);
+        return xtagCut.equals(XtagEventsService.asUtcPlusOne(cut.minusNanos(1L)).plusNanos(1L))
+                && !XtagEventsService.spansAutumnClockChange(OffenderEventsFilter.builder().from(xtagCut).to(xtagCut).build());
+    }
+
+    private List<OffenderEvent> offenderEventsOf(final OffenderEventsFilter oeFilter) {
+        return Optional.ofNullable(offenderEventsRepository.findAll(oeFilter))
                 .map(ev -> ev.stream()
                         .map(offenderEventsTransformer::offenderEventOf)
                         .collect(Collectors.toList()))
                 .orElse(Collections.emptyList());
+    }
 
-        final var xtagEvents = xtagEventsService.findAll(oeFilter)
+    private List<OffenderEvent> xtagEventsOf(final OffenderEventsFilter oeFilter) {
+        return xtagEventsService.findAll(oeFilter)
                 .stream()
                 .filter(oe -> isOffenderRelated(oeFilter, oe))
                 .collect(Collectors.toList());
+    }
 
-        final var typeFilter = oeFilter.getTypes()
-                .map(types -> types.stream().map(String::toUpperCase).collect(Collectors.toSet()))
-                .orElse(ImmutableSet.of());
+    private List<OffenderEvent> mergedOf(final OffenderEventsFilter oeFilter, final List<OffenderEvent> offenderEvents, final List<OffenderEvent> xtagEvents) {
+        final var typeFilter = typeFilterOf(oeFilter);
 
-        final List<OffenderEvent> allEvents = ImmutableList.<OffenderEvent>builder().addAll(offenderEvents).addAll(xtagEvents).build();
+        // Both sources come back ordered, so a linear merge replaces sorting the combined list
+        final var merged = Iterators.mergeSorted(List.of(offenderEvents.iterator(), xtagEvents.iterator()), EventCursor.orderOf(oeFilter.getDirection()));
 
-        return Optional.of(allEvents.stream()
+        return Streams.stream(merged)
                 .filter(oe -> typeFilter.isEmpty() || typeFilter.contains(oe.getEventType()))
-                .sorted(sortFunctionOf(maybeSortBy))
-                .collect(Collectors.toList()));
+                .collect(Collectors.toList());
+    }
 
+    /**
+     * Runs the query on a fetch thread. A full pool fails the returned future rather than throwing, so queries
+     * already started are cancelled like any other failure, and cancelling the future before its query has
+     * started stops it from running at all.
+     */
+    private CompletableFuture<List<OffenderEvent>> fetch(final String source, final Supplier<List<OffenderEvent>> query) {
+        final CompletableFuture<List<OffenderEvent>> queried;
+        try {
+            queried = CompletableFuture.supplyAsync(query, eventsFetchExecutor);
+        } catch (final RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        final var events = queried
+                .orTimeout(fetchTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                .exceptionally(e -> {
+                    final var cause = e instanceof CompletionException ? e.getCause() : e;
+                    if (cause instanceof TimeoutException) {
+                        throw new QueryTimeoutException(String.format("Fetching %s events timed out after %s", source, fetchTimeout));
+                    }
+                    throw e instanceof CompletionException ? (CompletionException) e : new CompletionException(e);
+                });
+        events.whenComplete((ignored, e) -> {
+            if (e instanceof CancellationException) {
+                queried.cancel(true);
+            }
+        });
+        return events;
+    }
+
+    private List<OffenderEvent> resultOf(final CompletableFuture<List<OffenderEvent>> future, final CompletableFuture<List<OffenderEvent>> sibling) {
+        try {
+            return future.join();
+        } catch (final CompletionException e) {
+            sibling.cancel(true);
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private Set<String> typeFilterOf(final OffenderEventsFilter oeFilter) {
+        return oeFilter.getTypes()
+                .map(types -> types.stream().map(String::toUpperCase).collect(Collectors.toSet()))
+                .orElse(ImmutableSet.of());
     }
 
-    private Comparator<? super OffenderEvent> sortFunctionOf(final Optional<OffenderEventsController.SortTypes> maybeSortBy) {
+    private Sort.Direction directionOf(final Optional<OffenderEventsController.SortTypes> maybeSortBy) {
         return maybeSortBy.filter(sortTypes -> sortTypes.equals(OffenderEventsController.SortTypes.TIMESTAMP_ASC))
-                .map(sortTypes -> BY_OFFENDER_EVENT_TIMESTAMP)
-                .orElse(BY_OFFENDER_EVENT_TIMESTAMP_DESC);
+                .map(sortTypes -> Sort.Direction.ASC)
+                .orElse(Sort.Direction.DESC);
     }
 
     private Boolean isOffenderRelated(final OffenderEventsFilter oeFilter, final OffenderEvent oe) {
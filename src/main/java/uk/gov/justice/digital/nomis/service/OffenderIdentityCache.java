@@ -0,0 +1,139 @@
+package uk.gov.justice.digital.nomis.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import uk.gov.justice.digital.nomis.jpa.projection.OffenderIdentity;
+import uk.gov.justice.digital.nomis.jpa.repository.OffenderBookingRepository;
+import uk.gov.justice.digital.nomis.jpa.repository.OffenderRepository;
+import uk.gov.justice.digital.nomis.utils.InLists;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Offender, booking and noms id mappings, which almost never change once created. Misses are loaded in
+ * chunked IN-list queries, so a batch of lookups costs at most a query per thousand unknown ids.
+ * <p>
+ * Ids found not to exist are remembered too, for {@code identity.cache.expire-misses-after-write}, so events
+ * for records since deleted don't cost a query on every poll. That is kept short, as a noms id may be asked
+ * for before the offender is created.
+ */
+@Component
+public class OffenderIdentityCache {
+
+    private final OffenderRepository offenderRepository;
+    private final OffenderBookingRepository offenderBookingRepository;
+
+    private final Cache<Long, OffenderIdentity> byOffenderId;
+    private final Cache<Long, OffenderIdentity> byBookingId;
+    private final Cache<String, OffenderIdentity> rootByNomsId;
+    private final Cache<Long, Boolean> missingOffenderIds;
+    private final Cache<Long, Boolean> missingBookingIds;
+    private final Cache<String, Boolean> missingNomsIds;
+
+    @Autowired
+    public OffenderIdentityCache(final OffenderRepository offenderRepository,
+                                 final OffenderBookingRepository offenderBookingRepository,
+                                 final MeterRegistry meterRegistry,
+                                 @Value("${identity.cache.maximum-size:200000}") final Long maximumSize,
+                                 @Value("${identity.cache.expire-after-write:PT12H}") final Duration expireAfterWrite,
+                                 @Value("${identity.cache.expire-misses-after-write:PT5M}") final Duration expireMissesAfterWrite) {
+        this.offenderRepository = offenderRepository;
+        this.offenderBookingRepository = offenderBookingRepository;
+        this.byOffenderId = GuavaCacheMetrics.monitor(meterRegistry, cacheOf(maximumSize, expireAfterWrite), "identity.offenderId");
+        this.byBookingId = GuavaCacheMetrics.monitor(meterRegistry, cacheOf(maximumSize, expireAfterWrite), "identity.bookingId");
+        this.rootByNomsId = GuavaCacheMetrics.monitor(meterRegistry, cacheOf(maximumSize, expireAfterWrite), "identity.nomsId");
+        this.missingOffenderIds = GuavaCacheMetrics.monitor(meterRegistry, cacheOf(maximumSize, expireMissesAfterWrite), "identity.offenderId.missing");
+        this.missingBookingIds = GuavaCacheMetrics.monitor(meterRegistry, cacheOf(maximumSize, expireMissesAfterWrite), "identity.bookingId.missing");
+        this.missingNomsIds = GuavaCacheMetrics.monitor(meterRegistry, cacheOf(maximumSize, expireMissesAfterWrite), "identity.nomsId.missing");
+    }
+
+    private static <K, V> Cache<K, V> cacheOf(final Long maximumSize, final Duration expireAfterWrite) {
+        return CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+    }
+
+    public Map<Long, OffenderIdentity> getByOffenderIds(final Collection<Long> offenderIds) {
+        return getAll(byOffenderId, missingOffenderIds, offenderIds, offenderRepository::findIdentitiesByOffenderIdIn, OffenderIdentity::getOffenderId);
+    }
+
+    public Map<Long, OffenderIdentity> getByBookingIds(final Collection<Long> bookingIds) {
+        return getAll(byBookingId, missingBookingIds, bookingIds, offenderBookingRepository::findIdentitiesByOffenderBookIdIn, OffenderIdentity::getBookingId);
+    }
+
+    /**
+     * The root offender record for a noms id.
+     */
+    public Optional<OffenderIdentity> getRootByNomsId(final String nomsId) {
+        final var cached = Optional.ofNullable(rootByNomsId.getIfPresent(nomsId));
+        if (cached.isPresent() || missingNomsIds.getIfPresent(nomsId) != null) {
+            return cached;
+        }
+
+        final var loaded = offenderRepository.findRootIdentitiesByOffenderIdDisplay(nomsId).stream().findFirst();
+        loaded.ifPresentOrElse(
+                identity -> rootByNomsId.put(nomsId, identity),
+                () -> missingNomsIds.put(nomsId, Boolean.TRUE));
+        return loaded;
+    }
+
+    /**
+     * Loads whatever is not already cached for a batch of offender and booking ids together, e.g. ahead of
+     * enriching a batch of events, and returns what was found.
+     */
+    public Identities preload(final Collection<Long> offenderIds, final Collection<Long> bookingIds) {
+        return new Identities(getByOffenderIds(offenderIds), getByBookingIds(bookingIds));
+    }
+
+    private <K> Map<K, OffenderIdentity> getAll(final Cache<K, OffenderIdentity> cache,
+                                                final Cache<K, Boolean> missingKeys,
+                                                final Collection<K> keys,
+                                                final Function<List<K>, List<OffenderIdentity>> query,
+                                                final Function<OffenderIdentity, K> keyOf) {
+        final Map<K, OffenderIdentity> identities = new HashMap<>(cache.getAllPresent(keys));
+
+        final var missing = keys.stream()
+                .filter(key -> !identities.containsKey(key))
+                .distinct()
+                .filter(key -> missingKeys.getIfPresent(key) == null)
+                .collect(Collectors.toList());
+
+        for (final var chunk : InLists.chunksOf(missing)) {
+            query.apply(chunk).forEach(identity -> {
+                final var key = keyOf.apply(identity);
+                identities.putIfAbsent(key, identity);
+                cache.put(key, identity);
+            });
+            chunk.stream()
+                    .filter(key -> !identities.containsKey(key))
+                    .forEach(key -> missingKeys.put(key, Boolean.TRUE));
+        }
+
+        return identities;
+    }
+
+    /**
+     * The identities found for a batch of offender and booking ids; ids that don't exist are left out.
+     */
+    @lombok.Value
+    public static class Identities {
+        public static final Identities NONE = new Identities(Map.of(), Map.of());
+
+        private Map<Long, OffenderIdentity> byOffenderId;
+        private Map<Long, OffenderIdentity> byBookingId;
+    }
+}
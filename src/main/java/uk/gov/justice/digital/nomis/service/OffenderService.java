@@ -1,5 +1,8 @@
 package uk.gov.justice.digital.nomis.service;
 
+import com.google.common.collect.HashBasedTable;
+import com.google.common.collect.SetMultimap;
+import com.google.common.collect.Table;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
@@ -7,21 +10,29 @@ import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import uk.gov.justice.digital.nomis.api.FieldSelection;
 import uk.gov.justice.digital.nomis.api.Offender;
 import uk.gov.justice.digital.nomis.api.OffenderActiveBooking;
 import uk.gov.justice.digital.nomis.jpa.entity.OffenderBooking;
 import uk.gov.justice.digital.nomis.jpa.entity.OffenderExternalMovement;
 import uk.gov.justice.digital.nomis.jpa.filters.OffenderBookingFilter;
+import uk.gov.justice.digital.nomis.jpa.projection.ExternalMovementSummary;
+import uk.gov.justice.digital.nomis.jpa.projection.OffenderIdentity;
 import uk.gov.justice.digital.nomis.jpa.repository.AgencyLocationsRepository;
 import uk.gov.justice.digital.nomis.jpa.repository.OffenderBookingRepository;
 import uk.gov.justice.digital.nomis.jpa.repository.OffenderExternalMovementsRepository;
 import uk.gov.justice.digital.nomis.jpa.repository.OffenderRepository;
 import uk.gov.justice.digital.nomis.service.transformer.OffenderActiveBookingTransformer;
 import uk.gov.justice.digital.nomis.service.transformer.OffenderTransformer;
+import uk.gov.justice.digital.nomis.utils.InLists;
 
 import javax.persistence.EntityNotFoundException;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
 
 @Service
 @Slf4j
@@ -34,15 +45,17 @@ public class OffenderService {
     private final OffenderExternalMovementsRepository offenderExtMovementRepository;
     private final OffenderTransformer offenderTransformer;
     private final OffenderActiveBookingTransformer offenderActiveBookingTransformer;
+    private final OffenderIdentityCache offenderIdentityCache;
 
     @Autowired
-    public OffenderService(final OffenderRepository offenderRepository, final AgencyLocationsRepository agencyLocationRepository, final OffenderBookingRepository offenderBookingRepository, OffenderExternalMovementsRepository offenderExtMovementRepository, final OffenderTransformer offenderTransformer, final OffenderActiveBookingTransformer offenderActiveBookingTransformer) {
+    public OffenderService(final OffenderRepository offenderRepository, final AgencyLocationsRepository agencyLocationRepository, final OffenderBookingRepository offenderBookingRepository, OffenderExternalMovementsRepository offenderExtMovementRepository, final OffenderTransformer offenderTransformer, final OffenderActiveBookingTransformer offenderActiveBookingTransformer, final OffenderIdentityCache offenderIdentityCache) {
         this.offenderRepository = offenderRepository;
         this.agencyLocationRepository = agencyLocationRepository;
         this.offenderBookingRepository = offenderBookingRepository;
         this.offenderExtMovementRepository = offenderExtMovementRepository;
         this.offenderTransformer = offenderTransformer;
         this.offenderActiveBookingTransformer = offenderActiveBookingTransformer;
+        this.offenderIdentityCache = offenderIdentityCache;
     }
 
     @Transactional
@@ -61,16 +74,27 @@ public class OffenderService {
 
     @Transactional
     public Optional<Offender> getOffenderByOffenderId(final Long offenderId) {
+        return getOffenderByOffenderId(offenderId, Optional.empty());
+    }
+
+    @Transactional
+    public Optional<Offender> getOffenderByOffenderId(final Long offenderId, final Optional<FieldSelection> maybeFields) {
         final var maybeOffender = offenderRepository.findById(offenderId);
 
-        return maybeOffender.map(offenderTransformer::offenderOf);
+        return maybeOffender.map(offender -> offenderTransformer.offenderOf(offender, maybeFields));
     }
 
     @Transactional
     public Optional<Offender> getOffenderByNomsId(final String nomsId) {
-        final var maybeOffender = offenderRepository.findByNomsId(nomsId);
+        return getOffenderByNomsId(nomsId, Optional.empty());
+    }
 
-        return maybeOffender.map(offenderTransformer::offenderOf);
+    @Transactional
+    public Optional<Offender> getOffenderByNomsId(final String nomsId, final Optional<FieldSelection> maybeFields) {
+        final var maybeOffender = offenderIdentityCache.getRootByNomsId(nomsId)
+                .flatMap(identity -> offenderRepository.findById(identity.getOffenderId()));
+
+        return maybeOffender.map(offender -> offenderTransformer.offenderOf(offender, maybeFields));
     }
 
     @Transactional
@@ -102,4 +126,28 @@ public class OffenderService {
     public Optional<OffenderExternalMovement> getExternalMovement(final Long bookingId, final Long movementSeq) {
         return offenderExtMovementRepository.findByOffenderBookIdAndMovementSeq(bookingId, movementSeq);
     }
+
+    public Optional<OffenderIdentity> getOffenderIdentityByNomsId(final String nomsId) {
+        return offenderIdentityCache.getRootByNomsId(nomsId);
+    }
+
+    public OffenderIdentityCache.Identities preloadOffenderIdentities(final Collection<Long> offenderIds, final Collection<Long> bookingIds) {
+        return offenderIdentityCache.preload(offenderIds, bookingIds);
+    }
+
+    /**
+     * External movements keyed by booking id and movement sequence, for the given movement sequences of each booking.
+     */
+    public Table<Long, Long, ExternalMovementSummary> getExternalMovementSummaries(final SetMultimap<Long, Long> movementSeqsByBookingId) {
+        final Table<Long, Long, ExternalMovementSummary> movements = HashBasedTable.create();
+        chunked(movementSeqsByBookingId.entries(), offenderExtMovementRepository::findSummariesByOffenderBookIdAndMovementSeqIn)
+                .forEach(movement -> movements.put(movement.getBookingId(), movement.getMovementSeq(), movement));
+        return movements;
+    }
+
+    private <K, T> List<T> chunked(final Collection<K> keys, final Function<List<K>, List<T>> query) {
+        return StreamSupport.stream(InLists.chunksOf(keys).spliterator(), false)
+                .flatMap(chunk -> query.apply(chunk).stream())
+                .collect(Collectors.toList());
+    }
 }
@@ -0,0 +1,139 @@
+package uk.gov.justice.digital.nomis.service;
+
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Streams;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import uk.gov.justice.digital.nomis.api.OffenderEvent;
+import uk.gov.justice.digital.nomis.jpa.entity.XtagEventNonJpa;
+import uk.gov.justice.digital.nomis.service.transformer.OffenderEventsTransformer;
+import uk.gov.justice.digital.nomis.service.transformer.RawXtag;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Decodes xtag rows in three stages. The calling thread drains the cursor, copying each row's type and payload
+ * out of its STRUCT, and hands them on in batches; the decode executor deserializes and transforms batches in
+ * parallel; and the calling thread takes the batches back in the order they were handed on, so events come
+ * out in the same enqueue time order as the rows. At most {@code max-in-flight} batches are held at once.
+ */
+@Component
+public class XtagDecodePipeline {
+
+    private final OffenderEventsTransformer offenderEventsTransformer;
+    private final ExecutorService decodeExecutor;
+    private final int batchSize;
+    private final int maxInFlight;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Timer extractTimer;
+    private final Timer decodeTimer;
+    private final Timer waitTimer;
+
+    @Autowired
+    public XtagDecodePipeline(final OffenderEventsTransformer offenderEventsTransformer,
+                              @Qualifier("xtagDecodeExecutor") final ExecutorService decodeExecutor,
+                              final MeterRegistry meterRegistry,
+                              @Value("${events.xtag.decode.batch-size:200}") final int batchSize,
+                              @Value("${events.xtag.decode.max-in-flight:8}") final int maxInFlight) {
+        this.offenderEventsTransformer = offenderEventsTransformer;
+        this.decodeExecutor = decodeExecutor;
+        this.batchSize = batchSize;
+        this.maxInFlight = maxInFlight;
+        meterRegistry.gauge("events.xtag.pipeline.in-flight", inFlight);
+        this.extractTimer = meterRegistry.timer("events.xtag.pipeline.stage", "stage", "extract");
+        this.decodeTimer = meterRegistry.timer("events.xtag.pipeline.stage", "stage", "decode");
+        this.waitTimer = meterRegistry.timer("events.xtag.pipeline.stage", "stage", "wait");
+    }
+
+    /**
+     * The events of {@code rows} of one of {@code maybeXtagTypes}, in row order. Rows are only read as the
+     * returned stream is consumed; closing it cancels any batches still decoding and closes {@code rows}.
+     */
+    public Stream<OffenderEvent> decode(final Stream<XtagEventNonJpa> rows, final Optional<Set<String>> maybeXtagTypes) {
+        final var batches = new OrderedBatches(rows.iterator(), maybeXtagTypes);
+        return Streams.stream(batches)
+                .flatMap(List::stream)
+                .filter(Objects::nonNull)
+                .onClose(batches::cancel)
+                .onClose(rows::close);
+    }
+
+    private class OrderedBatches implements Iterator<List<OffenderEvent>> {
+
+        private final Iterator<List<XtagEventNonJpa>> rowBatches;
+        private final Optional<Set<String>> maybeXtagTypes;
+        private final ArrayDeque<CompletableFuture<List<OffenderEvent>>> pending = new ArrayDeque<>();
+
+        private OrderedBatches(final Iterator<XtagEventNonJpa> rows, final Optional<Set<String>> maybeXtagTypes) {
+            this.rowBatches = Iterators.partition(rows, batchSize);
+            this.maybeXtagTypes = maybeXtagTypes;
+        }
+
+        @Override
+        public boolean hasNext() {
+            fill();
+            return !pending.isEmpty();
+        }
+
+        @Override
+        public List<OffenderEvent> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            final var head = pending.removeFirst();
+            try {
+                return waitTimer.record(head::join);
+            } catch (final CompletionException e) {
+                cancel();
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        }
+
+        private void fill() {
+            while (pending.size() < maxInFlight && rowBatches.hasNext()) {
+                final List<RawXtag> raws = extractTimer.record(() -> rawXtagsOf(rowBatches.next()));
+                pending.addLast(CompletableFuture.supplyAsync(() -> decodeTimer.record(() -> offenderEventsOf(raws)), decodeExecutor));
+                inFlight.incrementAndGet();
+            }
+        }
+
+        private List<RawXtag> rawXtagsOf(final List<XtagEventNonJpa> rows) {
+            final var raws = new ArrayList<RawXtag>(rows.size());
+            rows.stream()
+                    .map(offenderEventsTransformer::rawXtagOf)
+                    .filter(Objects::nonNull)
+                    .forEach(raws::add);
+            return raws;
+        }
+
+        private List<OffenderEvent> offenderEventsOf(final List<RawXtag> raws) {
+            final var events = new ArrayList<OffenderEvent>(raws.size());
+            raws.forEach(raw -> events.add(offenderEventsTransformer.offenderEventOf(raw, maybeXtagTypes)));
+            return events;
+        }
+
+        private void cancel() {
+            inFlight.addAndGet(-pending.size());
+            pending.forEach(batch -> batch.cancel(true));
+            pending.clear();
+        }
+    }
+}
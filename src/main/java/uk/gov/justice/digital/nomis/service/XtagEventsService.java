@@ -1,40 +1,150 @@
 package uk.gov.justice.digital.nomis.service;
 
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableTable;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.SetMultimap;
+import com.google.common.collect.Streams;
+import com.google.common.collect.Table;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
-import uk.gov.justice.digital.nomis.api.Offender;
 import uk.gov.justice.digital.nomis.api.OffenderEvent;
 import uk.gov.justice.digital.nomis.jpa.filters.OffenderEventsFilter;
+import uk.gov.justice.digital.nomis.jpa.projection.ExternalMovementSummary;
+import uk.gov.justice.digital.nomis.jpa.projection.OffenderIdentity;
 import uk.gov.justice.digital.nomis.jpa.repository.XtagEventsRepository;
 import uk.gov.justice.digital.nomis.service.transformer.OffenderEventsTransformer;
+import uk.gov.justice.digital.nomis.utils.NomisTime;
 
 import java.time.LocalDateTime;
-import java.time.ZoneId;
-import java.time.ZoneOffset;
 import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+/**
+ * Not transactional: rows are read off a cursor on a connection of its own (see
+ * {@link XtagEventsRepository#stream}), so a surrounding transaction would only hold a second pooled
+ * connection for the length of the read. Enrichment lookups run in {@link OffenderService}'s transactions.
+ */
 @Service
-@Transactional(readOnly = true)
 public class XtagEventsService {
 
+    private static final int ENRICHMENT_BATCH_SIZE = 500;
+
+    private static final Set<String> OFFENDER_ID_ENRICHED_TYPES = ImmutableSet.of(
+            "OFFENDER_DETAILS-CHANGED",
+            "OFFENDER_ALIAS-CHANGED",
+            "OFFENDER-UPDATED");
+
+    private static final Set<String> BOOKING_ID_ENRICHED_TYPES = ImmutableSet.of(
+            "BED_ASSIGNMENT_HISTORY-INSERTED",
+            "CONFIRMED_RELEASE_DATE-CHANGED",
+            "SENTENCE_DATES-CHANGED");
+
+    private static final String EXTERNAL_MOVEMENT_INSERTED = "EXTERNAL_MOVEMENT_RECORD-INSERTED";
+
+    // The properties addAdditionalEventData sets
+    private static final Set<String> ENRICHED_FIELDS = ImmutableSet.of(
+            "offenderIdDisplay",
+            "fromAgencyLocationId",
+            "toAgencyLocationId",
+            "directionCode",
+            "movementDateTime",
+            "movementType");
+
     private final XtagEventsRepository xtagEventsRepository;
     private final OffenderEventsTransformer offenderEventsTransformer;
     private final OffenderService offenderService;
+    private final XtagDecodePipeline xtagDecodePipeline;
 
     @Autowired
-    public XtagEventsService(final XtagEventsRepository xtagEventsRepository, final OffenderEventsTransformer offenderEventsTransformer, OffenderService offenderService) {
+    public XtagEventsService(final XtagEventsRepository xtagEventsRepository, final OffenderEventsTransformer offenderEventsTransformer, OffenderService offenderService, final XtagDecodePipeline xtagDecodePipeline) {
         this.xtagEventsRepository = xtagEventsRepository;
         this.offenderEventsTransformer = offenderEventsTransformer;
         this.offenderService = offenderService;
+        this.xtagDecodePipeline = xtagDecodePipeline;
     }
 
+    /**
+     * Events ordered by event timestamp in the filter's direction.
+     */
     public List<uk.gov.justice.digital.nomis.api.OffenderEvent> findAll(final OffenderEventsFilter oeFilter) {
-        return xtagEventsRepository.findAll(fudgedXtagFilterOf(oeFilter)).stream()
-                .map(offenderEventsTransformer::offenderEventOf)
-                .map(this::addAdditionalEventData)
-                .collect(Collectors.toList());
+        final var xtagFilter = fudgedXtagFilterOf(oeFilter);
+        final var xtagTypes = xtagEventTypesOf(oeFilter);
+        final List<OffenderEvent> events;
+        try (final var decoded = xtagDecodePipeline.decode(xtagEventsRepository.stream(xtagFilter), xtagTypes)) {
+            events = decoded.collect(Collectors.toList());
+        }
+
+        if (isEnriched(oeFilter)) {
+            addAdditionalEventData(events);
+        }
+
+        if (spansAutumnClockChange(xtagFilter)) {
+            events.sort(EventCursor.orderOf(oeFilter.getDirection()));
+        }
+        return events;
+    }
+
+    public Stream<uk.gov.justice.digital.nomis.api.OffenderEvent> stream(final OffenderEventsFilter oeFilter) {
+        final var xtagFilter = fudgedXtagFilterOf(oeFilter);
+        final var xtagTypes = xtagEventTypesOf(oeFilter);
+        final var decoded = xtagDecodePipeline.decode(xtagEventsRepository.stream(xtagFilter), xtagTypes);
+
+        final var events = isEnriched(oeFilter)
+                ? Streams.stream(Iterators.partition(decoded.iterator(), ENRICHMENT_BATCH_SIZE))
+                        .flatMap(batch -> addAdditionalEventData(batch).stream())
+                        .onClose(decoded::close)
+                : decoded;
+
+        return spansAutumnClockChange(xtagFilter) ? events.sorted(EventCursor.orderOf(oeFilter.getDirection())) : events;
+    }
+
+    /**
+     * Events reduced to type and timestamp, for counting. Payloads are decoded only where the type needs
+     * them (see {@link OffenderEventsTransformer#eventSummaryOf}) and nothing is enriched.
+     * The returned stream holds an open connection and must be closed by the caller.
+     */
+    public Stream<OffenderEvent> streamSummaries(final OffenderEventsFilter oeFilter) {
+        final var xtagFilter = fudgedXtagFilterOf(oeFilter);
+        return xtagEventsRepository.stream(xtagFilter)
+                .map(offenderEventsTransformer::eventSummaryOf)
+                .filter(Objects::nonNull);
+    }
+
+    /**
+     * Rows come back in enqueue time order, which the fudged event timestamp follows except across the
+     * autumn clock change, where an hour of enqueue times maps back onto the hour before it.
+     */
+    static boolean spansAutumnClockChange(final OffenderEventsFilter xtagFilter) {
+        final var rules = NomisTime.LONDON.getRules();
+        final var windowEnd = xtagFilter.getTo().plusHours(1L);
+        var transition = rules.nextTransition(xtagFilter.getFrom().minusHours(1L).atZone(NomisTime.LONDON).toInstant());
+        while (transition != null && transition.getDateTimeBefore().isBefore(windowEnd)) {
+            if (transition.isOverlap()) {
+                return true;
+            }
+            transition = rules.nextTransition(transition.getInstant());
+        }
+        return false;
+    }
+
+    /**
+     * Enrichment costs a lookup per batch, so is skipped when none of the fields it sets will be written.
+     */
+    private static boolean isEnriched(final OffenderEventsFilter oeFilter) {
+        return oeFilter.getFields().map(fields -> fields.includesAny(ENRICHED_FIELDS)).orElse(true);
+    }
+
+    private Optional<Set<String>> xtagEventTypesOf(final OffenderEventsFilter oeFilter) {
+        return oeFilter.getTypes()
+                .map(types -> types.stream().map(String::toUpperCase).collect(Collectors.toSet()))
+                .map(OffenderEventsTransformer::xtagEventTypesOf);
     }
 
     private OffenderEventsFilter fudgedXtagFilterOf(final OffenderEventsFilter oeFilter) {
@@ -48,43 +158,58 @@ public class XtagEventsService {
     }
 
     public static LocalDateTime asUtcPlusOne(final LocalDateTime localDateTime) {
-        if (ZoneId.of("Europe/London").getRules().isDaylightSavings(localDateTime.toInstant(ZoneOffset.UTC))) {
+        if (NomisTime.isBritishSummerTimeAtUtc(localDateTime)) {
             return localDateTime;
         }
         return localDateTime.plusHours(1L);
     }
 
 
-    private OffenderEvent addAdditionalEventData(final OffenderEvent oe) {
-        switch (oe.getEventType()) {
-            case "OFFENDER_DETAILS-CHANGED":
-            case "OFFENDER_ALIAS-CHANGED":
-            case "OFFENDER-UPDATED": {
-                final var nomsId = offenderService.getOffenderByOffenderId(oe.getOffenderId()).map(Offender::getNomsId)
-                        .orElse(null);
-                oe.setOffenderIdDisplay(nomsId);
-                break;
-            }
-            case "BED_ASSIGNMENT_HISTORY-INSERTED":
-            case "CONFIRMED_RELEASE_DATE-CHANGED":
-            case "SENTENCE_DATES-CHANGED": {
-                final var nomsId = offenderService.getOffenderByBookingId(oe.getBookingId()).map(Offender::getNomsId)
-                        .orElse(null);
-                oe.setOffenderIdDisplay(nomsId);
-                break;
-            }
-            case "EXTERNAL_MOVEMENT_RECORD-INSERTED":
-                offenderService.getExternalMovement(oe.getBookingId(), oe.getMovementSeq()).ifPresent(em -> {
-                    final var offenderBooking = em.getId().getOffenderBooking();
-                    oe.setOffenderIdDisplay(offenderBooking.getOffender().getOffenderIdDisplay());
+    /**
+     * Looks up the extra data some event types carry for the whole batch at once, then sets it on each event.
+     * Identities are preloaded into {@link OffenderIdentityCache} a batch at a time, so only ids it has not
+     * seen cost a query.
+     */
+    private List<OffenderEvent> addAdditionalEventData(final List<OffenderEvent> events) {
+        final var offenderIds = idsOf(events, OFFENDER_ID_ENRICHED_TYPES, OffenderEvent::getOffenderId);
+        final var bookingIds = idsOf(events, BOOKING_ID_ENRICHED_TYPES, OffenderEvent::getBookingId);
+        final SetMultimap<Long, Long> movementSeqsByBookingId = HashMultimap.create();
+        events.stream()
+                .filter(oe -> EXTERNAL_MOVEMENT_INSERTED.equals(oe.getEventType()))
+                .filter(oe -> oe.getBookingId() != null && oe.getMovementSeq() != null)
+                .forEach(oe -> movementSeqsByBookingId.put(oe.getBookingId(), oe.getMovementSeq()));
+
+        final var identities = offenderIds.isEmpty() && bookingIds.isEmpty()
+                ? OffenderIdentityCache.Identities.NONE
+                : offenderService.preloadOffenderIdentities(offenderIds, bookingIds);
+        final var byOffenderId = identities.getByOffenderId();
+        final var byBookingId = identities.getByBookingId();
+        final Table<Long, Long, ExternalMovementSummary> movements = movementSeqsByBookingId.isEmpty() ? ImmutableTable.of() : offenderService.getExternalMovementSummaries(movementSeqsByBookingId);
+
+        events.forEach(oe -> {
+            if (OFFENDER_ID_ENRICHED_TYPES.contains(oe.getEventType())) {
+                oe.setOffenderIdDisplay(Optional.ofNullable(oe.getOffenderId()).map(byOffenderId::get).map(OffenderIdentity::getNomsId).orElse(null));
+            } else if (BOOKING_ID_ENRICHED_TYPES.contains(oe.getEventType())) {
+                oe.setOffenderIdDisplay(Optional.ofNullable(oe.getBookingId()).map(byBookingId::get).map(OffenderIdentity::getNomsId).orElse(null));
+            } else if (EXTERNAL_MOVEMENT_INSERTED.equals(oe.getEventType()) && oe.getBookingId() != null && oe.getMovementSeq() != null) {
+                Optional.ofNullable(movements.get(oe.getBookingId(), oe.getMovementSeq())).ifPresent(em -> {
+                    oe.setOffenderIdDisplay(em.getNomsId());
                     oe.setFromAgencyLocationId(em.getFromAgyLocId());
                     oe.setToAgencyLocationId(em.getToAgyLocId());
                     oe.setDirectionCode(em.getDirectionCode());
                     oe.setMovementDateTime(em.getMovementTime() != null ? em.getMovementTime().toLocalDateTime() : null);
-                    oe.setMovementType(em.getMovementReason() != null ? em.getMovementReason().getMovementType() : null);
+                    oe.setMovementType(em.getMovementType());
                 });
-                break;
-        }
-        return oe;
+            }
+        });
+        return events;
+    }
+
+    private Set<Long> idsOf(final List<OffenderEvent> events, final Set<String> eventTypes, final Function<OffenderEvent, Long> id) {
+        return events.stream()
+                .filter(oe -> eventTypes.contains(oe.getEventType()))
+                .map(id)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
     }
 }
@@ -0,0 +1,159 @@
+package uk.gov.justice.digital.nomis.service.transformer;
+
+import lombok.Value;
+
+/**
+ * The type code, sub type code and case note id of a CASE_NOTE event, read in one pass over the
+ * event data segments without joining them.
+ * <p>
+ * Each value is found the way the original lookbehind patterns found it: the first run of word characters
+ * that starts within four characters after a {@code code} (or {@code id}) keyword, which itself starts
+ * within four characters after a {@code type} (or {@code sub_type}, {@code case_note}) keyword,
+ * with keywords starting on a word boundary and no line terminator in either gap.
+ */
+@Value
+public class CaseNoteEventData {
+
+    private static final int MAX_GAP = 4;
+    private static final int NONE = Integer.MIN_VALUE;
+
+    private String typeCode;
+    private String subTypeCode;
+    private String caseNoteId;
+
+    /**
+     * Segments are read as {@link uk.gov.justice.digital.nomis.jpa.entity.OffenderEvent#getEventData()} joins them.
+     */
+    public static CaseNoteEventData of(final String eventData1, final String eventData2, final String eventData3) {
+        final var scanner = new Scanner(String.valueOf(eventData1), nullToEmpty(eventData2), nullToEmpty(eventData3));
+        final var type = new Field("type", "code");
+        final var subType = new Field("sub_type", "code");
+        final var caseNoteId = new Field("case_note", "id");
+
+        scanner.scan(type, subType, caseNoteId);
+
+        return new CaseNoteEventData(type.value, subType.value, caseNoteId.value);
+    }
+
+    private static String nullToEmpty(final String s) {
+        return s == null ? "" : s;
+    }
+
+    private static final class Field {
+        private final String keyword;
+        private final String valueKeyword;
+        private int keywordEnd = NONE;
+        private int valueKeywordEnd = NONE;
+        private String value;
+
+        private Field(final String keyword, final String valueKeyword) {
+            this.keyword = keyword;
+            this.valueKeyword = valueKeyword;
+        }
+    }
+
+    private static final class Scanner {
+        private final String first;
+        private final String second;
+        private final String third;
+        private final int firstEnd;
+        private final int secondEnd;
+        private final int length;
+
+        private Scanner(final String first, final String second, final String third) {
+            this.first = first;
+            this.second = second;
+            this.third = third;
+            this.firstEnd = first.length();
+            this.secondEnd = firstEnd + second.length();
+            this.length = secondEnd + third.length();
+        }
+
+        private void scan(final Field... fields) {
+            var remaining = fields.length;
+            var lastLineTerminator = -1;
+
+            for (var i = 0; i < length && remaining > 0; i++) {
+                final var c = charAt(i);
+                if (isLineTerminator(c)) {
+                    lastLineTerminator = i;
+                    continue;
+                }
+
+                for (final var field : fields) {
+                    if (field.value == null && isValueChar(c) && follows(field.valueKeywordEnd, i, lastLineTerminator)) {
+                        field.value = valueFrom(i);
+                        remaining--;
+                    }
+                }
+
+                if (i == 0 || !isBoundaryWordChar(charAt(i - 1))) {
+                    for (final var field : fields) {
+                        if (field.value != null) {
+                            continue;
+                        }
+                        if (startsWith(i, field.keyword)) {
+                            field.keywordEnd = i + field.keyword.length();
+                        }
+                        if (startsWith(i, field.valueKeyword) && follows(field.keywordEnd, i, lastLineTerminator)) {
+                            field.valueKeywordEnd = i + field.valueKeyword.length();
+                        }
+                    }
+                }
+            }
+        }
+
+        private static boolean follows(final int end, final int i, final int lastLineTerminator) {
+            return end != NONE && i >= end && i - end <= MAX_GAP && lastLineTerminator < end;
+        }
+
+        private String valueFrom(final int start) {
+            var end = start;
+            while (end < length && isValueChar(charAt(end))) {
+                end++;
+            }
+            final var value = new StringBuilder(end - start);
+            for (var i = start; i < end; i++) {
+                value.append(charAt(i));
+            }
+            return value.toString();
+        }
+
+        private boolean startsWith(final int start, final String keyword) {
+            if (start + keyword.length() > length) {
+                return false;
+            }
+            for (var k = 0; k < keyword.length(); k++) {
+                if (charAt(start + k) != keyword.charAt(k)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private char charAt(final int i) {
+            if (i < firstEnd) {
+                return first.charAt(i);
+            }
+            if (i < secondEnd) {
+                return second.charAt(i - firstEnd);
+            }
+            return third.charAt(i - secondEnd);
+        }
+
+        // \w
+        private static boolean isValueChar(final char c) {
+            return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+        }
+
+        // What \b treats as a word character
+        private static boolean isBoundaryWordChar(final char c) {
+            return c == '_' || Character.isLetterOrDigit(c);
+        }
+
+        // What . does not match
+        private static boolean isLineTerminator(final char c) {
+            return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+        }
+    }
+}
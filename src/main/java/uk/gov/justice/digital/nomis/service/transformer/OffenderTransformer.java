@@ -4,6 +4,7 @@ import com.google.common.collect.ImmutableList;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import uk.gov.justice.digital.nomis.api.Booking;
+import uk.gov.justice.digital.nomis.api.FieldSelection;
 import uk.gov.justice.digital.nomis.api.Identifier;
 import uk.gov.justice.digital.nomis.api.KeyValue;
 import uk.gov.justice.digital.nomis.api.OffenderAlias;
@@ -15,6 +16,7 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -127,18 +129,26 @@ public class OffenderTransformer {
     }
 
     public uk.gov.justice.digital.nomis.api.Offender offenderOf(final uk.gov.justice.digital.nomis.jpa.entity.Offender offender) {
+        return offenderOf(offender, Optional.empty());
+    }
+
+    /**
+     * Only loads the bookings, identifiers and aliases, and looks up gender and ethnicity, if they are among {@code maybeFields}.
+     */
+    public uk.gov.justice.digital.nomis.api.Offender offenderOf(final uk.gov.justice.digital.nomis.jpa.entity.Offender offender, final Optional<FieldSelection> maybeFields) {
+        final Predicate<String> wanted = field -> maybeFields.map(fields -> fields.includes(field)).orElse(true);
         return uk.gov.justice.digital.nomis.api.Offender.builder()
                 .dateOfBirth(offender.getBirthDate().toLocalDateTime().toLocalDate())
                 .firstName(offender.getFirstName())
                 .middleNames(combinedMiddlenamesOf(offender))
                 .surname(offender.getLastName())
-                .bookings(bookingsOf(offender.getOffenderBookings()))
-                .identifiers(identifiersOf(offender.getOffenderIdentifiers()))
+                .bookings(wanted.test("bookings") ? bookingsOf(offender.getOffenderBookings()) : null)
+                .identifiers(wanted.test("identifiers") ? identifiersOf(offender.getOffenderIdentifiers()) : null)
                 .offenderId(offender.getOffenderId())
-                .aliases(aliasesOf(offender.getOffenderAliases()))
+                .aliases(wanted.test("aliases") ? aliasesOf(offender.getOffenderAliases()) : null)
                 .nomsId(offender.getOffenderIdDisplay())
-                .gender(genderOf(offender))
-                .ethnicity(ethnicityOf(offender))
+                .gender(wanted.test("gender") ? genderOf(offender) : null)
+                .ethnicity(wanted.test("ethnicity") ? ethnicityOf(offender) : null)
                 .build();
     }
 
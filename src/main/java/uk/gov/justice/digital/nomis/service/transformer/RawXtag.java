@@ -0,0 +1,17 @@
+package uk.gov.justice.digital.nomis.service.transformer;
+
+import lombok.Value;
+
+import java.sql.Timestamp;
+
+/**
+ * What the transform needs of an xtag row, copied out of its Oracle STRUCT while the cursor is still on it:
+ * the raw event type and the undecoded payload. Needs no connection, so can be decoded on any thread.
+ */
+@Value
+public class RawXtag {
+    private String msgId;
+    private Timestamp enqTime;
+    private String type;
+    private byte[] payload;
+}
@@ -0,0 +1,51 @@
+package uk.gov.justice.digital.nomis.service.transformer;
+
+import lombok.Value;
+import uk.gov.justice.digital.nomis.api.OffenderEvent;
+import uk.gov.justice.digital.nomis.xtag.Xtag;
+import uk.gov.justice.digital.nomis.xtag.XtagContent;
+
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * Builds one API event type from an xtag, copying a declared set of {@link XtagContent} fields onto it.
+ */
+@Value
+public class XtagEventMapper {
+
+    private String eventType;
+    private boolean withNomisEventType;
+    private List<FieldMapping> fields;
+
+    public static XtagEventMapper of(final String eventType, final FieldMapping... fields) {
+        return new XtagEventMapper(eventType, true, List.of(fields));
+    }
+
+    public OffenderEvent offenderEventOf(final Xtag xtag) {
+        final var builder = OffenderEvent.builder()
+                .eventType(eventType)
+                .eventDatetime(xtag.getNomisTimestamp());
+        if (withNomisEventType) {
+            builder.nomisEventType(xtag.getEventType());
+        }
+        for (final var field : fields) {
+            field.getCopy().accept(xtag.getContent(), builder);
+        }
+        return builder.build();
+    }
+
+    /**
+     * One {@link OffenderEvent} property and the {@link XtagContent} properties it is read from.
+     */
+    @Value
+    public static class FieldMapping {
+        private String to;
+        private List<String> from;
+        private BiConsumer<XtagContent, OffenderEvent.OffenderEventBuilder> copy;
+
+        public static FieldMapping field(final String to, final List<String> from, final BiConsumer<XtagContent, OffenderEvent.OffenderEventBuilder> copy) {
+            return new FieldMapping(to, from, copy);
+        }
+    }
+}
@@ -0,0 +1,328 @@
+package uk.gov.justice.digital.nomis.service.transformer;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSetMultimap;
+import lombok.Value;
+import uk.gov.justice.digital.nomis.api.EventTypeMapping;
+import uk.gov.justice.digital.nomis.api.OffenderEvent;
+import uk.gov.justice.digital.nomis.xtag.Xtag;
+import uk.gov.justice.digital.nomis.xtag.XtagContent;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static uk.gov.justice.digital.nomis.service.transformer.XtagEventMapper.FieldMapping.field;
+
+/**
+ * Every raw xtag event type the transformer understands, with the mappers that can turn it into API events
+ * and how to choose between them. Raw types not registered pass through under their own name.
+ */
+public final class XtagEventRegistry {
+
+    private static final Map<String, String> INCIDENT_TABLE_MAP = Map.of(
+            "incident_cases", "CASES",
+            "incident_case_parties", "PARTIES",
+            "incident_case_requirements", "REQUIREMENTS",
+            "incident_case_responses", "RESPONSES"
+    );
+
+    private static final XtagEventMapper.FieldMapping OFFENDER_ID = field("offenderId", List.of("p_offender_id"), (c, e) -> e.offenderId(longOf(c.getP_offender_id())));
+    private static final XtagEventMapper.FieldMapping ROOT_OFFENDER_ID = field("rootOffenderId", List.of("p_root_offender_id"), (c, e) -> e.rootOffenderId(longOf(c.getP_root_offender_id())));
+    private static final XtagEventMapper.FieldMapping ALIAS_OFFENDER_ID = field("aliasOffenderId", List.of("p_alias_offender_id"), (c, e) -> e.aliasOffenderId(longOf(c.getP_alias_offender_id())));
+    private static final XtagEventMapper.FieldMapping PREVIOUS_OFFENDER_ID = field("previousOffenderId", List.of("p_old_offender_id"), (c, e) -> e.previousOffenderId(longOf(c.getP_old_offender_id())));
+    private static final XtagEventMapper.FieldMapping BOOKING_ID = field("bookingId", List.of("p_offender_book_id"), (c, e) -> e.bookingId(longOf(c.getP_offender_book_id())));
+    private static final XtagEventMapper.FieldMapping BOOKING_NUMBER = field("bookingNumber", List.of("p_new_prison_num"), (c, e) -> e.bookingNumber(c.getP_new_prison_num()));
+    private static final XtagEventMapper.FieldMapping PREVIOUS_BOOKING_NUMBER = field("previousBookingNumber", List.of("p_old_prison_num", "p_old_prision_num", "p_old_prison_number"),
+            (c, e) -> e.previousBookingNumber(Optional.ofNullable(c.getP_old_prison_num())
+                    .orElse(Optional.ofNullable(c.getP_old_prision_num())
+                            .orElse(c.getP_old_prison_number()))));
+
+    private static final XtagEventMapper.FieldMapping ALERT_SEQ = field("alertSeq", List.of("p_alert_seq"), (c, e) -> e.alertSeq(longOf(c.getP_alert_seq())));
+    private static final XtagEventMapper.FieldMapping ALERT_DATE_TIME = field("alertDateTime", List.of("p_alert_date", "p_alert_time"),
+            (c, e) -> e.alertDateTime(OffenderEventsTransformer.localDateTimeOf(c.getP_alert_date(), c.getP_alert_time())));
+    private static final XtagEventMapper.FieldMapping OLD_ALERT_DATE_TIME = field("alertDateTime", List.of("p_old_alert_date", "p_old_alert_time"),
+            (c, e) -> e.alertDateTime(OffenderEventsTransformer.localDateTimeOf(c.getP_old_alert_date(), c.getP_old_alert_time())));
+    private static final XtagEventMapper.FieldMapping ALERT_TYPE = field("alertType", List.of("p_alert_type"), (c, e) -> e.alertType(c.getP_alert_type()));
+    private static final XtagEventMapper.FieldMapping ALERT_CODE = field("alertCode", List.of("p_alert_code"), (c, e) -> e.alertCode(c.getP_alert_code()));
+    private static final XtagEventMapper.FieldMapping EXPIRY_DATE_TIME = field("expiryDateTime", List.of("p_expiry_date", "p_expiry_time"),
+            (c, e) -> e.expiryDateTime(OffenderEventsTransformer.localDateTimeOf(c.getP_expiry_date(), c.getP_expiry_time())));
+
+    private static final XtagEventMapper.FieldMapping ADDRESS_ID = field("addressId", List.of("p_address_id"), (c, e) -> e.addressId(longOf(c.getP_address_id())));
+    private static final XtagEventMapper.FieldMapping ADDRESS_USAGE = field("addressUsage", List.of("p_address_usage"), (c, e) -> e.addressUsage(c.getP_address_usage()));
+    private static final XtagEventMapper.FieldMapping ADDRESS_END_DATE = field("addressEndDate", List.of("p_address_end_date"),
+            (c, e) -> e.addressEndDate(OffenderEventsTransformer.localDateOf(c.getP_address_end_date())));
+    private static final XtagEventMapper.FieldMapping PRIMARY_ADDRESS_FLAG = field("primaryAddressFlag", List.of("p_primary_addr_flag"), (c, e) -> e.primaryAddressFlag(c.getP_primary_addr_flag()));
+    private static final XtagEventMapper.FieldMapping MAIL_ADDRESS_FLAG = field("mailAddressFlag", List.of("p_mail_addr_flag"), (c, e) -> e.mailAddressFlag(c.getP_mail_addr_flag()));
+    private static final XtagEventMapper.FieldMapping OWNER_ID = field("ownerId", List.of("p_owner_id"), (c, e) -> e.ownerId(longOf(c.getP_owner_id())));
+    private static final XtagEventMapper.FieldMapping OWNER_CLASS = field("ownerClass", List.of("p_owner_class"), (c, e) -> e.ownerClass(c.getP_owner_class()));
+    private static final XtagEventMapper.FieldMapping PERSON_ID = field("personId", List.of("p_person_id"), (c, e) -> e.personId(longOf(c.getP_person_id())));
+
+    private static final XtagEventMapper.FieldMapping SENTENCE_SEQ = field("sentenceSeq", List.of("p_sentence_seq"), (c, e) -> e.sentenceSeq(longOf(c.getP_sentence_seq())));
+    private static final XtagEventMapper.FieldMapping SENTENCE_CALCULATION_ID = field("sentenceCalculationId", List.of("p_offender_sent_calculation_id"),
+            (c, e) -> e.sentenceCalculationId(longOf(c.getP_offender_sent_calculation_id())));
+    private static final XtagEventMapper.FieldMapping CONDITION_CODE = field("conditionCode", List.of("p_condition_code"), (c, e) -> e.conditionCode(c.getP_condition_code()));
+    private static final XtagEventMapper.FieldMapping OFFENDER_SENTENCE_CONDITION_ID = field("offenderSentenceConditionId", List.of("p_offender_sent_calculation_id"),
+            (c, e) -> e.offenderSentenceConditionId(longOf(c.getP_offender_sent_calculation_id())));
+    private static final XtagEventMapper.FieldMapping IMPRISONMENT_STATUS_SEQ = field("imprisonmentStatusSeq", List.of("p_imprison_status_seq"),
+            (c, e) -> e.imprisonmentStatusSeq(longOf(c.getP_imprison_status_seq())));
+    private static final XtagEventMapper.FieldMapping ASSESSMENT_SEQ = field("assessmentSeq", List.of("p_assessment_seq"), (c, e) -> e.assessmentSeq(longOf(c.getP_assessment_seq())));
+    private static final XtagEventMapper.FieldMapping SANCTION_SEQ = field("sanctionSeq", List.of("p_sanction_seq"), (c, e) -> e.sanctionSeq(longOf(c.getP_sanction_seq())));
+    private static final XtagEventMapper.FieldMapping RISK_PREDICTOR_ID = field("riskPredictorId", List.of("p_offender_risk_predictor_id"),
+            (c, e) -> e.riskPredictorId(longOf(c.getP_offender_risk_predictor_id())));
+
+    private static final XtagEventMapper.FieldMapping OIC_HEARING_ID = field("oicHearingId", List.of("p_oic_hearing_id"), (c, e) -> e.oicHearingId(longOf(c.getP_oic_hearing_id())));
+    private static final XtagEventMapper.FieldMapping OIC_OFFENCE_ID = field("oicOffenceId", List.of("p_oic_offence_id"), (c, e) -> e.oicOffenceId(longOf(c.getP_oic_offence_id())));
+    private static final XtagEventMapper.FieldMapping RESULT_SEQ = field("resultSeq", List.of("p_result_seq"), (c, e) -> e.resultSeq(longOf(c.getP_result_seq())));
+    private static final XtagEventMapper.FieldMapping AGENCY_INCIDENT_ID = field("agencyIncidentId", List.of("p_agency_incident_id"), (c, e) -> e.agencyIncidentId(longOf(c.getP_agency_incident_id())));
+    private static final XtagEventMapper.FieldMapping CHARGE_SEQ = field("chargeSeq", List.of("p_charge_seq"), (c, e) -> e.chargeSeq(longOf(c.getP_charge_seq())));
+    private static final XtagEventMapper.FieldMapping PLEA_FINDING_CODE = field("pleaFindingCode", List.of("p_plea_finding_code"), (c, e) -> e.pleaFindingCode(c.getP_plea_finding_code()));
+    private static final XtagEventMapper.FieldMapping FINDING_CODE = field("findingCode", List.of("p_finding_code"), (c, e) -> e.findingCode(c.getP_finding_code()));
+
+    private static final XtagEventMapper.FieldMapping INCIDENT_CASE_ID = field("incidentCaseId", List.of("p_incident_case_id"), (c, e) -> e.incidentCaseId(longOf(c.getP_incident_case_id())));
+    private static final XtagEventMapper.FieldMapping INCIDENT_PARTY_SEQ = field("incidentPartySeq", List.of("p_party_seq"), (c, e) -> e.incidentPartySeq(longOf(c.getP_party_seq())));
+    private static final XtagEventMapper.FieldMapping INCIDENT_REQUIREMENT_SEQ = field("incidentRequirementSeq", List.of("p_requirement_seq"),
+            (c, e) -> e.incidentRequirementSeq(longOf(c.getP_requirement_seq())));
+    private static final XtagEventMapper.FieldMapping INCIDENT_QUESTION_SEQ = field("incidentQuestionSeq", List.of("p_question_seq"), (c, e) -> e.incidentQuestionSeq(longOf(c.getP_question_seq())));
+    private static final XtagEventMapper.FieldMapping INCIDENT_RESPONSE_SEQ = field("incidentResponseSeq", List.of("p_response_seq"), (c, e) -> e.incidentResponseSeq(longOf(c.getP_response_seq())));
+
+    private static final XtagEventMapper.FieldMapping IDENTIFIER_TYPE = field("identifierType", List.of("p_identifier_type"), (c, e) -> e.identifierType(c.getP_identifier_type()));
+    private static final XtagEventMapper.FieldMapping IDENTIFIER_VALUE = field("identifierValue", List.of("p_identifier_value"), (c, e) -> e.identifierValue(c.getP_identifier_value()));
+
+    private static final XtagEventMapper.FieldMapping MOVEMENT_SEQ = field("movementSeq", List.of("p_movement_seq"), (c, e) -> e.movementSeq(longOf(c.getP_movement_seq())));
+    private static final XtagEventMapper.FieldMapping MOVEMENT_DATE_TIME = field("movementDateTime", List.of("p_movement_date", "p_movement_time"),
+            (c, e) -> e.movementDateTime(OffenderEventsTransformer.localDateTimeOf(c.getP_movement_date(), c.getP_movement_time())));
+    private static final XtagEventMapper.FieldMapping MOVEMENT_TYPE = field("movementType", List.of("p_movement_type"), (c, e) -> e.movementType(c.getP_movement_type()));
+    private static final XtagEventMapper.FieldMapping MOVEMENT_REASON_CODE = field("movementReasonCode", List.of("p_movement_reason_code"), (c, e) -> e.movementReasonCode(c.getP_movement_reason_code()));
+    private static final XtagEventMapper.FieldMapping DIRECTION_CODE = field("directionCode", List.of("p_direction_code"), (c, e) -> e.directionCode(c.getP_direction_code()));
+    private static final XtagEventMapper.FieldMapping ESCORT_CODE = field("escortCode", List.of("p_escort_code"), (c, e) -> e.escortCode(c.getP_escort_code()));
+    private static final XtagEventMapper.FieldMapping FROM_AGENCY_LOCATION_ID = field("fromAgencyLocationId", List.of("p_from_agy_loc_id"), (c, e) -> e.fromAgencyLocationId(c.getP_from_agy_loc_id()));
+    private static final XtagEventMapper.FieldMapping TO_AGENCY_LOCATION_ID = field("toAgencyLocationId", List.of("p_to_agy_loc_id"), (c, e) -> e.toAgencyLocationId(c.getP_to_agy_loc_id()));
+
+    private static final XtagEventMapper.FieldMapping BED_ASSIGNMENT_SEQ = field("bedAssignmentSeq", List.of("p_bed_assign_seq"), (c, e) -> e.bedAssignmentSeq(integerOf(c.getP_bed_assign_seq())));
+    private static final XtagEventMapper.FieldMapping LIVING_UNIT_ID = field("livingUnitId", List.of("p_living_unit_id"), (c, e) -> e.livingUnitId(longOf(c.getP_living_unit_id())));
+
+    private static final XtagEventMapper.FieldMapping[] ADDRESS = {ADDRESS_ID, OWNER_ID, OWNER_CLASS, ADDRESS_END_DATE, PRIMARY_ADDRESS_FLAG, MAIL_ADDRESS_FLAG, PERSON_ID};
+
+    private static final XtagEventMapper.FieldMapping[] EXTERNAL_MOVEMENT = {BOOKING_ID, MOVEMENT_SEQ, MOVEMENT_DATE_TIME, MOVEMENT_TYPE, MOVEMENT_REASON_CODE,
+            DIRECTION_CODE, ESCORT_CODE, FROM_AGENCY_LOCATION_ID, TO_AGENCY_LOCATION_ID};
+
+    private static final XtagEventMapper.FieldMapping[] INCIDENT_UPDATED = {INCIDENT_CASE_ID, INCIDENT_PARTY_SEQ, INCIDENT_REQUIREMENT_SEQ, INCIDENT_QUESTION_SEQ, INCIDENT_RESPONSE_SEQ};
+
+    private static final XtagEventMapper ALERT_INSERTED = XtagEventMapper.of("ALERT-INSERTED", ROOT_OFFENDER_ID, BOOKING_ID, ALERT_SEQ, ALERT_DATE_TIME, ALERT_TYPE, ALERT_CODE);
+    private static final XtagEventMapper ALERT_UPDATED = XtagEventMapper.of("ALERT-UPDATED", ROOT_OFFENDER_ID, BOOKING_ID, ALERT_SEQ, OLD_ALERT_DATE_TIME, ALERT_TYPE, ALERT_CODE);
+    private static final XtagEventMapper ALERT_DELETED = XtagEventMapper.of("ALERT-DELETED", OFFENDER_ID, ROOT_OFFENDER_ID, ALERT_DATE_TIME, ALERT_TYPE, ALERT_CODE, EXPIRY_DATE_TIME);
+    private static final XtagEventMapper IMPRISONMENT_STATUS_CHANGED = XtagEventMapper.of("IMPRISONMENT_STATUS-CHANGED", BOOKING_ID, IMPRISONMENT_STATUS_SEQ);
+    private static final XtagEventMapper ASSESSMENT_CHANGED = XtagEventMapper.of("ASSESSMENT-CHANGED", BOOKING_ID, ASSESSMENT_SEQ);
+    private static final XtagEventMapper BOOKING_NUMBER_CHANGED = XtagEventMapper.of("BOOKING_NUMBER-CHANGED", OFFENDER_ID, BOOKING_ID, BOOKING_NUMBER, PREVIOUS_BOOKING_NUMBER);
+    private static final XtagEventMapper OFFENDER_BOOKING_INSERTED = XtagEventMapper.of("OFFENDER_BOOKING-INSERTED", OFFENDER_ID, BOOKING_ID, IDENTIFIER_TYPE);
+    private static final XtagEventMapper OFFENDER_IDENTIFIER_INSERTED = XtagEventMapper.of("OFFENDER_IDENTIFIER-INSERTED", OFFENDER_ID, ROOT_OFFENDER_ID, IDENTIFIER_TYPE, IDENTIFIER_VALUE);
+    private static final XtagEventMapper OFFENDER_IDENTIFIER_DELETED = XtagEventMapper.of("OFFENDER_IDENTIFIER-DELETED", OFFENDER_ID, ROOT_OFFENDER_ID, IDENTIFIER_TYPE);
+
+    private static final XtagEventMapper EXTERNAL_MOVEMENT_RECORD_INSERTED = XtagEventMapper.of("EXTERNAL_MOVEMENT_RECORD-INSERTED", EXTERNAL_MOVEMENT);
+    private static final XtagEventMapper EXTERNAL_MOVEMENT_RECORD_DELETED = XtagEventMapper.of("EXTERNAL_MOVEMENT_RECORD-DELETED", EXTERNAL_MOVEMENT);
+    private static final XtagEventMapper EXTERNAL_MOVEMENT_RECORD_UPDATED = XtagEventMapper.of("EXTERNAL_MOVEMENT_RECORD-UPDATED", EXTERNAL_MOVEMENT);
+
+    private static final Map<String, XtagEventMapper> INCIDENT_UPDATED_BY_EVENT_TYPE = Stream.of("CHANGED-", "DELETED-")
+            .flatMap(change -> Stream.concat(INCIDENT_TABLE_MAP.values().stream(), Stream.of("null")).map(table -> "INCIDENT-" + change + table))
+            .collect(ImmutableMap.toImmutableMap(Function.identity(), eventType -> XtagEventMapper.of(eventType, INCIDENT_UPDATED)));
+
+    private static final List<Entry> ENTRIES = ImmutableList.<Entry>builder()
+            .add(Entry.choosing("P8_RESULT", List.of(
+                    XtagEventMapper.of("RISK_SCORE-CHANGED", BOOKING_ID, RISK_PREDICTOR_ID),
+                    XtagEventMapper.of("RISK_SCORE-DELETED", BOOKING_ID, RISK_PREDICTOR_ID)),
+                    (c, m) -> c.getP_delete_flag().equals("N") ? m.get(0) : m.get(1)))
+            .add(Entry.of("A3_RESULT", XtagEventMapper.of("OFFENDER_SANCTION-CHANGED", BOOKING_ID, SANCTION_SEQ)))
+            .add(Entry.of("P1_RESULT", BOOKING_NUMBER_CHANGED))
+            .add(Entry.of("BOOK_UPD_OASYS", BOOKING_NUMBER_CHANGED))
+            .add(Entry.of("OFF_HEALTH_PROB_INS", XtagEventMapper.of("MATERNITY_STATUS-INSERTED", BOOKING_ID)))
+            .add(Entry.of("OFF_HEALTH_PROB_UPD", XtagEventMapper.of("MATERNITY_STATUS-UPDATED", BOOKING_ID)))
+            .add(Entry.of("OFF_RECEP_OASYS", XtagEventMapper.of("OFFENDER_MOVEMENT-RECEPTION", BOOKING_ID, MOVEMENT_SEQ)))
+            .add(Entry.of("OFF_DISCH_OASYS", XtagEventMapper.of("OFFENDER_MOVEMENT-DISCHARGE", BOOKING_ID, MOVEMENT_SEQ)))
+            .add(externalMovementEntry("M1_RESULT"))
+            .add(externalMovementEntry("M1_UPD_RESULT"))
+            .add(Entry.choosing("OFF_UPD_OASYS", List.of(
+                    XtagEventMapper.of("OFFENDER_BOOKING-CHANGED", OFFENDER_ID, ROOT_OFFENDER_ID, BOOKING_ID),
+                    XtagEventMapper.of("OFFENDER_DETAILS-CHANGED", OFFENDER_ID, ROOT_OFFENDER_ID, BOOKING_ID)),
+                    (c, m) -> !Strings.isNullOrEmpty(c.getP_offender_book_id()) ? m.get(0) : m.get(1)))
+            .add(Entry.of("ADDR_USG_INS", XtagEventMapper.of("ADDRESS_USAGE-INSERTED", ADDRESS_ID, ADDRESS_USAGE)))
+            .add(Entry.choosing("ADDR_USG_UPD", List.of(
+                    XtagEventMapper.of("ADDRESS_USAGE-DELETED", ADDRESS_ID, ADDRESS_USAGE),
+                    XtagEventMapper.of("ADDRESS_USAGE-UPDATED", ADDRESS_ID, ADDRESS_USAGE)),
+                    (c, m) -> c.getP_address_deleted().equals("Y") ? m.get(0) : m.get(1)))
+            .add(Entry.of("P4_RESULT", XtagEventMapper.of("OFFENDER_ALIAS-CHANGED", OFFENDER_ID, ROOT_OFFENDER_ID, ALIAS_OFFENDER_ID)))
+            .add(Entry.of("P2_RESULT", XtagEventMapper.of("OFFENDER-UPDATED", OFFENDER_ID, ROOT_OFFENDER_ID)))
+            .add(Entry.of("OFF_BKB_INS", OFFENDER_BOOKING_INSERTED))
+            .add(Entry.of("OFF_BKB_UPD", XtagEventMapper.of("OFFENDER_BOOKING-REASSIGNED", OFFENDER_ID, PREVIOUS_OFFENDER_ID, BOOKING_ID)))
+            .add(Entry.of("OFF_CONT_PER_INS", XtagEventMapper.of("CONTACT_PERSON-INSERTED", BOOKING_ID, PERSON_ID)))
+            .add(Entry.choosing("OFF_CONT_PER_UPD", List.of(
+                    XtagEventMapper.of("CONTACT_PERSON-DELETED", BOOKING_ID, PERSON_ID),
+                    XtagEventMapper.of("CONTACT_PERSON-UPDATED", BOOKING_ID, PERSON_ID)),
+                    (c, m) -> c.getP_address_deleted().equals("Y") ? m.get(0) : m.get(1)))
+            .add(Entry.of("OFF_EDUCATION_INS", XtagEventMapper.of("EDUCATION_LEVEL-INSERTED", BOOKING_ID)))
+            .add(Entry.of("OFF_EDUCATION_UPD", XtagEventMapper.of("EDUCATION_LEVEL-UPDATED", BOOKING_ID)))
+            .add(Entry.of("OFF_EDUCATION_DEL", XtagEventMapper.of("EDUCATION_LEVEL-DELETED", BOOKING_ID)))
+            .add(Entry.choosing("P3_RESULT", List.of(OFFENDER_BOOKING_INSERTED, OFFENDER_IDENTIFIER_INSERTED, OFFENDER_IDENTIFIER_DELETED),
+                    (c, m) -> c.getP_identifier_type().equals("NOMISP3") ? m.get(0) :
+                            !Strings.isNullOrEmpty(c.getP_identifier_value()) ? m.get(1) : m.get(2)))
+            .add(Entry.choosing("S1_RESULT", List.of(IMPRISONMENT_STATUS_CHANGED, ASSESSMENT_CHANGED, ALERT_UPDATED, ALERT_INSERTED),
+                    (c, m) -> !Strings.isNullOrEmpty(c.getP_imprison_status_seq()) ? m.get(0) :
+                            !Strings.isNullOrEmpty(c.getP_assessment_seq()) ? m.get(1) :
+                                    !Strings.isNullOrEmpty(c.getP_alert_date()) ? m.get(2) : m.get(3)))
+            .add(Entry.of("OFF_ALERT_INSERT", ALERT_INSERTED))
+            .add(Entry.of("OFF_ALERT_UPDATE", ALERT_UPDATED))
+            .add(Entry.of("OFF_ALERT_DELETE", ALERT_DELETED))
+            .add(Entry.of("INCIDENT-INSERTED", XtagEventMapper.of("INCIDENT-INSERTED", INCIDENT_CASE_ID)))
+            .add(Entry.choosing("INCIDENT-UPDATED", List.copyOf(INCIDENT_UPDATED_BY_EVENT_TYPE.values()),
+                    (c, m) -> INCIDENT_UPDATED_BY_EVENT_TYPE.get("INCIDENT-" + (c.getP_delete_flag().equals("N") ? "CHANGED-" : "DELETED-")
+                            + INCIDENT_TABLE_MAP.get(c.getP_table_name()))))
+            .add(Entry.of("OFF_IMP_STAT_OASYS", IMPRISONMENT_STATUS_CHANGED))
+            .add(Entry.of("OFF_PROF_DETAIL_INS", XtagEventMapper.of("OFFENDER_PROFILE_DETAILS-INSERTED", BOOKING_ID)))
+            .add(Entry.of("OFF_PROF_DETAIL_UPD", XtagEventMapper.of("OFFENDER_PROFILE_DETAILS-UPDATED", BOOKING_ID)))
+            .add(Entry.of("S2_RESULT", XtagEventMapper.of("SENTENCE_DATES-CHANGED", BOOKING_ID, SENTENCE_CALCULATION_ID)))
+            .add(Entry.of("A2_CALLBACK", XtagEventMapper.of("HEARING_DATE-CHANGED", OIC_HEARING_ID)))
+            .add(Entry.choosing("A2_RESULT", List.of(
+                    XtagEventMapper.of("HEARING_RESULT-DELETED", OIC_HEARING_ID, RESULT_SEQ, AGENCY_INCIDENT_ID, CHARGE_SEQ, OIC_OFFENCE_ID, PLEA_FINDING_CODE, FINDING_CODE),
+                    XtagEventMapper.of("HEARING_RESULT-CHANGED", OIC_HEARING_ID, RESULT_SEQ, AGENCY_INCIDENT_ID, CHARGE_SEQ)),
+                    (c, m) -> "Y".equals(c.getP_delete_flag()) ? m.get(0) : m.get(1)))
+            .add(Entry.of("PHONES_INS", XtagEventMapper.of("PHONE-INSERTED", OWNER_ID, OWNER_CLASS)))
+            .add(Entry.of("PHONES_UPD", XtagEventMapper.of("PHONE-UPDATED", OWNER_ID, OWNER_CLASS)))
+            .add(Entry.of("PHONES_DEL", XtagEventMapper.of("PHONE-DELETED", OWNER_ID, OWNER_CLASS)))
+            .add(Entry.of("OFF_EMPLOYMENTS_INS", XtagEventMapper.of("OFFENDER_EMPLOYMENT-INSERTED", BOOKING_ID)))
+            .add(Entry.of("OFF_EMPLOYMENTS_UPD", XtagEventMapper.of("OFFENDER_EMPLOYMENT-UPDATED", BOOKING_ID)))
+            .add(Entry.of("OFF_EMPLOYMENTS_DEL", XtagEventMapper.of("OFFENDER_EMPLOYMENT-DELETED", BOOKING_ID)))
+            .add(Entry.of("D5_RESULT", XtagEventMapper.of("HDC_CONDITION-CHANGED", BOOKING_ID, SENTENCE_SEQ, CONDITION_CODE, OFFENDER_SENTENCE_CONDITION_ID)))
+            .add(Entry.of("D4_RESULT", XtagEventMapper.of("HDC_FINE-INSERTED", BOOKING_ID, SENTENCE_SEQ)))
+            .add(Entry.of("ADDR_INS", XtagEventMapper.of("PERSON_ADDRESS-INSERTED", ROOT_OFFENDER_ID, ADDRESS_ID, OWNER_ID, OWNER_CLASS,
+                    ADDRESS_END_DATE, PRIMARY_ADDRESS_FLAG, MAIL_ADDRESS_FLAG, PERSON_ID)))
+            .add(Entry.choosing("ADDR_UPD", List.of(
+                    XtagEventMapper.of("PERSON_ADDRESS-UPDATED", ADDRESS),
+                    XtagEventMapper.of("PERSON_ADDRESS-DELETED", ADDRESS),
+                    XtagEventMapper.of("OFFENDER_ADDRESS-UPDATED", ADDRESS),
+                    XtagEventMapper.of("OFFENDER_ADDRESS-DELETED", ADDRESS),
+                    XtagEventMapper.of("ADDRESS-UPDATED", ADDRESS),
+                    XtagEventMapper.of("ADDRESS-DELETED", ADDRESS)),
+                    (c, m) -> {
+                        final var owner = c.getP_owner_class().equals("PER") ? 0 : c.getP_owner_class().equals("OFF") ? 2 : 4;
+                        return m.get(owner + (c.getP_address_deleted().equals("N") ? 0 : 1));
+                    }))
+            .add(Entry.of("S1_DEL_RESULT", ALERT_DELETED))
+            .add(Entry.of("OFF_SENT_OASYS", XtagEventMapper.of("SENTENCE_CALCULATION_DATES-CHANGED", BOOKING_ID)))
+            .add(Entry.of("C_NOTIFICATION", XtagEventMapper.of("COURT_SENTENCE-CHANGED", BOOKING_ID)))
+            .add(Entry.of("IEDT_OUT", XtagEventMapper.of("OFFENDER_TRANSFER-OUT_OF_LIDS", BOOKING_ID)))
+            .add(Entry.of("BED_ASSIGNMENT_HISTORY-INSERTED", XtagEventMapper.of("BED_ASSIGNMENT_HISTORY-INSERTED", BOOKING_ID, BED_ASSIGNMENT_SEQ, LIVING_UNIT_ID)))
+            .add(Entry.of("CONFIRMED_RELEASE_DATE-CHANGED", new XtagEventMapper("CONFIRMED_RELEASE_DATE-CHANGED", false, List.of(BOOKING_ID))))
+            .build();
+
+    private static final Map<String, Entry> ENTRIES_BY_XTAG_EVENT_TYPE = ENTRIES.stream()
+            .collect(ImmutableMap.toImmutableMap(Entry::getXtagEventType, Function.identity()));
+
+    // Inverted so a type filter can be checked against the raw type before the payload is decoded
+    private static final ImmutableSetMultimap<String, String> XTAG_EVENT_TYPES_BY_EVENT_TYPE = ENTRIES.stream()
+            .flatMap(entry -> entry.getMappers().stream().map(mapper -> Map.entry(entry.getXtagEventType(), mapper.getEventType())))
+            .collect(ImmutableSetMultimap.toImmutableSetMultimap(Map.Entry::getKey, Map.Entry::getValue))
+            .inverse();
+
+    private XtagEventRegistry() {
+    }
+
+    public static List<Entry> entries() {
+        return ENTRIES;
+    }
+
+    /**
+     * One row per raw type and API event type it can produce, with the payload properties behind each event property.
+     */
+    public static List<EventTypeMapping> catalogue() {
+        return ENTRIES.stream()
+                .flatMap(entry -> entry.getMappers().stream().map(mapper -> EventTypeMapping.builder()
+                        .nomisEventType(entry.getXtagEventType())
+                        .eventType(mapper.getEventType())
+                        .fields(mapper.getFields().stream()
+                                .collect(ImmutableMap.toImmutableMap(XtagEventMapper.FieldMapping::getTo, XtagEventMapper.FieldMapping::getFrom)))
+                        .build()))
+                .collect(Collectors.toList());
+    }
+
+    public static Optional<Entry> entryOf(final String xtagEventType) {
+        return Optional.ofNullable(ENTRIES_BY_XTAG_EVENT_TYPE.get(xtagEventType));
+    }
+
+    /**
+     * The API event type a raw xtag type always becomes, if that can be told without its payload: raw types
+     * not registered pass through under their own name, and most registered types have a single mapper.
+     */
+    public static Optional<String> fixedEventTypeOf(final String xtagEventType) {
+        return entryOf(xtagEventType)
+                .map(entry -> entry.getMappers().stream().map(XtagEventMapper::getEventType).distinct().collect(Collectors.toList()))
+                .map(eventTypes -> eventTypes.size() == 1 ? Optional.of(eventTypes.get(0)) : Optional.<String>empty())
+                .orElse(Optional.of(xtagEventType));
+    }
+
+    /**
+     * The raw xtag types that can produce any of the given API event types, including the API types themselves
+     * for raw types that pass through unmapped.
+     */
+    public static Set<String> xtagEventTypesOf(final Set<String> eventTypes) {
+        return eventTypes.stream()
+                .flatMap(eventType -> Stream.concat(Stream.of(eventType), XTAG_EVENT_TYPES_BY_EVENT_TYPE.get(eventType).stream()))
+                .collect(Collectors.toSet());
+    }
+
+    static Long longOf(final String num) {
+        return Optional.ofNullable(num).map(Long::valueOf).orElse(null);
+    }
+
+    static Integer integerOf(final String num) {
+        return Optional.ofNullable(num).map(Integer::valueOf).orElse(null);
+    }
+
+    /**
+     * The external movement record mapper for a payload, whichever raw type it arrived as.
+     */
+    public static XtagEventMapper externalMovementRecordMapperOf(final XtagContent content) {
+        switch (Optional.ofNullable(content.getP_record_deleted()).orElse("")) {
+            case "N":
+                return EXTERNAL_MOVEMENT_RECORD_INSERTED;
+            case "Y":
+                return EXTERNAL_MOVEMENT_RECORD_DELETED;
+            default:
+                return EXTERNAL_MOVEMENT_RECORD_UPDATED;
+        }
+    }
+
+    private static Entry externalMovementEntry(final String xtagEventType) {
+        return Entry.choosing(xtagEventType, List.of(EXTERNAL_MOVEMENT_RECORD_INSERTED, EXTERNAL_MOVEMENT_RECORD_DELETED, EXTERNAL_MOVEMENT_RECORD_UPDATED),
+                (c, m) -> externalMovementRecordMapperOf(c));
+    }
+
+    /**
+     * A raw xtag type, the mappers it can use, and how the payload picks one.
+     */
+    @Value
+    public static class Entry {
+        private String xtagEventType;
+        private List<XtagEventMapper> mappers;
+        private BiFunction<XtagContent, List<XtagEventMapper>, XtagEventMapper> selector;
+
+        static Entry of(final String xtagEventType, final XtagEventMapper mapper) {
+            return new Entry(xtagEventType, List.of(mapper), (c, m) -> m.get(0));
+        }
+
+        static Entry choosing(final String xtagEventType, final List<XtagEventMapper> mappers,
+                              final BiFunction<XtagContent, List<XtagEventMapper>, XtagEventMapper> selector) {
+            return new Entry(xtagEventType, mappers, selector);
+        }
+
+        public OffenderEvent offenderEventOf(final Xtag xtag) {
+            return selector.apply(xtag.getContent(), mappers).offenderEventOf(xtag);
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package uk.gov.justice.digital.nomis.service.transformer;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamConstants;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decodes the RAW attribute of an xtag event, which is a Java serialized {@code HashMap<String, String>}.
+ * <p>
+ * The common case is parsed straight off the byte array without going through {@link ObjectInputStream}.
+ * Anything the parser does not recognise is handed to {@link ObjectInputStream}, restricted to
+ * an allow-list of map and value classes.
+ */
+@Slf4j
+public final class XtagPayloadDecoder {
+
+    private static final String HASH_MAP = HashMap.class.getName();
+
+    private static final ObjectInputFilter ALLOWED_CLASSES = ObjectInputFilter.Config.createFilter(
+            "maxdepth=4;java.util.HashMap;java.util.LinkedHashMap;java.util.Hashtable;java.util.Map$Entry;" +
+                    "java.lang.String;java.lang.Number;java.lang.Integer;java.lang.Long;java.lang.Boolean;!*");
+
+    private XtagPayloadDecoder() {
+    }
+
+    public static Map<String, String> decode(final byte[] bytes) throws IOException, ClassNotFoundException {
+        try {
+            return new HashMapReader(bytes).read();
+        } catch (final UnrecognisedPayloadException e) {
+            log.debug("Falling back to ObjectInputStream: {}", e.getMessage());
+            return readObject(bytes);
+        }
+    }
+
+    /**
+     * The fallback path: generic deserialization of anything on the allow-list.
+     */
+    @SuppressWarnings("unchecked")
+    static Map<String, String> readObject(final byte[] bytes) throws IOException, ClassNotFoundException {
+        try (final var in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            in.setObjectInputFilter(ALLOWED_CLASSES);
+            final var o = in.readObject();
+
+            if (o instanceof Map) {
+                return (Map<String, String>) o;
+            }
+            log.warn("Can't deserialize bytes into Map. Deserialized is of type {}", o == null ? null : o.getClass().toString());
+            return null;
+        }
+    }
+
+    private static class UnrecognisedPayloadException extends Exception {
+        UnrecognisedPayloadException(final String message) {
+            super(message, null, false, false);
+        }
+    }
+
+    /**
+     * Reads exactly what {@link HashMap#writeObject} produces for string keys and values:
+     * the class descriptor, the loadFactor and threshold fields, a block holding capacity and size,
+     * then the keys and values as strings or back references to earlier strings.
+     */
+    private static class HashMapReader implements ObjectStreamConstants {
+        private final byte[] bytes;
+        private final List<String> handles = new ArrayList<>();
+        private int pos;
+
+        private HashMapReader(final byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        private Map<String, String> read() throws UnrecognisedPayloadException {
+            expectShort(STREAM_MAGIC);
+            expectShort(STREAM_VERSION);
+            expect(TC_OBJECT);
+            expect(TC_CLASSDESC);
+
+            final var className = utf(readUnsignedShort());
+            if (!HASH_MAP.equals(className)) {
+                throw new UnrecognisedPayloadException("class " + className);
+            }
+            skip(Long.BYTES); // serialVersionUID
+            handles.add(null);
+
+            final var flags = readByte();
+            if (flags != (SC_SERIALIZABLE | SC_WRITE_METHOD)) {
+                throw new UnrecognisedPayloadException("class flags " + flags);
+            }
+
+            final var fieldCount = readUnsignedShort();
+            var fieldsSize = 0;
+            for (var i = 0; i < fieldCount; i++) {
+                fieldsSize += primitiveSizeOf(readByte());
+                utf(readUnsignedShort());
+            }
+            expect(TC_ENDBLOCKDATA);
+            expect(TC_NULL);
+            handles.add(null);
+
+            skip(fieldsSize); // loadFactor and threshold
+
+            expect(TC_BLOCKDATA);
+            final var blockLength = readByte() & 0xFF;
+            final var blockEnd = pos + blockLength;
+            readInt(); // capacity
+            final var size = readInt();
+            if (pos != blockEnd || size < 0) {
+                throw new UnrecognisedPayloadException("map header");
+            }
+
+            final var map = new HashMap<String, String>(Math.max(16, (int) (size / 0.75f) + 1));
+            for (var i = 0; i < size; i++) {
+                map.put(readString(), readString());
+            }
+            expect(TC_ENDBLOCKDATA);
+
+            if (pos != bytes.length) {
+                throw new UnrecognisedPayloadException("trailing bytes");
+            }
+            return map;
+        }
+
+        private String readString() throws UnrecognisedPayloadException {
+            final var tc = readByte();
+            switch (tc) {
+                case TC_STRING:
+                    final var s = utf(readUnsignedShort());
+                    handles.add(s);
+                    return s;
+                case TC_REFERENCE:
+                    final var handle = readInt() - baseWireHandle;
+                    if (handle < 0 || handle >= handles.size() || handles.get(handle) == null) {
+                        throw new UnrecognisedPayloadException("reference " + handle);
+                    }
+                    return handles.get(handle);
+                case TC_NULL:
+                    return null;
+                default:
+                    throw new UnrecognisedPayloadException("type code " + tc);
+            }
+        }
+
+        private String utf(final int length) throws UnrecognisedPayloadException {
+            require(length);
+            final var start = pos;
+            pos += length;
+
+            for (var i = start; i < pos; i++) {
+                if (bytes[i] < 0) {
+                    return modifiedUtf8(start - 2, length + 2);
+                }
+            }
+            // Plain ASCII, the overwhelmingly common case
+            return new String(bytes, start, length, StandardCharsets.ISO_8859_1);
+        }
+
+        private String modifiedUtf8(final int offset, final int length) throws UnrecognisedPayloadException {
+            try {
+                return new DataInputStream(new ByteArrayInputStream(bytes, offset, length)).readUTF();
+            } catch (final IOException e) {
+                throw new UnrecognisedPayloadException("string " + e.getMessage());
+            }
+        }
+
+        private static int primitiveSizeOf(final byte fieldType) throws UnrecognisedPayloadException {
+            switch (fieldType) {
+                case 'B':
+                case 'Z':
+                    return 1;
+                case 'C':
+                case 'S':
+                    return 2;
+                case 'I':
+                case 'F':
+                    return 4;
+                case 'J':
+                case 'D':
+                    return 8;
+                default:
+                    throw new UnrecognisedPayloadException("field type " + (char) fieldType);
+            }
+        }
+
+        private void expect(final byte expected) throws UnrecognisedPayloadException {
+            final var actual = readByte();
+            if (actual != expected) {
+                throw new UnrecognisedPayloadException("expected " + expected + " at " + (pos - 1) + " but was " + actual);
+            }
+        }
+
+        private void expectShort(final short expected) throws UnrecognisedPayloadException {
+            if ((short) readUnsignedShort() != expected) {
+                throw new UnrecognisedPayloadException("stream header");
+            }
+        }
+
+        private byte readByte() throws UnrecognisedPayloadException {
+            require(1);
+            return bytes[pos++];
+        }
+
+        private int readUnsignedShort() throws UnrecognisedPayloadException {
+            require(2);
+            return ((bytes[pos++] & 0xFF) << 8) | (bytes[pos++] & 0xFF);
+        }
+
+        private int readInt() throws UnrecognisedPayloadException {
+            require(4);
+            return ((bytes[pos++] & 0xFF) << 24) | ((bytes[pos++] & 0xFF) << 16) | ((bytes[pos++] & 0xFF) << 8) | (bytes[pos++] & 0xFF);
+        }
+
+        private void skip(final int count) throws UnrecognisedPayloadException {
+            require(count);
+            pos += count;
+        }
+
+        private void require(final int count) throws UnrecognisedPayloadException {
+            if (count < 0 || pos + count > bytes.length) {
+                throw new UnrecognisedPayloadException("truncated at " + pos);
+            }
+        }
+    }
+}
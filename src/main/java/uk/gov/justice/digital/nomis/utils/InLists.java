@@ -0,0 +1,20 @@
+package uk.gov.justice.digital.nomis.utils;
+
+import com.google.common.collect.Iterables;
+
+import java.util.List;
+
+/**
+ * Oracle allows at most a thousand expressions in an IN list, so longer lists of keys are queried a chunk at a time.
+ */
+public final class InLists {
+
+    public static final int MAX_SIZE = 1000;
+
+    private InLists() {
+    }
+
+    public static <T> Iterable<List<T>> chunksOf(final Iterable<T> keys) {
+        return Iterables.partition(keys, MAX_SIZE);
+    }
+}
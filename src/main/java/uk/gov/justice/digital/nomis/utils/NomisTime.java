@@ -0,0 +1,201 @@
+package uk.gov.justice.digital.nomis.utils;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.Month;
+import java.time.Year;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.DateTimeParseException;
+import java.time.zone.ZoneOffsetTransition;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Parsing of the date and time strings NOMIS puts in xtag payloads, and Europe/London summer time lookups.
+ * <p>
+ * The usual {@code yyyy-MM-dd} and {@code HH:mm:ss} shapes are read by hand; anything else goes through
+ * the formatters, so results are the same as parsing everything with them. Summer time is looked up in
+ * a table of clock changes from 1972 to 2100, falling back to the zone rules outside it.
+ */
+@Slf4j
+public final class NomisTime {
+
+    public static final ZoneId LONDON = ZoneId.of("Europe/London");
+
+    private static final String DATE_PATTERN = "[yyyy-MM-dd HH:mm:ss][yyyy-MM-dd][dd-MMM-yyyy][dd-MMM-yy]";
+    private static final DateTimeFormatter DATE_FORMATTER = new DateTimeFormatterBuilder().parseCaseInsensitive().appendPattern(DATE_PATTERN).toFormatter();
+
+    private static final String TIME_PATTERN = "[yyyy-MM-dd ]HH:mm:ss";
+    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern(TIME_PATTERN);
+
+    private static final ClockChanges CLOCK_CHANGES = new ClockChanges(LocalDateTime.of(1972, 1, 1, 0, 0), LocalDateTime.of(2100, 1, 1, 0, 0));
+
+    private NomisTime() {
+    }
+
+    public static LocalDate localDateOf(final String date) {
+        if (date == null) {
+            return null;
+        }
+        final var fast = fastLocalDateOf(date);
+        if (fast != null) {
+            return fast;
+        }
+        try {
+            return LocalDate.parse(date, DATE_FORMATTER);
+        } catch (final DateTimeParseException dtpe) {
+            log.error("Unable to parse {} into a LocalDate using pattern {}", date, DATE_PATTERN);
+        }
+        return null;
+    }
+
+    public static LocalTime localTimeOf(final String dateTime) {
+        if (dateTime == null) {
+            return null;
+        }
+        final var fast = fastLocalTimeOf(dateTime);
+        if (fast != null) {
+            return fast;
+        }
+        try {
+            return LocalTime.parse(dateTime, TIME_FORMATTER);
+        } catch (final DateTimeParseException dtpe) {
+            log.error("Unable to parse {} into a LocalTime using pattern {}", dateTime, TIME_PATTERN);
+        }
+        return null;
+    }
+
+    /**
+     * Whether a Europe/London wall clock time is in summer time, resolving the gap and overlap as {@link LocalDateTime#atZone} does.
+     */
+    public static boolean isBritishSummerTime(final LocalDateTime londonTime) {
+        return CLOCK_CHANGES.isSummerTimeAtLocal(londonTime);
+    }
+
+    /**
+     * Whether Europe/London is in summer time at the given UTC time.
+     */
+    public static boolean isBritishSummerTimeAtUtc(final LocalDateTime utcTime) {
+        return CLOCK_CHANGES.isSummerTimeAtUtc(utcTime);
+    }
+
+    // yyyy-MM-dd or yyyy-MM-dd HH:mm:ss; null for anything else, or anything the formatter might resolve differently
+    private static LocalDate fastLocalDateOf(final String s) {
+        final var length = s.length();
+        if ((length != 10 && length != 19) || !isDate(s)) {
+            return null;
+        }
+        if (length == 19 && (s.charAt(10) != ' ' || !isTime(s, 11))) {
+            return null;
+        }
+        final var year = digits(s, 0, 4);
+        final var month = digits(s, 5, 2);
+        final var day = digits(s, 8, 2);
+        if (day > Month.of(month).length(Year.isLeap(year))) {
+            return null;
+        }
+        return LocalDate.of(year, month, day);
+    }
+
+    // HH:mm:ss or yyyy-MM-dd HH:mm:ss
+    private static LocalTime fastLocalTimeOf(final String s) {
+        final var length = s.length();
+        if (length == 8 && isTime(s, 0)) {
+            return LocalTime.of(digits(s, 0, 2), digits(s, 3, 2), digits(s, 6, 2));
+        }
+        if (length == 19 && isDate(s) && s.charAt(10) == ' ' && isTime(s, 11)) {
+            return LocalTime.of(digits(s, 11, 2), digits(s, 14, 2), digits(s, 17, 2));
+        }
+        return null;
+    }
+
+    private static boolean isDate(final String s) {
+        if (s.charAt(4) != '-' || s.charAt(7) != '-') {
+            return false;
+        }
+        final var year = digits(s, 0, 4);
+        final var month = digits(s, 5, 2);
+        final var day = digits(s, 8, 2);
+        return year >= 1 && month >= 1 && month <= 12 && day >= 1 && day <= 31;
+    }
+
+    private static boolean isTime(final String s, final int offset) {
+        if (s.charAt(offset + 2) != ':' || s.charAt(offset + 5) != ':') {
+            return false;
+        }
+        final var hour = digits(s, offset, 2);
+        final var minute = digits(s, offset + 3, 2);
+        final var second = digits(s, offset + 6, 2);
+        return hour >= 0 && hour <= 23 && minute >= 0 && minute <= 59 && second >= 0 && second <= 59;
+    }
+
+    // -1 unless every character is an ASCII digit
+    private static int digits(final String s, final int offset, final int count) {
+        var value = 0;
+        for (var i = offset; i < offset + count; i++) {
+            final var c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /**
+     * Europe/London clock changes within a range, keyed both by UTC time and by the wall clock time
+     * just before each change, with whether summer time applies from then on.
+     */
+    private static final class ClockChanges {
+        private final long[] utcSeconds;
+        private final long[] localSeconds;
+        private final boolean[] summerTimeFrom;
+
+        private ClockChanges(final LocalDateTime from, final LocalDateTime to) {
+            final var rules = LONDON.getRules();
+            final List<ZoneOffsetTransition> transitions = new ArrayList<>();
+            var transition = rules.nextTransition(from.toInstant(ZoneOffset.UTC));
+            while (transition != null && transition.getDateTimeBefore().isBefore(to)) {
+                transitions.add(transition);
+                transition = rules.nextTransition(transition.getInstant());
+            }
+
+            utcSeconds = new long[transitions.size()];
+            localSeconds = new long[transitions.size()];
+            summerTimeFrom = new boolean[transitions.size()];
+            for (var i = 0; i < transitions.size(); i++) {
+                final var t = transitions.get(i);
+                utcSeconds[i] = t.toEpochSecond();
+                // Both ends of a gap or overlap resolve to summer time, so summer time starts and ends at the wall clock time before each change
+                localSeconds[i] = t.getDateTimeBefore().toEpochSecond(ZoneOffset.UTC);
+                summerTimeFrom[i] = rules.isDaylightSavings(t.getInstant());
+            }
+        }
+
+        private boolean isSummerTimeAtUtc(final LocalDateTime utcTime) {
+            final var i = indexOf(utcSeconds, utcTime.toEpochSecond(ZoneOffset.UTC));
+            return i < 0 ? LONDON.getRules().isDaylightSavings(utcTime.toInstant(ZoneOffset.UTC)) : summerTimeFrom[i];
+        }
+
+        private boolean isSummerTimeAtLocal(final LocalDateTime londonTime) {
+            final var i = indexOf(localSeconds, londonTime.toEpochSecond(ZoneOffset.UTC));
+            return i < 0 ? LONDON.getRules().isDaylightSavings(londonTime.atZone(LONDON).toInstant()) : summerTimeFrom[i];
+        }
+
+        // The last change at or before the given second, or -1 outside the table
+        private static int indexOf(final long[] seconds, final long second) {
+            if (seconds.length == 0 || second < seconds[0] || second >= seconds[seconds.length - 1]) {
+                return -1;
+            }
+            final var found = Arrays.binarySearch(seconds, second);
+            return found >= 0 ? found : -found - 2;
+        }
+    }
+}
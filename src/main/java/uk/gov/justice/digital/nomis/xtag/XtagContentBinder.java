@@ -0,0 +1,62 @@
+package uk.gov.justice.digital.nomis.xtag;
+
+import com.google.common.collect.ImmutableMap;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Binds a decoded xtag payload onto {@link XtagContent}, one setter per key.
+ * Keys without a matching property are ignored, and non-string values are bound by their string form,
+ * as the JSON round trip this replaces did.
+ */
+public final class XtagContentBinder {
+
+    private static final Map<String, MethodHandle> SETTERS_BY_KEY = settersByKey();
+
+    private XtagContentBinder() {
+    }
+
+    public static XtagContent bind(final Map<String, ?> map) {
+        final var content = new XtagContent();
+        for (final var entry : map.entrySet()) {
+            final var setter = SETTERS_BY_KEY.get(entry.getKey());
+            if (setter != null) {
+                set(setter, content, entry.getValue() == null ? null : entry.getValue().toString());
+            }
+        }
+        return content;
+    }
+
+    private static void set(final MethodHandle setter, final XtagContent content, final String value) {
+        try {
+            setter.invokeExact(content, value);
+        } catch (final Throwable t) {
+            throw new IllegalStateException("Failed to bind XtagContent property", t);
+        }
+    }
+
+    private static Map<String, MethodHandle> settersByKey() {
+        final var lookup = MethodHandles.lookup();
+        final var setterType = MethodType.methodType(void.class, String.class);
+        final var setters = ImmutableMap.<String, MethodHandle>builder();
+
+        Arrays.stream(XtagContent.class.getDeclaredFields())
+                .filter(field -> !Modifier.isStatic(field.getModifiers()) && field.getType() == String.class)
+                .forEach(field -> {
+                    final var name = field.getName();
+                    final var setterName = "set" + Character.toUpperCase(name.charAt(0)) + name.substring(1);
+                    try {
+                        setters.put(name, lookup.findVirtual(XtagContent.class, setterName, setterType));
+                    } catch (final NoSuchMethodException | IllegalAccessException e) {
+                        throw new ExceptionInInitializerError(e);
+                    }
+                });
+
+        return setters.build();
+    }
+}
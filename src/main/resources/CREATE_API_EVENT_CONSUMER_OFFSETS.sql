@@ -0,0 +1,11 @@
+CREATE TABLE API_OWNER.API_EVENT_CONSUMER_OFFSETS
+(
+  CLIENT_ID       VARCHAR2(64)  NOT NULL,
+  CONSUMER_NAME   VARCHAR2(64)  NOT NULL,
+  EVENT_DATETIME  TIMESTAMP(9)  NOT NULL,
+  EVENT_SOURCE    VARCHAR2(20)  NOT NULL,
+  EVENT_ID        VARCHAR2(64)  NOT NULL,
+  CREATE_DATETIME TIMESTAMP(9)  NOT NULL,
+  MODIFY_DATETIME TIMESTAMP(9),
+  CONSTRAINT API_EVENT_CONSUMER_OFFSETS_PK PRIMARY KEY (CLIENT_ID, CONSUMER_NAME)
+);
@@ -0,0 +1,31 @@
+package uk.gov.justice.digital.nomis.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.junit.Test;
+import uk.gov.justice.digital.nomis.api.OffenderEvent;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BinaryFormatsConfigTest {
+
+    @Test
+    public void datesAreWrittenAsEpochValuesAndReadBack() throws IOException {
+        final var mapper = BinaryFormatsConfig.binaryObjectMapperOf(new CBORFactory());
+        final var event = OffenderEvent.builder()
+                .eventType("ADDRESS-UPDATED")
+                // British Summer Time, so an hour before UTC
+                .eventDatetime(LocalDateTime.of(2020, 6, 14, 10, 30, 15, 250_000_000))
+                .addressEndDate(LocalDate.of(2020, 6, 30))
+                .build();
+
+        final var tree = mapper.readTree(mapper.writeValueAsBytes(event));
+        assertThat(tree.get("eventDatetime").longValue()).isEqualTo(1592127015250L);
+        assertThat(tree.get("addressEndDate").longValue()).isEqualTo(LocalDate.of(2020, 6, 30).toEpochDay());
+
+        assertThat(mapper.readValue(mapper.writeValueAsBytes(event), OffenderEvent.class)).isEqualTo(event);
+    }
+}
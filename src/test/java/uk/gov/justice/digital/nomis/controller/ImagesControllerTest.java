@@ -1,6 +1,7 @@
 package uk.gov.justice.digital.nomis.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
 import io.restassured.RestAssured;
 import io.restassured.config.ObjectMapperConfig;
 import io.restassured.config.RestAssuredConfig;
@@ -40,6 +41,9 @@ public class ImagesControllerTest {
     @Value("${sample.token}")
     private String validOauthToken;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @Before
     public void setup() {
         RestAssured.port = port;
@@ -135,6 +139,28 @@ public class ImagesControllerTest {
                 .statusCode(200);
     }
 
+    @Test
+    public void thumbnailsByNomsIdLookTheOffenderUpOnlyOnce() {
+        given().auth().oauth2(validOauthToken).get("/offenders/nomsId/A1234AA/images/-1/thumbnail").then().statusCode(200);
+        final var hits = identityCacheGets("identity.nomsId", "hit");
+        final var misses = identityCacheGets("identity.nomsId", "miss");
+
+        given().auth().oauth2(validOauthToken).get("/offenders/nomsId/A1234AA/images/-1/thumbnail").then().statusCode(200);
+
+        assertThat(identityCacheGets("identity.nomsId", "hit")).isEqualTo(hits + 1);
+        assertThat(identityCacheGets("identity.nomsId", "miss")).isEqualTo(misses);
+    }
+
+    @Test
+    public void thumbnailsForUnknownNomsIdsDoNotLookTheOffenderUpAgain() {
+        given().auth().oauth2(validOauthToken).get("/offenders/nomsId/Z777777ZZ/images/-1/thumbnail").then().statusCode(404);
+        final var knownMissing = identityCacheGets("identity.nomsId.missing", "hit");
+
+        given().auth().oauth2(validOauthToken).get("/offenders/nomsId/Z777777ZZ/images/-1/thumbnail").then().statusCode(404);
+
+        assertThat(identityCacheGets("identity.nomsId.missing", "hit")).isEqualTo(knownMissing + 1);
+    }
+
     @Test
     public void getThumbnailByOffenderIdAndImageIdReturns404WhenOffenderNotFound() {
         given()
@@ -155,6 +181,10 @@ public class ImagesControllerTest {
                 .statusCode(404);
     }
 
+    private double identityCacheGets(final String cache, final String result) {
+        return meterRegistry.get("cache.gets").tags("cache", cache, "result", result).functionCounter().count();
+    }
+
     <T> void assertThatJsonFile(final String response, final String jsonFile) {
         final var responseAsJson = getBodyAsJsonContent(response);
         assertThat(responseAsJson).isEqualToJson(jsonFile);
@@ -1,6 +1,10 @@
 package uk.gov.justice.digital.nomis.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.google.common.collect.ImmutableList;
+import io.micrometer.core.instrument.MeterRegistry;
 import io.restassured.RestAssured;
 import io.restassured.config.ObjectMapperConfig;
 import io.restassured.config.RestAssuredConfig;
@@ -17,6 +21,8 @@ import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 
+import java.io.IOException;
+import java.util.List;
 import java.util.Objects;
 
 import static io.restassured.RestAssured.given;
@@ -40,6 +46,9 @@ public class OffenderControllerTest {
     @Value("${sample.token}")
     private String validOauthToken;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @Before
     public void setup() {
         RestAssured.port = port;
@@ -116,6 +125,84 @@ public class OffenderControllerTest {
                 .statusCode(404);
     }
 
+    @Test
+    public void offendersByNomsIdAreLookedUpOnlyOnce() {
+        given().auth().oauth2(validOauthToken).get("/offenders/nomsId/A1234AA").then().statusCode(200);
+        final var hits = identityCacheGets("identity.nomsId", "hit");
+        final var misses = identityCacheGets("identity.nomsId", "miss");
+
+        given().auth().oauth2(validOauthToken).get("/offenders/nomsId/A1234AA").then().statusCode(200);
+
+        assertThat(identityCacheGets("identity.nomsId", "hit")).isEqualTo(hits + 1);
+        assertThat(identityCacheGets("identity.nomsId", "miss")).isEqualTo(misses);
+    }
+
+    @Test
+    public void unknownNomsIdsAreNotLookedUpAgain() {
+        given().auth().oauth2(validOauthToken).get("/offenders/nomsId/Z777777ZZ").then().statusCode(404);
+        final var knownMissing = identityCacheGets("identity.nomsId.missing", "hit");
+
+        given().auth().oauth2(validOauthToken).get("/offenders/nomsId/Z777777ZZ").then().statusCode(404);
+
+        assertThat(identityCacheGets("identity.nomsId.missing", "hit")).isEqualTo(knownMissing + 1);
+    }
+
+    @Test
+    public void unknownFieldsAreABadRequest() {
+        given()
+                .when()
+                .auth().oauth2(validOauthToken)
+                .queryParam("fields", "nomsId,shoeSize")
+                .get("/offenders/nomsId/A1234AA")
+                .then()
+                .statusCode(400);
+    }
+
+    @Test
+    public void onlySelectedFieldsAreWritten() throws IOException {
+        final var offender = given()
+                .when()
+                .auth().oauth2(validOauthToken)
+                .queryParam("fields", "nomsId,firstName")
+                .get("/offenders/nomsId/A1234AA")
+                .then()
+                .statusCode(200)
+                .extract()
+                .body()
+                .asByteArray();
+
+        assertThat(fieldNamesOf(objectMapper, offender)).containsOnly("nomsId", "firstName");
+    }
+
+    @Test
+    public void binaryFormatsWriteOnlySelectedFieldsToo() throws IOException {
+        final var cbor = given()
+                .when()
+                .auth().oauth2(validOauthToken)
+                .accept("application/cbor")
+                .queryParam("fields", "nomsId,firstName")
+                .get("/offenders/offenderId/-1001")
+                .then()
+                .statusCode(200)
+                .extract()
+                .body()
+                .asByteArray();
+        final var smile = given()
+                .when()
+                .auth().oauth2(validOauthToken)
+                .accept("application/x-jackson-smile")
+                .queryParam("fields", "nomsId,firstName")
+                .get("/offenders/offenderId/-1001")
+                .then()
+                .statusCode(200)
+                .extract()
+                .body()
+                .asByteArray();
+
+        assertThat(fieldNamesOf(new ObjectMapper(new CBORFactory()), cbor)).containsOnly("nomsId", "firstName");
+        assertThat(fieldNamesOf(new ObjectMapper(new SmileFactory()), smile)).containsOnly("nomsId", "firstName");
+    }
+
     @Test
     public void offenderByNomsIdIsAuthorized() {
         given()
@@ -188,6 +275,14 @@ public class OffenderControllerTest {
                 .statusCode(404);
     }
 
+    private static List<String> fieldNamesOf(final ObjectMapper mapper, final byte[] body) throws IOException {
+        return ImmutableList.copyOf(mapper.readTree(body).fieldNames());
+    }
+
+    private double identityCacheGets(final String cache, final String result) {
+        return meterRegistry.get("cache.gets").tags("cache", cache, "result", result).functionCounter().count();
+    }
+
     <T> void assertThatJsonFile(final String response, final String jsonFile) {
         final var responseAsJson = getBodyAsJsonContent(response);
         assertThat(responseAsJson).isEqualToJson(jsonFile);
@@ -2,11 +2,14 @@ package uk.gov.justice.digital.nomis.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.ImmutableList;
+import com.google.common.hash.Hashing;
 import io.restassured.RestAssured;
 import io.restassured.config.ObjectMapperConfig;
 import io.restassured.config.RestAssuredConfig;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.mockito.ArgumentMatchers;
 import org.mockito.Mockito;
@@ -17,17 +20,35 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.json.JsonContent;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import uk.gov.justice.digital.nomis.api.EventArchivePartition;
+import uk.gov.justice.digital.nomis.api.EventSource;
 import uk.gov.justice.digital.nomis.api.OffenderEvent;
 import uk.gov.justice.digital.nomis.jpa.filters.OffenderEventsFilter;
+import uk.gov.justice.digital.nomis.service.EventArchiveService;
+import uk.gov.justice.digital.nomis.service.EventCursor;
 import uk.gov.justice.digital.nomis.service.XtagEventsService;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.Comparator;
-import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
 import static io.restassured.RestAssured.given;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -39,8 +60,12 @@ import static org.springframework.core.ResolvableType.forType;
 @DirtiesContext
 public class OffenderEventsControllerTest {
 
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
     @MockBean
     public XtagEventsService xtagEventsService;
+    @MockBean
+    public EventArchiveService eventArchiveService;
     @LocalServerPort
     int port;
     @Autowired
@@ -63,7 +88,7 @@ public class OffenderEventsControllerTest {
         final var to = from.plusDays(1L);
 
         final var filter = OffenderEventsFilter.builder().from(from).to(to).build();
-        Mockito.when(xtagEventsService.findAll(ArgumentMatchers.eq(filter))).thenReturn(someXtagEvents(from));
+        Mockito.when(xtagEventsService.findAll(ArgumentMatchers.eq(filter))).thenReturn(someXtagEvents(from).reverse());
 
         final var offenderEvents = given()
                 .when()
@@ -86,7 +111,7 @@ public class OffenderEventsControllerTest {
         final var to = from.plusDays(1L);
 
         final var filter = OffenderEventsFilter.builder().from(from).to(to).build();
-        Mockito.when(xtagEventsService.findAll(ArgumentMatchers.eq(filter))).thenReturn(someXtagEvents(from));
+        Mockito.when(xtagEventsService.findAll(ArgumentMatchers.eq(filter))).thenReturn(someXtagEvents(from).reverse());
 
         final var offenderEvents = given()
                 .when()
@@ -110,7 +135,7 @@ public class OffenderEventsControllerTest {
         final var to = from.plusDays(1L);
 
         final var filter = OffenderEventsFilter.builder().from(from).to(to).build();
-        Mockito.when(xtagEventsService.findAll(ArgumentMatchers.eq(filter))).thenReturn(someXtagEvents(from));
+        Mockito.when(xtagEventsService.findAll(ArgumentMatchers.eq(filter))).thenReturn(someXtagEvents(from).reverse());
 
         final var offenderEvents = given()
                 .when()
@@ -133,7 +158,7 @@ public class OffenderEventsControllerTest {
         final var from = LocalDateTime.of(2018, 10, 29, 0, 0);
         final var to = from.plusDays(1L);
 
-        final var filter = OffenderEventsFilter.builder().from(from).to(to).build();
+        final var filter = OffenderEventsFilter.builder().from(from).to(to).direction(Sort.Direction.ASC).build();
         Mockito.when(xtagEventsService.findAll(ArgumentMatchers.eq(filter))).thenReturn(someXtagEvents(from));
 
         final var offenderEvents = given()
@@ -158,7 +183,7 @@ public class OffenderEventsControllerTest {
         final var to = from.plusDays(1L);
 
         final var filter = OffenderEventsFilter.builder().from(from).to(to).build();
-        Mockito.when(xtagEventsService.findAll(ArgumentMatchers.eq(filter))).thenReturn(someXtagEvents(from));
+        Mockito.when(xtagEventsService.findAll(ArgumentMatchers.eq(filter))).thenReturn(someXtagEvents(from).reverse());
 
         given()
                 .when()
@@ -177,7 +202,7 @@ public class OffenderEventsControllerTest {
         final var to = from.plusDays(1L);
 
         final var filter = OffenderEventsFilter.builder().from(from).to(to).build();
-        Mockito.when(xtagEventsService.findAll(ArgumentMatchers.eq(filter))).thenReturn(someXtagEvents(from));
+        Mockito.when(xtagEventsService.findAll(ArgumentMatchers.eq(filter))).thenReturn(someXtagEvents(from).reverse());
 
         final var offenderEvents = given()
                 .when()
@@ -197,11 +222,73 @@ public class OffenderEventsControllerTest {
 
     }
 
-    private List<OffenderEvent> someXtagEvents(final LocalDateTime now) {
+    @Test
+    public void canPageThroughEventsWithACursor() {
+        final var from = LocalDateTime.of(2018, 10, 29, 0, 0);
+        final var to = from.plusDays(1L);
+
+        Mockito.when(xtagEventsService.stream(ArgumentMatchers.any(OffenderEventsFilter.class))).thenAnswer(invocation -> someXtagEvents(from).stream());
+
+        final var firstPage = given()
+                .when()
+                .auth().oauth2(validOauthToken)
+                .queryParam("from", from.toString())
+                .queryParam("to", to.toString())
+                .queryParam("sortBy", "TIMESTAMP_ASC")
+                .queryParam("limit", 3)
+                .get("/events")
+                .then()
+                .statusCode(200)
+                .extract()
+                .response();
+
+        final var secondPage = given()
+                .when()
+                .auth().oauth2(validOauthToken)
+                .queryParam("to", to.toString())
+                .queryParam("sortBy", "TIMESTAMP_ASC")
+                .queryParam("cursor", firstPage.header(OffenderEventsController.NEXT_CURSOR))
+                .queryParam("limit", 10)
+                .get("/events")
+                .then()
+                .statusCode(200)
+                .extract()
+                .response();
+
+        final var events = ImmutableList.<OffenderEvent>builder()
+                .add(firstPage.as(OffenderEvent[].class))
+                .add(secondPage.as(OffenderEvent[].class))
+                .build();
+
+        assertThat(firstPage.as(OffenderEvent[].class)).hasSize(3);
+        assertThat(events).extracting("eventDatetime").containsExactly(
+                from.plusSeconds(1L),
+                from.plusSeconds(2L),
+                from.plusSeconds(3L),
+                from.plusSeconds(4L),
+                from.plusSeconds(5L),
+                LocalDateTime.of(2018, 10, 29, 10, 43, 46),
+                LocalDateTime.of(2018, 10, 29, 10, 44, 53));
+    }
+
+    @Test
+    public void cannotUseMadeUpCursor() {
+        given()
+                .when()
+                .auth().oauth2(validOauthToken)
+                .queryParam("cursor", "not-a-cursor")
+                .get("/events")
+                .then()
+                .statusCode(400);
+    }
+
+    private ImmutableList<OffenderEvent> someXtagEvents(final LocalDateTime now) {
         return ImmutableList.of(
                 OffenderEvent.builder()
                         .nomisEventType("BOOK_UPD_OASYS")
                         .eventType("BOOKING_NUMBER-CHANGED")
+                        .eventId("00000000000000000000000000000001")
+                        .eventSource(EventSource.XTAG)
                         .eventDatetime(now.plusSeconds(1L))
                         .offenderId(-1001L)
                         .rootOffenderId(-1001L)
@@ -209,6 +296,8 @@ public class OffenderEventsControllerTest {
                 OffenderEvent.builder()
                         .nomisEventType("OFF_RECEP_OASYS")
                         .eventType("OFFENDER_MOVEMENT-RECEPTION")
+                        .eventId("00000000000000000000000000000002")
+                        .eventSource(EventSource.XTAG)
                         .eventDatetime(now.plusSeconds(2L))
                         .offenderId(-1001L)
                         .rootOffenderId(-1001L)
@@ -216,6 +305,8 @@ public class OffenderEventsControllerTest {
                 OffenderEvent.builder()
                         .nomisEventType("OFF_DISCH_OASYS")
                         .eventType("OFFENDER_MOVEMENT-DISCHARGE")
+                        .eventId("00000000000000000000000000000003")
+                        .eventSource(EventSource.XTAG)
                         .eventDatetime(now.plusSeconds(3L))
                         .offenderId(-1001L)
                         .rootOffenderId(-1001L)
@@ -223,6 +314,8 @@ public class OffenderEventsControllerTest {
                 OffenderEvent.builder()
                         .nomisEventType("OFF_UPD_OASYS")
                         .eventType("OFFENDER_DETAILS-CHANGED")
+                        .eventId("00000000000000000000000000000004")
+                        .eventSource(EventSource.XTAG)
                         .eventDatetime(now.plusSeconds(4L))
                         .offenderId(-1001L)
                         .rootOffenderId(-1001L)
@@ -230,12 +323,209 @@ public class OffenderEventsControllerTest {
                 OffenderEvent.builder()
                         .nomisEventType("OFF_UPD_OASYS")
                         .eventType("OFFENDER_DETAILS-CHANGED")
+                        .eventId("00000000000000000000000000000005")
+                        .eventSource(EventSource.XTAG)
                         .eventDatetime(now.plusSeconds(5L))
                         .offenderId(-1002L)
                         .rootOffenderId(-1002L)
                         .build());
     }
 
+    @Test
+    public void longPollsThatTimeOutStillReturnACursorToResumeFrom() {
+        final var response = given()
+                .when()
+                .auth().oauth2(validOauthToken)
+                .queryParam("wait", 1)
+                .get("/events/poll")
+                .then()
+                .statusCode(200)
+                .extract();
+
+        assertThat(response.body().as(OffenderEvent[].class)).isEmpty();
+        assertThat(EventCursor.decode(response.header(OffenderEventsController.NEXT_CURSOR)).getEventDatetime()).isBefore(LocalDateTime.now());
+    }
+
+    @Test
+    public void archivedDaysAreNotSentAgainToClientsThatHaveThem() throws IOException {
+        final var etag = archivedDay(LocalDate.of(2020, 6, 14), "archived events");
+
+        given()
+                .when()
+                .auth().oauth2(validOauthToken)
+                .header(HttpHeaders.IF_NONE_MATCH, etag)
+                .get("/events/archive/2020-06-14")
+                .then()
+                .statusCode(304)
+                .header(HttpHeaders.ETAG, etag);
+
+        final var head = given()
+                .when()
+                .auth().oauth2(validOauthToken)
+                .head("/events/archive/2020-06-14")
+                .then()
+                .statusCode(200)
+                .header(HttpHeaders.ETAG, etag)
+                .extract();
+        assertThat(head.body().asByteArray()).isEmpty();
+
+        final var body = given()
+                .when()
+                .auth().oauth2(validOauthToken)
+                .get("/events/archive/2020-06-14")
+                .then()
+                .statusCode(200)
+                .extract()
+                .body()
+                .asByteArray();
+        assertThat(new String(body, StandardCharsets.UTF_8)).isEqualTo("archived events");
+    }
+
+    private String archivedDay(final LocalDate date, final String content) throws IOException {
+        final var file = folder.newFile().toPath();
+        Files.writeString(file, content);
+        final var partition = EventArchivePartition.builder()
+                .date(date)
+                .file(file.getFileName().toString())
+                .bytes(Files.size(file))
+                .sha256(Hashing.sha256().hashBytes(Files.readAllBytes(file)).toString())
+                .build();
+        Mockito.when(eventArchiveService.getPartition(date)).thenReturn(Optional.of(partition));
+        Mockito.when(eventArchiveService.fileOf(partition)).thenReturn(file);
+        return "\"" + partition.getSha256() + "\"";
+    }
+
+    @Test
+    public void requestsTurnedAwayByAFullFetchPoolAreRetriedLater() {
+        final var from = LocalDateTime.of(2018, 11, 5, 0, 0);
+        Mockito.when(xtagEventsService.findAll(ArgumentMatchers.any())).thenThrow(new RejectedExecutionException("Fetch pool full"));
+
+        given()
+                .when()
+                .auth().oauth2(validOauthToken)
+                .queryParam("from", from.toString())
+                .queryParam("to", from.plusHours(12).toString())
+                .get("/events")
+                .then()
+                .statusCode(503)
+                .header(HttpHeaders.RETRY_AFTER, "1");
+    }
+
+    @Test
+    public void fetchesThatTimeOutAreAGatewayTimeout() {
+        final var from = LocalDateTime.of(2018, 11, 6, 0, 0);
+        Mockito.when(xtagEventsService.findAll(ArgumentMatchers.any())).thenThrow(new QueryTimeoutException("Fetching XTAG events timed out"));
+
+        given()
+                .when()
+                .auth().oauth2(validOauthToken)
+                .queryParam("from", from.toString())
+                .queryParam("to", from.plusHours(12).toString())
+                .get("/events")
+                .then()
+                .statusCode(504);
+    }
+
+    @Test
+    public void eventsCanBeStreamedOnePerLineInOrderWithOnlyTheSelectedFields() throws IOException {
+        final var from = LocalDateTime.of(2018, 10, 29, 0, 0);
+        final var to = from.plusDays(1L);
+        Mockito.when(xtagEventsService.findAll(ArgumentMatchers.any())).thenReturn(someXtagEvents(from));
+        Mockito.when(xtagEventsService.stream(ArgumentMatchers.any())).thenAnswer(invocation -> someXtagEvents(from).stream());
+
+        final var json = given()
+                .when()
+                .auth().oauth2(validOauthToken)
+                .queryParam("from", from.toString())
+                .queryParam("to", to.toString())
+                .queryParam("sortBy", "TIMESTAMP_ASC")
+                .queryParam("fields", "eventId,eventType,eventDatetime")
+                .get("/events")
+                .then()
+                .statusCode(200)
+                .extract()
+                .body()
+                .asString();
+
+        final var ndjson = given()
+                .when()
+                .auth().oauth2(validOauthToken)
+                .accept(OffenderEventsController.APPLICATION_NDJSON_VALUE)
+                .queryParam("from", from.toString())
+                .queryParam("to", to.toString())
+                .queryParam("sortBy", "TIMESTAMP_ASC")
+                .queryParam("fields", "eventId,eventType,eventDatetime")
+                .get("/events")
+                .then()
+                .statusCode(200)
+                .contentType(OffenderEventsController.APPLICATION_NDJSON_VALUE)
+                .extract()
+                .body()
+                .asString();
+
+        // One object per line, the same events in the same order as the JSON array
+        final var expected = objectMapper.readTree(json);
+        final var lines = ndjson.split("\n");
+        assertThat(ndjson).endsWith("\n");
+        assertThat(lines).hasSize(expected.size()).hasSizeGreaterThanOrEqualTo(someXtagEvents(from).size());
+        for (var i = 0; i < lines.length; i++) {
+            final var event = objectMapper.readTree(lines[i]);
+            assertThat(event).isEqualTo(expected.get(i));
+            assertThat(ImmutableList.copyOf(event.fieldNames())).containsOnly("eventId", "eventType", "eventDatetime");
+        }
+    }
+
+    @Test
+    public void streamsAreClosedWhenTheClientGoesAway() throws Exception {
+        final var from = LocalDateTime.of(2018, 11, 7, 0, 0);
+        final var closed = new CountDownLatch(1);
+        // More events than the client will ever read
+        Mockito.when(xtagEventsService.stream(ArgumentMatchers.any())).thenAnswer(invocation -> Stream.iterate(1L, n -> n + 1L)
+                .map(n -> OffenderEvent.builder()
+                        .eventId(String.valueOf(n))
+                        .eventType("ALERT-INSERTED")
+                        .eventSource(EventSource.XTAG)
+                        .eventDatetime(from.plusNanos(n))
+                        .build())
+                .onClose(closed::countDown));
+
+        try (final var socket = new Socket("localhost", port)) {
+            final var request = "GET /events?from=" + from + "&to=" + from.plusDays(1L) + "&sortBy=TIMESTAMP_ASC HTTP/1.1\r\n" +
+                    "Host: localhost\r\n" +
+                    "Authorization: Bearer " + validOauthToken + "\r\n" +
+                    "Accept: " + OffenderEventsController.APPLICATION_NDJSON_VALUE + "\r\n\r\n";
+            socket.getOutputStream().write(request.getBytes(StandardCharsets.US_ASCII));
+            socket.getOutputStream().flush();
+
+            final var response = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            assertThat(response.readLine()).startsWith("HTTP/1.1 200");
+            var line = response.readLine();
+            while (line != null && !line.contains("ALERT-INSERTED")) {
+                line = response.readLine();
+            }
+            assertThat(line).contains("ALERT-INSERTED");
+        }
+
+        assertThat(closed.await(10, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    public void gzipIsOnlyAcceptedWithANonZeroQuality() {
+        assertThat(OffenderEventsController.acceptsGzip(acceptEncoding("gzip, deflate"))).isTrue();
+        assertThat(OffenderEventsController.acceptsGzip(acceptEncoding("deflate, gzip;q=0.5"))).isTrue();
+        assertThat(OffenderEventsController.acceptsGzip(acceptEncoding("gzip;q=0"))).isFalse();
+        assertThat(OffenderEventsController.acceptsGzip(acceptEncoding("*;q=1, gzip;q=0"))).isFalse();
+        assertThat(OffenderEventsController.acceptsGzip(acceptEncoding("br, *"))).isTrue();
+        assertThat(OffenderEventsController.acceptsGzip(acceptEncoding("identity"))).isFalse();
+        assertThat(OffenderEventsController.acceptsGzip(new HttpHeaders())).isFalse();
+    }
+
+    private HttpHeaders acceptEncoding(final String value) {
+        final var headers = new HttpHeaders();
+        headers.add(HttpHeaders.ACCEPT_ENCODING, value);
+        return headers;
+    }
+
     <T> void assertThatJsonFile(final String response, final String jsonFile) {
         final var responseAsJson = getBodyAsJsonContent(response);
         assertThat(responseAsJson).isEqualToJson(jsonFile);
@@ -0,0 +1,51 @@
+package uk.gov.justice.digital.nomis.jpa.repository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+
+import java.time.LocalDateTime;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+public class FetchSizePolicyTest {
+
+    private static final LocalDateTime FROM = LocalDateTime.of(2020, 6, 14, 0, 0);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    // 1MB at 1KB a row caps the fetch size at 1024
+    private final FetchSizePolicy policy = new FetchSizePolicies(meterRegistry, 10, 10000, 1_048_576L, 100.0)
+            .policyOf("test", 1024);
+
+    @Test
+    public void fetchSizeCoversTheEstimateWithinTheBounds() {
+        assertThat(policy.forRows(0L)).isEqualTo(10);
+        assertThat(policy.forRows(199L)).isEqualTo(200);
+        assertThat(policy.forRows(1_000_000L)).isEqualTo(1024);
+    }
+
+    @Test
+    public void windowsAreSizedFromTheRowsPerHourSeenSoFar() {
+        assertThat(policy.forWindow(FROM, FROM.plusHours(2L))).isEqualTo(201);
+        assertThat(policy.forWindow(null, FROM)).isEqualTo(1024);
+
+        policy.record(600L, 201, FROM, FROM.plusHours(1L));
+
+        assertThat(policy.getRowsPerHour()).isCloseTo(200.0, within(1e-9));
+        assertThat(policy.forWindow(FROM, FROM.plusHours(2L))).isEqualTo(401);
+    }
+
+    @Test
+    public void rowsReadAndEstimatedFetchesAreRecordedWhenTheStreamIsClosed() {
+        try (final var rows = policy.recording(Stream.of(1, 2, 3, 4, 5), 2)) {
+            assertThat(rows.collect(Collectors.toList())).hasSize(5);
+        }
+
+        assertThat(meterRegistry.summary("jdbc.fetch.rows", "query", "test").totalAmount()).isEqualTo(5.0);
+        assertThat(meterRegistry.counter("jdbc.fetch.estimated-round-trips", "query", "test").count()).isEqualTo(3.0);
+        assertThat(meterRegistry.summary("jdbc.fetch.estimated-rows-per-fetch", "query", "test").mean()).isEqualTo(5.0 / 3.0);
+    }
+}
@@ -0,0 +1,45 @@
+package uk.gov.justice.digital.nomis.jpa.repository;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@SpringBootTest
+@RunWith(SpringJUnit4ClassRunner.class)
+@ActiveProfiles("dev")
+@Transactional
+public class OffenderExternalMovementsRepositoryTest {
+
+    @Autowired
+    private OffenderExternalMovementsRepository repository;
+
+    @Test
+    public void onlyTheGivenMovementsOfEachBookingAreRead() {
+        final var summaries = repository.findSummariesByOffenderBookIdAndMovementSeqIn(List.of(
+                Map.entry(-17L, 2L),
+                Map.entry(-17L, 5L),
+                Map.entry(-19L, 1L),
+                Map.entry(-19L, 99L)));
+
+        assertThat(summaries)
+                .extracting("bookingId", "movementSeq")
+                .containsExactlyInAnyOrder(tuple(-17L, 2L), tuple(-17L, 5L), tuple(-19L, 1L));
+        assertThat(summaries).filteredOn("movementSeq", 2L).extracting("fromAgyLocId", "toAgyLocId", "directionCode")
+                .containsExactly(tuple("LEI", "BMI", "OUT"));
+    }
+
+    @Test
+    public void noMovementsAreReadForNoPairs() {
+        assertThat(repository.findSummariesByOffenderBookIdAndMovementSeqIn(List.of())).isEmpty();
+    }
+}
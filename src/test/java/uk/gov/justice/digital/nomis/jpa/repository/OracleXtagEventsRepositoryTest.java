@@ -0,0 +1,90 @@
+package uk.gov.justice.digital.nomis.jpa.repository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import oracle.sql.STRUCT;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import uk.gov.justice.digital.nomis.jpa.entity.XtagEventNonJpa;
+import uk.gov.justice.digital.nomis.jpa.filters.OffenderEventsFilter;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class OracleXtagEventsRepositoryTest {
+
+    private static final LocalDateTime FROM = LocalDateTime.of(2020, 6, 14, 0, 0);
+    private static final Timestamp ENQ_TIME = Timestamp.valueOf(FROM.plusMinutes(5));
+    private static final String MSG_ID = "0A1B2C3D4E5F";
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+    @Mock
+    private DataSource dataSource;
+    @Mock
+    private Connection connection;
+    @Mock
+    private PreparedStatement statement;
+    @Mock
+    private ResultSet resultSet;
+
+    private final STRUCT userData = mock(STRUCT.class);
+
+    @Before
+    public void setUp() throws SQLException {
+        when(jdbcTemplate.getDataSource()).thenReturn(dataSource);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true, false);
+    }
+
+    @Test
+    public void theLeanAndFullRowReadsBindTheSameColumnsToTheSameFields() throws SQLException {
+        when(resultSet.getTimestamp(1)).thenReturn(ENQ_TIME);
+        when(resultSet.getObject(2)).thenReturn(userData);
+        when(resultSet.getString(3)).thenReturn(MSG_ID);
+        final var lean = onlyRowOf(repositoryOf(false));
+
+        when(resultSet.next()).thenReturn(true, false);
+        when(resultSet.getTimestamp("ENQ_TIME")).thenReturn(ENQ_TIME);
+        when(resultSet.getObject("USER_DATA")).thenReturn(userData);
+        when(resultSet.getString("MSGID")).thenReturn(MSG_ID);
+        final var full = onlyRowOf(repositoryOf(true));
+
+        assertThat(lean.getEnqTime()).isEqualTo(ENQ_TIME).isEqualTo(full.getEnqTime());
+        assertThat(lean.getUserData()).isSameAs(userData).isSameAs(full.getUserData());
+        assertThat(lean.getMsgId()).isEqualTo(MSG_ID).isEqualTo(full.getMsgId());
+    }
+
+    private OracleXtagEventsRepository repositoryOf(final boolean fullRow) {
+        return new OracleXtagEventsRepository(jdbcTemplate, new FetchSizePolicies(new SimpleMeterRegistry(), 10, 10000, 4_194_304L, 1000.0),
+                fullRow, Duration.ofMinutes(2));
+    }
+
+    private XtagEventNonJpa onlyRowOf(final OracleXtagEventsRepository repository) {
+        final var filter = OffenderEventsFilter.builder().from(FROM).to(FROM.plusHours(1L)).direction(Sort.Direction.ASC).build();
+        try (final var rows = repository.stream(filter)) {
+            final var read = rows.collect(Collectors.toList());
+            assertThat(read).hasSize(1);
+            return read.get(0);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package uk.gov.justice.digital.nomis.service;
+
+import org.junit.Test;
+import org.springframework.data.domain.Sort;
+import uk.gov.justice.digital.nomis.api.EventSource;
+import uk.gov.justice.digital.nomis.api.OffenderEvent;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ColumnarEventStoreTest {
+
+    private static final LocalDateTime HOUR = LocalDateTime.of(2020, 6, 14, 14, 0);
+
+    private final ColumnarEventStore store = new ColumnarEventStore();
+
+    @Test
+    public void everyFieldSurvivesTheRoundTrip() throws IllegalAccessException {
+        final var event = new OffenderEvent();
+        var n = 1L;
+        for (final Field field : OffenderEvent.class.getDeclaredFields()) {
+            if (Modifier.isStatic(field.getModifiers())) {
+                continue;
+            }
+            field.setAccessible(true);
+            field.set(event, sampleOf(field.getType(), n++));
+        }
+        event.setEventDatetime(HOUR.plusMinutes(5).plusNanos(123_456_789));
+
+        store.add(List.of(event));
+
+        assertThat(store.find(HOUR, HOUR.plusHours(1), Sort.Direction.ASC, Optional.empty(), Optional.empty()))
+                .containsExactly(event);
+    }
+
+    @Test
+    public void rangesAreInclusiveAndAcrossHoursInEitherDirection() {
+        final var first = event("1", "A", HOUR.plusMinutes(59), EventSource.XTAG, 1L);
+        final var second = event("2", "B", HOUR.plusHours(1), EventSource.API_OFFENDER_EVENTS, 2L);
+        final var third = event("3", "A", HOUR.plusHours(2), EventSource.XTAG, 1L);
+        store.add(List.of(third, first, second));
+
+        assertThat(store.find(HOUR.plusMinutes(59), HOUR.plusHours(1), Sort.Direction.ASC, Optional.empty(), Optional.empty()))
+                .containsExactly(first, second);
+        assertThat(store.find(HOUR, HOUR.plusHours(3), Sort.Direction.DESC, Optional.empty(), Optional.empty()))
+                .containsExactly(third, second, first);
+        assertThat(store.find(HOUR, HOUR.plusHours(3), Sort.Direction.ASC, Optional.of(Set.of("A")), Optional.empty()))
+                .containsExactly(first, third);
+        assertThat(store.find(HOUR, HOUR.plusHours(3), Sort.Direction.ASC, Optional.of(Set.of("UNKNOWN")), Optional.empty()))
+                .isEmpty();
+    }
+
+    @Test
+    public void offenderQueriesFollowTheDatabaseRules() {
+        final var apiEvent = event("1", "A", HOUR.plusMinutes(1), EventSource.API_OFFENDER_EVENTS, 1L);
+        apiEvent.setOffenderId(9L);
+        final var xtagEvent = event("2", "B", HOUR.plusMinutes(2), EventSource.XTAG, null);
+        xtagEvent.setOffenderId(9L);
+        final var ownedEvent = event("3", "C", HOUR.plusMinutes(3), EventSource.XTAG, null);
+        ownedEvent.setOwnerId(9L);
+        ownedEvent.setOwnerClass("OFF");
+        store.add(List.of(apiEvent, xtagEvent, ownedEvent));
+
+        assertThat(store.find(HOUR, HOUR.plusHours(1), Sort.Direction.ASC, Optional.empty(), Optional.of(9L)))
+                .containsExactly(xtagEvent, ownedEvent);
+        assertThat(store.find(HOUR, HOUR.plusHours(1), Sort.Direction.DESC, Optional.empty(), Optional.of(1L)))
+                .containsExactly(apiEvent);
+    }
+
+    @Test
+    public void eventsAlreadyHeldAreNotAddedAgain() {
+        final var first = event("1", "A", HOUR.plusMinutes(1), EventSource.XTAG, 1L);
+        final var second = event("2", "A", HOUR.plusMinutes(1), EventSource.XTAG, 1L);
+
+        assertThat(store.add(List.of(first))).isEqualTo(1);
+        assertThat(store.add(List.of(first, second, second))).isEqualTo(1);
+
+        assertThat(store.size()).isEqualTo(2L);
+        assertThat(store.find(HOUR, HOUR.plusHours(1), Sort.Direction.ASC, Optional.empty(), Optional.empty()))
+                .containsExactly(first, second);
+    }
+
+    @Test
+    public void wholeHoursAreEvicted() {
+        store.add(List.of(
+                event("1", "A", HOUR.plusMinutes(10), EventSource.XTAG, 1L),
+                event("2", "A", HOUR.plusMinutes(70), EventSource.XTAG, 1L)));
+
+        store.evictBefore(HOUR.plusMinutes(90));
+
+        assertThat(store.size()).isEqualTo(1L);
+        assertThat(store.find(HOUR, HOUR.plusHours(2), Sort.Direction.ASC, Optional.empty(), Optional.empty())
+                .map(OffenderEvent::getEventId).collect(Collectors.toList()))
+                .containsExactly("2");
+    }
+
+    private OffenderEvent event(final String id, final String type, final LocalDateTime eventDatetime, final EventSource source, final Long rootOffenderId) {
+        return OffenderEvent.builder()
+                .eventId(id)
+                .eventType(type)
+                .eventDatetime(eventDatetime)
+                .eventSource(source)
+                .rootOffenderId(rootOffenderId)
+                .build();
+    }
+
+    private Object sampleOf(final Class<?> type, final long n) {
+        if (type == Long.class) {
+            return n;
+        }
+        if (type == Integer.class) {
+            return (int) n;
+        }
+        if (type == String.class) {
+            return "S" + n;
+        }
+        if (type == LocalDateTime.class) {
+            return HOUR.plusSeconds(n);
+        }
+        if (type == LocalDate.class) {
+            return HOUR.toLocalDate().plusDays(n);
+        }
+        if (type == EventSource.class) {
+            return EventSource.XTAG;
+        }
+        throw new IllegalArgumentException("No sample for " + type);
+    }
+}
@@ -0,0 +1,109 @@
+package uk.gov.justice.digital.nomis.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.hash.Hashing;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import uk.gov.justice.digital.nomis.CustodyApiApplication;
+import uk.gov.justice.digital.nomis.api.OffenderEvent;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class EventArchiveServiceTest {
+
+    private static final LocalDate DATE = LocalDate.of(2020, 6, 14);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Mock
+    private OffenderEventsService offenderEventsService;
+
+    @Test
+    public void aDayIsWrittenAsGzippedNdjsonWithItsChecksum() throws IOException {
+        when(offenderEventsService.streamEvents(eq(Optional.of(DATE.atStartOfDay())), eq(Optional.of(DATE.plusDays(1).atStartOfDay().minusNanos(1))),
+                any(), any(), any())).thenReturn(Stream.of(
+                OffenderEvent.builder().eventId("1").eventType("ALERT-INSERTED").eventDatetime(DATE.atTime(9, 0)).build(),
+                OffenderEvent.builder().eventId("2").eventType("ALERT-UPDATED").eventDatetime(DATE.atTime(10, 0)).build()));
+        final var service = serviceOf();
+
+        service.export(DATE);
+
+        final var partition = service.getPartition(DATE).orElseThrow();
+        final var file = service.fileOf(partition);
+        assertThat(partition.getEvents()).isEqualTo(2L);
+        assertThat(partition.getBytes()).isEqualTo(Files.size(file));
+        assertThat(partition.getSha256()).isEqualTo(Hashing.sha256().hashBytes(Files.readAllBytes(file)).toString());
+        try (final var in = new GZIPInputStream(Files.newInputStream(file))) {
+            assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8).lines())
+                    .containsExactly(
+                            "{\"eventId\":\"1\",\"eventType\":\"ALERT-INSERTED\",\"eventDatetime\":\"2020-06-14T09:00:00\"}",
+                            "{\"eventId\":\"2\",\"eventType\":\"ALERT-UPDATED\",\"eventDatetime\":\"2020-06-14T10:00:00\"}");
+        }
+    }
+
+    @Test
+    public void theManifestIsReadBackOnStart() {
+        when(offenderEventsService.streamEvents(any(), any(), any(), any(), any())).thenReturn(Stream.empty());
+        serviceOf().export(DATE);
+
+        final var restarted = serviceOf();
+        restarted.start();
+
+        assertThat(restarted.getPartitions()).extracting("date").containsExactly(DATE);
+    }
+
+    @Test
+    public void partitionsWithoutTheirFileAreDropped() throws IOException {
+        when(offenderEventsService.streamEvents(any(), any(), any(), any(), any())).thenReturn(Stream.empty());
+        final var service = serviceOf();
+        service.export(DATE);
+        Files.delete(service.fileOf(service.getPartition(DATE).orElseThrow()));
+
+        final var restarted = serviceOf();
+        restarted.start();
+
+        assertThat(restarted.getPartitions()).isEmpty();
+    }
+
+    @Test
+    public void partitionsWhoseFileNoLongerMatchesItsChecksumAreDropped() throws IOException {
+        when(offenderEventsService.streamEvents(any(), any(), any(), any(), any())).thenReturn(Stream.of(
+                OffenderEvent.builder().eventId("1").eventType("ALERT-INSERTED").eventDatetime(DATE.atTime(9, 0)).build()));
+        final var service = serviceOf();
+        service.export(DATE);
+        final var file = service.fileOf(service.getPartition(DATE).orElseThrow());
+        final var bytes = Files.readAllBytes(file);
+        bytes[bytes.length / 2] ^= 0x01;
+        Files.write(file, bytes);
+
+        final var restarted = serviceOf();
+        restarted.start();
+
+        assertThat(restarted.getPartitions()).isEmpty();
+    }
+
+    private EventArchiveService serviceOf() {
+        return new EventArchiveService(offenderEventsService, mock(ScheduledExecutorService.class), CustodyApiApplication.configure(new ObjectMapper()),
+                true, folder.getRoot().getPath(), Duration.ofHours(1), 7, Duration.ofHours(1));
+    }
+}
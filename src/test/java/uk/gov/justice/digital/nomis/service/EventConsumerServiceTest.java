@@ -0,0 +1,104 @@
+package uk.gov.justice.digital.nomis.service;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import uk.gov.justice.digital.nomis.api.EventSource;
+import uk.gov.justice.digital.nomis.jpa.entity.EventConsumerOffset;
+import uk.gov.justice.digital.nomis.jpa.repository.EventConsumerOffsetsRepository;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class EventConsumerServiceTest {
+
+    private static final LocalDateTime TIME = LocalDateTime.of(2020, 6, 1, 10, 0);
+
+    @Mock
+    private OffenderEventsService offenderEventsService;
+    @Mock
+    private EventConsumerOffsetsRepository repository;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private EventConsumerService service;
+
+    @Before
+    public void setUp() {
+        service = new EventConsumerService(offenderEventsService, repository, transactionManager, Duration.ofMinutes(1));
+    }
+
+    @Test
+    public void firstCommitCreatesTheOffset() {
+        when(repository.findForUpdate("client", "audit")).thenReturn(Optional.empty());
+
+        final var committed = service.commit("client", "audit", cursor(TIME, "5"));
+
+        assertThat(committed).isEqualTo(cursor(TIME, "5"));
+        verify(repository).saveAndFlush(argThat(offset ->
+                offset.getClientId().equals("client") && offset.getConsumerName().equals("audit") &&
+                        offset.getEventId().equals("5") && offset.getCreateDatetime() != null));
+    }
+
+    @Test
+    public void commitsOnlyMoveForward() {
+        when(repository.findForUpdate("client", "audit")).thenReturn(Optional.of(offset(TIME, "5")));
+
+        assertThat(service.commit("client", "audit", cursor(TIME, "4"))).isEqualTo(cursor(TIME, "5"));
+        assertThat(service.commit("client", "audit", cursor(TIME.minusMinutes(1), "9"))).isEqualTo(cursor(TIME, "5"));
+        verify(repository, never()).saveAndFlush(any());
+
+        assertThat(service.commit("client", "audit", cursor(TIME, "6"))).isEqualTo(cursor(TIME, "6"));
+        verify(repository).saveAndFlush(any());
+    }
+
+    @Test
+    public void aFirstCommitThatLosesTheRaceToCreateTheOffsetRetriesAgainstIt() {
+        when(repository.findForUpdate("client", "audit")).thenReturn(Optional.empty(), Optional.of(offset(TIME, "7")));
+        when(repository.saveAndFlush(any())).thenThrow(new DataIntegrityViolationException("API_EVENT_CONSUMER_OFFSETS_PK"));
+
+        assertThat(service.commit("client", "audit", cursor(TIME, "5"))).isEqualTo(cursor(TIME, "7"));
+    }
+
+    @Test
+    public void readsStopShortOfNowByTheLag() {
+        final var before = LocalDateTime.now().minusMinutes(1);
+        when(repository.findById(any())).thenReturn(Optional.empty());
+        when(offenderEventsService.getEvents(any(), any(), any(), any(), any(), any())).thenReturn(Optional.of(List.of()));
+
+        service.next("client", "audit", 10, Optional.empty(), Optional.of(TIME));
+
+        verify(offenderEventsService).getEvents(eq(Optional.of(TIME)), argThat(to -> !to.get().isBefore(before) && to.get().isBefore(LocalDateTime.now().minusSeconds(59))),
+                any(), any(), any(), any());
+    }
+
+    private EventCursor cursor(final LocalDateTime eventDatetime, final String eventId) {
+        return EventCursor.builder().eventDatetime(eventDatetime).eventSource(EventSource.XTAG).eventId(eventId).build();
+    }
+
+    private EventConsumerOffset offset(final LocalDateTime eventDatetime, final String eventId) {
+        return EventConsumerOffset.builder()
+                .clientId("client")
+                .consumerName("audit")
+                .eventDatetime(Timestamp.valueOf(eventDatetime))
+                .eventSource(EventSource.XTAG.name())
+                .eventId(eventId)
+                .build();
+    }
+}
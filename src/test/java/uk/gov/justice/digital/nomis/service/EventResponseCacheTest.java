@@ -0,0 +1,59 @@
+package uk.gov.justice.digital.nomis.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+import uk.gov.justice.digital.nomis.jpa.filters.OffenderEventsFilter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class EventResponseCacheTest {
+
+    private static final LocalDateTime FROM = LocalDateTime.of(2020, 6, 14, 0, 0);
+
+    private final EventResponseCache cache = new EventResponseCache(new SimpleMeterRegistry(), true, Duration.ofMinutes(10), 1_000_000L);
+
+    @Test
+    public void onlyWindowsClosedForTheSettleDelayAreCacheable() {
+        assertThat(cache.isCacheable(LocalDateTime.now().minusMinutes(11))).isTrue();
+        assertThat(cache.isCacheable(LocalDateTime.now().minusMinutes(9))).isFalse();
+    }
+
+    @Test
+    public void responsesAreLoadedOnceAndRoundTrip() {
+        final var loads = new AtomicInteger();
+        final var body = "[{\"eventType\":\"ALERT-INSERTED\"}]".getBytes(StandardCharsets.UTF_8);
+
+        final var first = cache.get(keyOf(Set.of("ALERT-INSERTED", "ALERT-UPDATED")), () -> {
+            loads.incrementAndGet();
+            return Optional.of(EventResponseCache.CachedResponse.of(body, Optional.of("next")));
+        });
+        final var second = cache.get(keyOf(Set.of("ALERT-UPDATED", "ALERT-INSERTED")), Optional::empty);
+
+        assertThat(loads).hasValue(1);
+        assertThat(second).isEqualTo(first);
+        assertThat(second.orElseThrow().getBody()).isEqualTo(body);
+        assertThat(second.orElseThrow().getEtag()).startsWith("\"").endsWith("\"");
+        assertThat(second.orElseThrow().getGzipEtag()).isEqualTo(second.orElseThrow().getEtag().replaceFirst("\"$", "-gzip\""));
+        assertThat(second.orElseThrow().getNextCursor()).contains("next");
+    }
+
+    @Test
+    public void nothingIsKeptWhenThereIsNothingToLoad() {
+        assertThat(cache.get(keyOf(Set.of("A")), Optional::empty)).isEmpty();
+
+        final var loaded = cache.get(keyOf(Set.of("A")), () -> Optional.of(EventResponseCache.CachedResponse.of(new byte[]{'[', ']'}, Optional.empty())));
+        assertThat(loaded).isPresent();
+    }
+
+    private EventResponseCache.Key keyOf(final Set<String> types) {
+        final var filter = OffenderEventsFilter.builder().from(FROM).to(FROM.plusDays(1)).types(Optional.of(types)).build();
+        return new EventResponseCache.Key(filter, Optional.empty(), Optional.empty(), "application/json");
+    }
+}
@@ -0,0 +1,132 @@
+package uk.gov.justice.digital.nomis.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import uk.gov.justice.digital.nomis.api.EventCount;
+import uk.gov.justice.digital.nomis.api.EventSource;
+import uk.gov.justice.digital.nomis.api.OffenderEvent;
+import uk.gov.justice.digital.nomis.jpa.projection.CaseNoteSummary;
+import uk.gov.justice.digital.nomis.jpa.projection.EventCountSummary;
+import uk.gov.justice.digital.nomis.jpa.repository.OffenderEventsRepository;
+import uk.gov.justice.digital.nomis.service.transformer.OffenderEventsTransformer;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class EventStatisticsServiceTest {
+
+    private static final LocalDateTime HOUR = LocalDateTime.of(2020, 6, 14, 10, 0);
+
+    @Mock
+    private OffenderEventsRepository offenderEventsRepository;
+    @Mock
+    private OffenderEventsTransformer offenderEventsTransformer;
+    @Mock
+    private XtagEventsService xtagEventsService;
+
+    private EventStatisticsService eventStatisticsService;
+
+    @Before
+    public void setUp() {
+        eventStatisticsService = new EventStatisticsService(offenderEventsRepository, offenderEventsTransformer, xtagEventsService,
+                new SimpleMeterRegistry(), Duration.ofMinutes(5), 100L);
+        when(offenderEventsRepository.countByTypeHourAndAgency(any(), any())).thenReturn(List.of(
+                new EventCountSummary("OFFENDER_MOVEMENT-RECEPTION", 2020, 6, 14, 10, "MDI", 3L),
+                new EventCountSummary("OFFENDER_MOVEMENT-RECEPTION", 2020, 6, 14, 11, "LEI", 2L)));
+        when(xtagEventsService.streamSummaries(any())).thenAnswer(invocation -> Stream.of(
+                xtagEvent("ALERT-INSERTED", HOUR.plusMinutes(5)),
+                xtagEvent("OFFENDER_MOVEMENT-RECEPTION", HOUR.plusMinutes(65))));
+    }
+
+    @Test
+    public void bothSourcesAreCountedAndRolledUp() {
+        final var statistics = eventStatisticsService.getStatistics(HOUR, HOUR.plusHours(2).minusNanos(1), Set.of(EventStatisticsService.GroupBy.TYPE));
+
+        assertThat(statistics.getTotal()).isEqualTo(7L);
+        assertThat(statistics.getGroupBy()).containsExactly("type");
+        assertThat(statistics.getCounts()).containsExactly(
+                EventCount.builder().eventType("ALERT-INSERTED").count(1L).build(),
+                EventCount.builder().eventType("OFFENDER_MOVEMENT-RECEPTION").count(6L).build());
+    }
+
+    @Test
+    public void caseNotesAreStreamedAndCountedByTheTypeInTheirEventData() {
+        final var closed = new AtomicBoolean();
+        when(offenderEventsRepository.streamCaseNotes(any(), any())).thenReturn(Stream.of(
+                new CaseNoteSummary(Timestamp.valueOf(HOUR.plusMinutes(10)), "MDI", "CASE_NOTE", "type code GEN sub_type code OBS", null, null))
+                .onClose(() -> closed.set(true)));
+        when(offenderEventsTransformer.caseNoteEventTypeOf(any(CaseNoteSummary.class))).thenReturn("GEN-OBS");
+
+        final var statistics = eventStatisticsService.getStatistics(HOUR, HOUR.plusHours(2).minusNanos(1), Set.of(EventStatisticsService.GroupBy.TYPE));
+
+        assertThat(statistics.getTotal()).isEqualTo(8L);
+        assertThat(statistics.getCounts()).contains(EventCount.builder().eventType("GEN-OBS").count(1L).build());
+        assertThat(closed).isTrue();
+    }
+
+    @Test
+    public void countsCanBeGroupedByHour() {
+        final var statistics = eventStatisticsService.getStatistics(HOUR, HOUR.plusHours(2).minusNanos(1),
+                Set.of(EventStatisticsService.GroupBy.TYPE, EventStatisticsService.GroupBy.HOUR));
+
+        assertThat(statistics.getCounts()).containsExactly(
+                EventCount.builder().eventType("ALERT-INSERTED").hour(HOUR).count(1L).build(),
+                EventCount.builder().eventType("OFFENDER_MOVEMENT-RECEPTION").hour(HOUR).count(3L).build(),
+                EventCount.builder().eventType("OFFENDER_MOVEMENT-RECEPTION").hour(HOUR.plusHours(1)).count(3L).build());
+    }
+
+    @Test
+    public void xtagEventsAreCountedUnderNoAgency() {
+        final var statistics = eventStatisticsService.getStatistics(HOUR, HOUR.plusHours(2).minusNanos(1),
+                Set.of(EventStatisticsService.GroupBy.TYPE, EventStatisticsService.GroupBy.AGENCY));
+
+        assertThat(statistics.getCounts()).containsExactlyInAnyOrder(
+                EventCount.builder().eventType("ALERT-INSERTED").count(1L).build(),
+                EventCount.builder().eventType("OFFENDER_MOVEMENT-RECEPTION").count(1L).build(),
+                EventCount.builder().eventType("OFFENDER_MOVEMENT-RECEPTION").agencyLocationId("MDI").count(3L).build(),
+                EventCount.builder().eventType("OFFENDER_MOVEMENT-RECEPTION").agencyLocationId("LEI").count(2L).build());
+    }
+
+    @Test
+    public void closedHoursAreOnlyCountedOnce() {
+        final var groupBy = Set.of(EventStatisticsService.GroupBy.HOUR);
+
+        final var first = eventStatisticsService.getStatistics(HOUR, HOUR.plusHours(2).minusNanos(1), groupBy);
+        final var second = eventStatisticsService.getStatistics(HOUR, HOUR.plusHours(2).minusNanos(1), groupBy);
+
+        assertThat(second).isEqualTo(first);
+        // Both hours were read in a single query, and not again
+        verify(offenderEventsRepository, times(1)).countByTypeHourAndAgency(any(), any());
+        verify(xtagEventsService, times(1)).streamSummaries(any());
+    }
+
+    @Test
+    public void partHoursAreNotCached() {
+        final var groupBy = Set.of(EventStatisticsService.GroupBy.TYPE);
+
+        eventStatisticsService.getStatistics(HOUR.plusMinutes(30), HOUR.plusMinutes(45), groupBy);
+        eventStatisticsService.getStatistics(HOUR.plusMinutes(30), HOUR.plusMinutes(45), groupBy);
+
+        verify(offenderEventsRepository, times(2)).countByTypeHourAndAgency(any(), any());
+    }
+
+    private OffenderEvent xtagEvent(final String type, final LocalDateTime eventDatetime) {
+        return OffenderEvent.builder().eventType(type).eventDatetime(eventDatetime).eventSource(EventSource.XTAG).build();
+    }
+}
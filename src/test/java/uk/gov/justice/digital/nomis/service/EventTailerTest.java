@@ -0,0 +1,184 @@
+package uk.gov.justice.digital.nomis.service;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import uk.gov.justice.digital.nomis.api.EventSource;
+import uk.gov.justice.digital.nomis.api.OffenderEvent;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class EventTailerTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.now();
+
+    @Mock
+    private OffenderEventsService offenderEventsService;
+
+    private EventTailer eventTailer;
+
+    @Before
+    public void setUp() {
+        eventTailer = tailerWith(2, EventSubscription.OverflowPolicy.DISCONNECT);
+    }
+
+    private EventTailer tailerWith(final int bufferSize, final EventSubscription.OverflowPolicy overflowPolicy) {
+        return tailerWith(bufferSize, 100, overflowPolicy);
+    }
+
+    private EventTailer tailerWith(final int bufferSize, final int maxBackfill, final EventSubscription.OverflowPolicy overflowPolicy) {
+        return new EventTailer(offenderEventsService, mock(ScheduledExecutorService.class), MoreExecutors.newDirectExecutorService(),
+                new SimpleMeterRegistry(), Duration.ofSeconds(2), Duration.ofMinutes(1), Duration.ofSeconds(15), Duration.ofMinutes(5),
+                100, bufferSize, maxBackfill, overflowPolicy);
+    }
+
+    @Test
+    public void eachEventIsPublishedOnceToEveryMatchingSubscriber() {
+        final var alerts = new ArrayList<OffenderEvent>();
+        final var all = new ArrayList<OffenderEvent>();
+        eventTailer.subscribe(Optional.of(Set.of("alert-inserted")), Optional.empty(), Optional.empty(), s -> alerts.addAll(s.drain(10)));
+        eventTailer.subscribe(Optional.empty(), Optional.empty(), Optional.empty(), s -> all.addAll(s.drain(10)));
+
+        final var alert = event("1", "ALERT-INSERTED");
+        final var booking = event("2", "OFFENDER_BOOKING-CHANGED");
+        when(offenderEventsService.getEvents(any(), any(), any(), any())).thenReturn(Optional.of(List.of(alert, booking)));
+
+        eventTailer.poll();
+        // The next window overlaps the last, so the same events come back
+        eventTailer.poll();
+
+        assertThat(alerts).containsExactly(alert);
+        assertThat(all).containsExactly(alert, booking);
+    }
+
+    @Test
+    public void subscribersResumingFromAPublishedEventGetOnlyWhatFollowedIt() {
+        final var first = event("1", "ALERT-INSERTED");
+        final var second = event("2", "ALERT-UPDATED");
+        eventTailer.subscribe(Optional.empty(), Optional.empty(), Optional.empty(), s -> s.drain(10));
+        when(offenderEventsService.getEvents(any(), any(), any(), any())).thenReturn(Optional.of(List.of(first, second)));
+        eventTailer.poll();
+
+        final var resumed = new ArrayList<OffenderEvent>();
+        eventTailer.subscribe(Optional.empty(), Optional.empty(), Optional.of(EventCursor.of(first)), s -> resumed.addAll(s.drain(10)));
+
+        assertThat(resumed).containsExactly(second);
+    }
+
+    @Test
+    public void backfillsLongerThanTheBufferArePagedWithoutGaps() {
+        final var events = List.of(event("1", "A"), event("2", "B"), event("3", "C"), event("4", "D"), event("5", "E"));
+        when(offenderEventsService.getEvents(any(), any(), any(), any(), any(), any()))
+                .thenReturn(Optional.of(events.subList(0, 2)), Optional.of(events.subList(2, 4)), Optional.of(events.subList(4, 5)));
+
+        final var resumed = new ArrayList<OffenderEvent>();
+        final var subscription = eventTailer.subscribe(Optional.empty(), Optional.empty(), Optional.of(EventCursor.of(event("0", "Z"))),
+                s -> resumed.addAll(s.drain(10)));
+
+        assertThat(resumed).containsExactlyElementsOf(events);
+        assertThat(subscription.isClosed()).isFalse();
+        verify(offenderEventsService).getEvents(any(), any(), any(), any(), eq(Optional.of(EventCursor.of(events.get(1)))), eq(Optional.of(2)));
+        verify(offenderEventsService).getEvents(any(), any(), any(), any(), eq(Optional.of(EventCursor.of(events.get(3)))), eq(Optional.of(2)));
+    }
+
+    @Test
+    public void backfillsOverTheLimitAreSentThenClosedForTheConsumerToResume() {
+        eventTailer = tailerWith(2, 4, EventSubscription.OverflowPolicy.DISCONNECT);
+        final var events = List.of(event("1", "A"), event("2", "B"), event("3", "C"), event("4", "D"));
+        when(offenderEventsService.getEvents(any(), any(), any(), any(), any(), any()))
+                .thenReturn(Optional.of(events.subList(0, 2)), Optional.of(events.subList(2, 4)));
+
+        final var resumed = new ArrayList<OffenderEvent>();
+        final var subscription = eventTailer.subscribe(Optional.empty(), Optional.empty(), Optional.of(EventCursor.of(event("0", "Z"))),
+                s -> resumed.addAll(s.drain(10)));
+
+        assertThat(resumed).containsExactlyElementsOf(events);
+        assertThat(subscription.isClosed()).isTrue();
+    }
+
+    @Test
+    public void eventsReplayedByABackfillAreNotSentAgainByTheNextPoll() {
+        final var first = event("1", "A");
+        final var second = event("2", "B");
+        final var third = event("3", "C");
+        when(offenderEventsService.getEvents(any(), any(), any(), any(), any(), any())).thenReturn(Optional.of(List.of(first, second)));
+        when(offenderEventsService.getEvents(any(), any(), any(), any())).thenReturn(Optional.of(List.of(first, second, third)));
+
+        final var resumed = new ArrayList<OffenderEvent>();
+        eventTailer = tailerWith(10, EventSubscription.OverflowPolicy.DISCONNECT);
+        eventTailer.subscribe(Optional.empty(), Optional.empty(), Optional.of(EventCursor.of(event("0", "Z"))), s -> resumed.addAll(s.drain(10)));
+        eventTailer.poll();
+
+        assertThat(resumed).containsExactly(first, second, third);
+    }
+
+    @Test
+    public void subscribersWithoutACursorStartAfterTheLastPublishedEvent() {
+        final var idle = eventTailer.subscribe(Optional.empty(), Optional.empty(), Optional.empty(), s -> s.drain(10));
+        assertThat(idle.getStartedAfter().getEventDatetime()).isBefore(LocalDateTime.now().minusSeconds(59));
+
+        final var published = event("1", "A");
+        when(offenderEventsService.getEvents(any(), any(), any(), any())).thenReturn(Optional.of(List.of(published)));
+        eventTailer.poll();
+
+        final var later = eventTailer.subscribe(Optional.empty(), Optional.empty(), Optional.empty(), s -> s.drain(10));
+        assertThat(later.getStartedAfter()).isEqualTo(EventCursor.of(published));
+    }
+
+    @Test
+    public void subscribersThatFallBehindAreDisconnected() {
+        final var subscription = eventTailer.subscribe(Optional.empty(), Optional.empty(), Optional.empty(), s -> {
+        });
+        when(offenderEventsService.getEvents(any(), any(), any(), any()))
+                .thenReturn(Optional.of(List.of(event("1", "A"), event("2", "B"), event("3", "C"))));
+
+        eventTailer.poll();
+
+        assertThat(subscription.isClosed()).isTrue();
+        assertThat(subscription.drain(10)).hasSize(2);
+    }
+
+    @Test
+    public void subscribersCanDropTheOldestEventsInstead() {
+        eventTailer = tailerWith(2, EventSubscription.OverflowPolicy.DROP_OLDEST);
+        final var subscription = eventTailer.subscribe(Optional.empty(), Optional.empty(), Optional.empty(), s -> {
+        });
+        final var second = event("2", "B");
+        final var third = event("3", "C");
+        when(offenderEventsService.getEvents(any(), any(), any(), any()))
+                .thenReturn(Optional.of(List.of(event("1", "A"), second, third)));
+
+        eventTailer.poll();
+
+        assertThat(subscription.isClosed()).isFalse();
+        assertThat(subscription.getDropped()).isEqualTo(1L);
+        assertThat(subscription.drain(10)).containsExactly(second, third);
+    }
+
+    private OffenderEvent event(final String id, final String type) {
+        return OffenderEvent.builder()
+                .eventId(id)
+                .eventType(type)
+                .eventSource(EventSource.XTAG)
+                .eventDatetime(NOW.minusSeconds(10).plusSeconds(Long.parseLong(id)))
+                .build();
+    }
+}
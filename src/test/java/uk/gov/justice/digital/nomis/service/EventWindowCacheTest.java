@@ -0,0 +1,164 @@
+package uk.gov.justice.digital.nomis.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.data.domain.Sort;
+import uk.gov.justice.digital.nomis.api.EventSource;
+import uk.gov.justice.digital.nomis.api.OffenderEvent;
+import uk.gov.justice.digital.nomis.jpa.filters.OffenderEventsFilter;
+import uk.gov.justice.digital.nomis.jpa.repository.OffenderEventsRepository;
+import uk.gov.justice.digital.nomis.service.transformer.OffenderEventsTransformer;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class EventWindowCacheTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.now();
+
+    @Mock
+    private OffenderEventsRepository offenderEventsRepository;
+    @Mock
+    private OffenderEventsTransformer offenderEventsTransformer;
+    @Mock
+    private XtagEventsService xtagEventsService;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private EventWindowCache eventWindowCache;
+
+    @Before
+    public void setUp() {
+        eventWindowCache = cacheWith(true);
+    }
+
+    private EventWindowCache cacheWith(final boolean enabled) {
+        return new EventWindowCache(offenderEventsRepository, offenderEventsTransformer, xtagEventsService,
+                mock(ScheduledExecutorService.class), meterRegistry, enabled, Duration.ofHours(72),
+                Duration.ofSeconds(5), Duration.ofMinutes(1), Duration.ofSeconds(30), Duration.ofHours(6));
+    }
+
+    @Test
+    public void nothingIsServedBeforeTheFirstLoad() {
+        assertThat(eventWindowCache.find(filterOf(NOW.minusHours(1), NOW, Sort.Direction.ASC))).isEmpty();
+    }
+
+    @Test
+    public void queriesInsideTheWindowAreServedInOrder() {
+        final var older = event("1", "ALERT-INSERTED", NOW.minusHours(2));
+        final var newer = event("2", "ALERT-UPDATED", NOW.minusHours(1));
+        when(xtagEventsService.findAll(any())).thenReturn(List.of(newer, older));
+
+        eventWindowCache.refresh();
+
+        assertThat(eventWindowCache.find(filterOf(NOW.minusHours(3), NOW, Sort.Direction.ASC)).orElseThrow().getHeld().collect(Collectors.toList()))
+                .containsExactly(older, newer);
+        assertThat(eventWindowCache.find(filterOf(NOW.minusHours(3), NOW, Sort.Direction.DESC)).orElseThrow().getHeld().collect(Collectors.toList()))
+                .containsExactly(newer, older);
+        assertThat(eventWindowCache.find(filterOf(NOW.minusMinutes(90), NOW, Sort.Direction.ASC)).orElseThrow().getHeld().collect(Collectors.toList()))
+                .containsExactly(newer);
+    }
+
+    @Test
+    public void queriesReachingBeforeTheWindowAreNotServed() {
+        eventWindowCache.refresh();
+
+        assertThat(eventWindowCache.find(filterOf(NOW.minusHours(73), NOW, Sort.Direction.ASC))).isEmpty();
+    }
+
+    @Test
+    public void eventsReadAgainOnRefreshAreHeldOnce() {
+        final var alert = event("1", "ALERT-INSERTED", NOW.minusSeconds(30));
+        when(xtagEventsService.findAll(any())).thenReturn(List.of(alert));
+
+        eventWindowCache.refresh();
+        eventWindowCache.refresh();
+
+        assertThat(eventWindowCache.find(filterOf(NOW.minusHours(1), NOW, Sort.Direction.ASC)).orElseThrow().getHeld().collect(Collectors.toList()))
+                .containsExactly(alert);
+    }
+
+    @Test
+    public void queriesReachingPastTheLastRefreshLeaveOnlyTheRestToTheDatabase() {
+        final var alert = event("1", "ALERT-INSERTED", NOW.minusMinutes(30));
+        when(xtagEventsService.findAll(any())).thenReturn(List.of(alert));
+        eventWindowCache.refresh();
+        final var refreshed = LocalDateTime.now();
+        final var endOfDay = refreshed.plusDays(1L);
+
+        final var cached = eventWindowCache.find(OffenderEventsFilter.builder().from(NOW.minusHours(1)).to(endOfDay)
+                .types(Optional.of(Set.of("ALERT-INSERTED"))).direction(Sort.Direction.DESC).build()).orElseThrow();
+
+        assertThat(cached.getHeld().collect(Collectors.toList())).containsExactly(alert);
+        final var rest = cached.getRest().orElseThrow();
+        assertThat(rest.getFrom()).isAfter(NOW).isBeforeOrEqualTo(refreshed);
+        assertThat(rest.getTo()).isEqualTo(endOfDay);
+        assertThat(rest.getTypes()).contains(Set.of("ALERT-INSERTED"));
+        assertThat(rest.getDirection()).isEqualTo(Sort.Direction.DESC);
+        assertThat(meterRegistry.counter("events.cache.requests", "result", "hit").count()).isEqualTo(1.0);
+    }
+
+    @Test
+    public void queriesEndingBeforeTheLastRefreshAreAnsweredWhole() {
+        eventWindowCache.refresh();
+
+        assertThat(eventWindowCache.find(filterOf(NOW.minusHours(1), NOW, Sort.Direction.ASC)).orElseThrow().getRest()).isEmpty();
+    }
+
+    @Test
+    public void queriesStartingAfterTheLastRefreshAreNotServed() {
+        eventWindowCache.refresh();
+
+        assertThat(eventWindowCache.find(filterOf(LocalDateTime.now().plusMinutes(1), LocalDateTime.now().plusHours(1), Sort.Direction.ASC))).isEmpty();
+    }
+
+    @Test
+    public void nothingIsCountedWhenDisabled() {
+        eventWindowCache = cacheWith(false);
+
+        assertThat(eventWindowCache.find(filterOf(NOW.minusHours(1), NOW, Sort.Direction.ASC))).isEmpty();
+        assertThat(meterRegistry.counter("events.cache.requests", "result", "miss").count()).isZero();
+        assertThat(meterRegistry.counter("events.cache.requests", "result", "hit").count()).isZero();
+    }
+
+    @Test
+    public void typesAreFilteredInMemory() {
+        final var alert = event("1", "ALERT-INSERTED", NOW.minusHours(2));
+        final var booking = event("2", "OFFENDER_BOOKING-CHANGED", NOW.minusHours(1));
+        when(xtagEventsService.findAll(any())).thenReturn(List.of(alert, booking));
+
+        eventWindowCache.refresh();
+
+        final var filter = OffenderEventsFilter.builder().from(NOW.minusHours(3)).to(NOW)
+                .types(Optional.of(Set.of("alert-inserted"))).direction(Sort.Direction.ASC).build();
+        assertThat(eventWindowCache.find(filter).orElseThrow().getHeld().collect(Collectors.toList())).containsExactly(alert);
+    }
+
+    private OffenderEventsFilter filterOf(final LocalDateTime from, final LocalDateTime to, final Sort.Direction direction) {
+        return OffenderEventsFilter.builder().from(from).to(to).direction(direction).build();
+    }
+
+    private OffenderEvent event(final String id, final String type, final LocalDateTime eventDatetime) {
+        return OffenderEvent.builder()
+                .eventId(id)
+                .eventType(type)
+                .eventSource(EventSource.XTAG)
+                .eventDatetime(eventDatetime)
+                .build();
+    }
+}
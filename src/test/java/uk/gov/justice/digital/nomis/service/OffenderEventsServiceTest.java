@@ -0,0 +1,230 @@
+package uk.gov.justice.digital.nomis.service;
+
+import com.google.common.collect.Range;
+import com.google.common.util.concurrent.MoreExecutors;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.dao.QueryTimeoutException;
+import uk.gov.justice.digital.nomis.api.EventSource;
+import uk.gov.justice.digital.nomis.api.OffenderEvent;
+import uk.gov.justice.digital.nomis.jpa.filters.OffenderEventsFilter;
+import uk.gov.justice.digital.nomis.jpa.repository.OffenderEventsRepository;
+import uk.gov.justice.digital.nomis.service.transformer.OffenderEventsTransformer;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class OffenderEventsServiceTest {
+
+    private static final Duration THRESHOLD = Duration.ofDays(1);
+    private static final Duration SIZE = Duration.ofHours(1);
+    private static final LocalDateTime FROM = LocalDateTime.of(2020, 6, 14, 0, 0);
+
+    @Mock
+    private OffenderEventsRepository offenderEventsRepository;
+    @Mock
+    private OffenderEventsTransformer offenderEventsTransformer;
+    @Mock
+    private XtagEventsService xtagEventsService;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    public void narrowWindowsAreNotSplit() {
+        final var from = LocalDateTime.of(2020, 6, 14, 10, 30);
+
+        assertThat(OffenderEventsService.subRangesOf(from, from.plusHours(12), THRESHOLD, SIZE))
+                .containsExactly(Range.closed(from, from.plusHours(12)));
+    }
+
+    @Test
+    public void wideWindowsAreSplitOnTheHour() {
+        final var from = LocalDateTime.of(2020, 6, 14, 10, 30);
+        final var to = from.plusDays(3);
+
+        final var ranges = OffenderEventsService.subRangesOf(from, to, THRESHOLD, SIZE);
+
+        assertThat(ranges).hasSize(73);
+        assertThat(ranges.get(0)).isEqualTo(Range.closed(from, LocalDateTime.of(2020, 6, 14, 10, 59, 59, 999_999_999)));
+        assertThat(ranges.get(72)).isEqualTo(Range.closed(LocalDateTime.of(2020, 6, 17, 10, 0), to));
+        assertMeetExactly(ranges);
+    }
+
+    @Test
+    public void rangesAreNotCutWhereTheXtagWindowJumps() {
+        final var spring = OffenderEventsService.subRangesOf(LocalDateTime.of(2020, 3, 28, 0, 0), LocalDateTime.of(2020, 3, 30, 0, 0), THRESHOLD, SIZE);
+        final var autumn = OffenderEventsService.subRangesOf(LocalDateTime.of(2020, 10, 24, 0, 0), LocalDateTime.of(2020, 10, 26, 0, 0), THRESHOLD, SIZE);
+
+        assertThat(starts(spring)).doesNotContain(LocalDateTime.of(2020, 3, 29, 1, 0));
+        assertThat(starts(autumn)).doesNotContain(LocalDateTime.of(2020, 10, 25, 1, 0));
+        assertMeetExactly(spring);
+        assertMeetExactly(autumn);
+    }
+
+    @Test
+    public void theDefaultWindowIsAnsweredFromTheCacheUpToItsLastRefresh() {
+        final var earlier = event("1", LocalDate.now().atStartOfDay());
+        when(xtagEventsService.findAll(any())).thenReturn(List.of(earlier));
+        final var cache = cacheWith(true);
+        cache.refresh();
+        final var refreshed = LocalDateTime.now();
+
+        final var later = event("2", refreshed.plusNanos(1L));
+        when(offenderEventsRepository.stream(any())).thenReturn(Stream.empty());
+        when(xtagEventsService.stream(any())).thenReturn(Stream.of(later));
+
+        final var events = serviceWith(cache, MoreExecutors.newDirectExecutorService())
+                .getEvents(Optional.empty(), Optional.empty(), Optional.empty(), Optional.empty());
+
+        assertThat(events).contains(List.of(later, earlier));
+        assertThat(meterRegistry.counter("events.cache.requests", "result", "hit").count()).isEqualTo(1.0);
+
+        final var rest = ArgumentCaptor.forClass(OffenderEventsFilter.class);
+        verify(offenderEventsRepository).stream(rest.capture());
+        assertThat(rest.getValue().getFrom()).isAfter(earlier.getEventDatetime()).isBeforeOrEqualTo(refreshed);
+        assertThat(rest.getValue().getTo()).isEqualTo(LocalDate.now().atStartOfDay().plusDays(1L));
+    }
+
+    @Test
+    public void bothSourcesAreReadAtTheSameTime() {
+        final var started = new CountDownLatch(2);
+        final var alert = event("1", FROM.plusHours(1));
+        when(offenderEventsRepository.findAll(any(OffenderEventsFilter.class))).thenAnswer(invocation -> afterBothStarted(started, List.of()));
+        when(xtagEventsService.findAll(any())).thenAnswer(invocation -> afterBothStarted(started, List.of(alert)));
+        final var executor = Executors.newFixedThreadPool(2);
+
+        try {
+            assertThat(serviceWith(cacheWith(false), executor, Duration.ofSeconds(5)).getEvents(Optional.of(FROM), Optional.of(FROM.plusHours(12)), Optional.empty(), Optional.empty()))
+                    .contains(List.of(alert));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void sourcesThatTakeTooLongTimeOut() {
+        final var release = new CountDownLatch(1);
+        when(offenderEventsRepository.findAll(any(OffenderEventsFilter.class))).thenReturn(List.of());
+        when(xtagEventsService.findAll(any())).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return List.of();
+        });
+        final var executor = Executors.newFixedThreadPool(2);
+
+        try {
+            assertThatThrownBy(() -> serviceWith(cacheWith(false), executor, Duration.ofMillis(100)).getEvents(Optional.of(FROM), Optional.of(FROM.plusHours(12)), Optional.empty(), Optional.empty()))
+                    .isInstanceOf(QueryTimeoutException.class)
+                    .hasMessageContaining("XTAG");
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void aFailedSourceCancelsTheOtherBeforeItIsRead() {
+        // Runs the first fetch straight away and holds back the rest, so the second is still queued when the first fails
+        final var ranOne = new AtomicBoolean();
+        final var queued = new ArrayList<Runnable>();
+        final var executor = mock(ExecutorService.class);
+        doAnswer(invocation -> {
+            final Runnable task = invocation.getArgument(0);
+            if (ranOne.getAndSet(true)) {
+                queued.add(task);
+            } else {
+                task.run();
+            }
+            return null;
+        }).when(executor).execute(any());
+        when(offenderEventsRepository.findAll(any(OffenderEventsFilter.class))).thenThrow(new IllegalStateException("Database unavailable"));
+
+        assertThatThrownBy(() -> serviceWith(cacheWith(false), executor, Duration.ofSeconds(5)).getEvents(Optional.of(FROM), Optional.of(FROM.plusHours(12)), Optional.empty(), Optional.empty()))
+                .isInstanceOf(IllegalStateException.class);
+        queued.forEach(Runnable::run);
+
+        assertThat(queued).hasSize(1);
+        verify(xtagEventsService, never()).findAll(any());
+    }
+
+    @Test
+    public void requestsAreRejectedWhenTheFetchPoolIsFull() {
+        final var executor = mock(ExecutorService.class);
+        doThrow(new RejectedExecutionException("Fetch pool full")).when(executor).execute(any());
+
+        assertThatThrownBy(() -> serviceWith(cacheWith(false), executor, Duration.ofSeconds(5)).getEvents(Optional.of(FROM), Optional.of(FROM.plusHours(12)), Optional.empty(), Optional.empty()))
+                .isInstanceOf(RejectedExecutionException.class);
+    }
+
+    private EventWindowCache cacheWith(final boolean enabled) {
+        return new EventWindowCache(offenderEventsRepository, offenderEventsTransformer, xtagEventsService,
+                mock(ScheduledExecutorService.class), meterRegistry, enabled, Duration.ofHours(72),
+                Duration.ofSeconds(5), Duration.ofMinutes(1), Duration.ofSeconds(30), Duration.ofHours(6));
+    }
+
+    private OffenderEventsService serviceWith(final EventWindowCache cache, final ExecutorService executor) {
+        return serviceWith(cache, executor, Duration.ofSeconds(5));
+    }
+
+    private OffenderEventsService serviceWith(final EventWindowCache cache, final ExecutorService executor, final Duration fetchTimeout) {
+        return new OffenderEventsService(offenderEventsTransformer, offenderEventsRepository, xtagEventsService, cache,
+                executor, fetchTimeout, THRESHOLD, SIZE, 4);
+    }
+
+    private static <T> List<T> afterBothStarted(final CountDownLatch started, final List<T> result) throws InterruptedException {
+        started.countDown();
+        if (!started.await(5, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("The other source was not read at the same time");
+        }
+        return result;
+    }
+
+    private static OffenderEvent event(final String id, final LocalDateTime eventDatetime) {
+        return OffenderEvent.builder()
+                .eventId(id)
+                .eventType("ALERT-INSERTED")
+                .eventSource(EventSource.XTAG)
+                .eventDatetime(eventDatetime)
+                .build();
+    }
+
+    private static List<LocalDateTime> starts(final List<Range<LocalDateTime>> ranges) {
+        return ranges.stream().map(Range::lowerEndpoint).collect(Collectors.toList());
+    }
+
+    private static void assertMeetExactly(final List<Range<LocalDateTime>> ranges) {
+        for (var i = 1; i < ranges.size(); i++) {
+            final var end = ranges.get(i - 1).upperEndpoint();
+            final var start = ranges.get(i).lowerEndpoint();
+            assertThat(start).isEqualTo(end.plusNanos(1L));
+            assertThat(XtagEventsService.asUtcPlusOne(start)).isEqualTo(XtagEventsService.asUtcPlusOne(end).plusNanos(1L));
+        }
+    }
+}
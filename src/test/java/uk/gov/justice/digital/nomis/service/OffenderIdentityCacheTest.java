@@ -0,0 +1,127 @@
+package uk.gov.justice.digital.nomis.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import uk.gov.justice.digital.nomis.jpa.projection.OffenderIdentity;
+import uk.gov.justice.digital.nomis.jpa.repository.OffenderBookingRepository;
+import uk.gov.justice.digital.nomis.jpa.repository.OffenderRepository;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class OffenderIdentityCacheTest {
+
+    private static final OffenderIdentity OFFENDER = new OffenderIdentity(1L, 1L, "A1234AA");
+    private static final OffenderIdentity BOOKING = new OffenderIdentity(10L, 1L, 1L, "A1234AA");
+
+    @Mock
+    private OffenderRepository offenderRepository;
+    @Mock
+    private OffenderBookingRepository offenderBookingRepository;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private OffenderIdentityCache cache;
+
+    @Before
+    public void setUp() {
+        cache = cacheOf(1000L);
+    }
+
+    private OffenderIdentityCache cacheOf(final Long maximumSize) {
+        return new OffenderIdentityCache(offenderRepository, offenderBookingRepository, meterRegistry,
+                maximumSize, Duration.ofHours(12), Duration.ofMinutes(5));
+    }
+
+    @Test
+    public void preloadingLooksUpOnlyTheIdsNotAlreadyHeld() {
+        when(offenderRepository.findIdentitiesByOffenderIdIn(List.of(1L))).thenReturn(List.of(OFFENDER));
+        when(offenderBookingRepository.findIdentitiesByOffenderBookIdIn(List.of(10L))).thenReturn(List.of(BOOKING));
+        cache.preload(Set.of(1L), Set.of(10L));
+
+        final var identities = cache.preload(Set.of(1L), Set.of(10L));
+
+        assertThat(identities.getByOffenderId()).containsExactly(Map.entry(1L, OFFENDER));
+        assertThat(identities.getByBookingId()).containsExactly(Map.entry(10L, BOOKING));
+        verify(offenderRepository, times(1)).findIdentitiesByOffenderIdIn(any());
+        verify(offenderBookingRepository, times(1)).findIdentitiesByOffenderBookIdIn(any());
+    }
+
+    @Test
+    public void idsThatDoNotExistAreNotLookedUpAgain() {
+        when(offenderRepository.findIdentitiesByOffenderIdIn(List.of(1L, 2L))).thenReturn(List.of(OFFENDER));
+
+        cache.getByOffenderIds(List.of(1L, 2L));
+        final var identities = cache.getByOffenderIds(List.of(1L, 2L));
+
+        assertThat(identities).containsOnlyKeys(1L);
+        verify(offenderRepository, times(1)).findIdentitiesByOffenderIdIn(any());
+    }
+
+    @Test
+    public void nomsIdsAreLookedUpOnceWhetherOrNotTheyExist() {
+        when(offenderRepository.findRootIdentitiesByOffenderIdDisplay("A1234AA")).thenReturn(List.of(OFFENDER));
+        when(offenderRepository.findRootIdentitiesByOffenderIdDisplay("Z9999ZZ")).thenReturn(List.of());
+
+        cache.getRootByNomsId("A1234AA");
+        cache.getRootByNomsId("Z9999ZZ");
+
+        assertThat(cache.getRootByNomsId("A1234AA")).contains(OFFENDER);
+        assertThat(cache.getRootByNomsId("Z9999ZZ")).isEmpty();
+        verify(offenderRepository, times(1)).findRootIdentitiesByOffenderIdDisplay("A1234AA");
+        verify(offenderRepository, times(1)).findRootIdentitiesByOffenderIdDisplay("Z9999ZZ");
+    }
+
+    @Test
+    public void unknownIdsAreLookedUpAThousandAtATime() {
+        final var ids = LongStream.rangeClosed(1L, 2500L).boxed().collect(Collectors.toList());
+
+        cache.getByOffenderIds(ids);
+
+        verify(offenderRepository, times(3)).findIdentitiesByOffenderIdIn(any());
+        verify(offenderRepository, never()).findRootIdentitiesByOffenderIdDisplay(any());
+    }
+
+    @Test
+    public void evictedIdentitiesAreLookedUpAgain() {
+        cache = cacheOf(1L);
+        when(offenderRepository.findIdentitiesByOffenderIdIn(List.of(1L))).thenReturn(List.of(OFFENDER));
+        when(offenderRepository.findIdentitiesByOffenderIdIn(List.of(2L))).thenReturn(List.of(new OffenderIdentity(2L, 2L, "B1234BB")));
+
+        cache.getByOffenderIds(List.of(1L));
+        cache.getByOffenderIds(List.of(2L));
+        cache.getByOffenderIds(List.of(1L));
+
+        verify(offenderRepository, times(2)).findIdentitiesByOffenderIdIn(List.of(1L));
+        assertThat(meterRegistry.get("cache.evictions").tag("cache", "identity.offenderId").functionCounter().count()).isEqualTo(2.0);
+    }
+
+    @Test
+    public void hitsAndMissesAreRecordedForEachCache() {
+        when(offenderRepository.findRootIdentitiesByOffenderIdDisplay("A1234AA")).thenReturn(List.of(OFFENDER));
+
+        cache.getRootByNomsId("A1234AA");
+        cache.getRootByNomsId("A1234AA");
+        cache.getRootByNomsId("A1234AA");
+
+        assertThat(meterRegistry.get("cache.gets").tags("cache", "identity.nomsId", "result", "hit").functionCounter().count()).isEqualTo(2.0);
+        assertThat(meterRegistry.get("cache.gets").tags("cache", "identity.nomsId", "result", "miss").functionCounter().count()).isEqualTo(1.0);
+        assertThat(meterRegistry.get("cache.size").tag("cache", "identity.nomsId").gauge().value()).isEqualTo(1.0);
+    }
+}
@@ -1,26 +1,34 @@
 package uk.gov.justice.digital.nomis.service;
 
 
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.ImmutableTable;
+import com.google.common.util.concurrent.MoreExecutors;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.MockitoJUnitRunner;
+import uk.gov.justice.digital.nomis.api.FieldSelection;
 import uk.gov.justice.digital.nomis.api.Offender;
 import uk.gov.justice.digital.nomis.api.OffenderEvent;
-import uk.gov.justice.digital.nomis.jpa.entity.MovementReason;
-import uk.gov.justice.digital.nomis.jpa.entity.OffenderBooking;
-import uk.gov.justice.digital.nomis.jpa.entity.OffenderExternalMovement;
 import uk.gov.justice.digital.nomis.jpa.entity.XtagEventNonJpa;
 import uk.gov.justice.digital.nomis.jpa.filters.OffenderEventsFilter;
+import uk.gov.justice.digital.nomis.jpa.projection.ExternalMovementSummary;
+import uk.gov.justice.digital.nomis.jpa.projection.OffenderIdentity;
 import uk.gov.justice.digital.nomis.jpa.repository.XtagEventsRepository;
 import uk.gov.justice.digital.nomis.service.transformer.OffenderEventsTransformer;
+import uk.gov.justice.digital.nomis.service.transformer.RawXtag;
 
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.when;
@@ -43,7 +51,9 @@ public class XtagEventsServiceTest {
 
     @Before
     public void setUp() {
-        service = new XtagEventsService(repository, transformer, offenderService);
+        final var pipeline = new XtagDecodePipeline(transformer, MoreExecutors.newDirectExecutorService(), new SimpleMeterRegistry(), 200, 8);
+        service = new XtagEventsService(repository, transformer, offenderService, pipeline);
+        Mockito.lenient().when(transformer.rawXtagOf(Mockito.any())).thenReturn(new RawXtag("1", Timestamp.valueOf("2019-10-01 00:00:00"), "X", null));
     }
 
     @Test
@@ -59,19 +69,20 @@ public class XtagEventsServiceTest {
     @Test
     public void shouldDecorateWithExternalMovementData() {
         final var filter = OffenderEventsFilter.builder().from(LocalDateTime.now()).to(LocalDateTime.now()).build();
-        final var offender = uk.gov.justice.digital.nomis.jpa.entity.Offender.builder().offenderIdDisplay("A2345GB").build();
-        final var pk = OffenderExternalMovement.Pk.builder().movementSeq(2L).offenderBooking(OffenderBooking.builder().offender(offender).build()).build();
-        final var externalMovementEntity = OffenderExternalMovement.builder()
+        final var externalMovement = ExternalMovementSummary.builder()
+                .bookingId(1L)
+                .movementSeq(2L)
+                .nomsId("A2345GB")
                 .fromAgyLocId("MDI")
                 .toAgyLocId("BAI")
-                .movementReason(MovementReason.builder().movementType("REL").build())
+                .movementType("REL")
                 .movementTime(MOVEMENT_TIME)
-                .id(pk).build();
+                .build();
 
         final var xTagEvent = XtagEventNonJpa.builder().build();
-        when(repository.findAll(Mockito.any(OffenderEventsFilter.class))).thenReturn(List.of(xTagEvent));
-        when(offenderService.getExternalMovement(1L, 2L)).thenReturn(Optional.of(externalMovementEntity));
-        when(transformer.offenderEventOf(Mockito.any(XtagEventNonJpa.class))).thenReturn(
+        when(repository.stream(Mockito.any(OffenderEventsFilter.class))).thenReturn(Stream.of(xTagEvent));
+        when(offenderService.getExternalMovementSummaries(ImmutableSetMultimap.of(1L, 2L))).thenReturn(ImmutableTable.of(1L, 2L, externalMovement));
+        when(transformer.offenderEventOf(Mockito.any(RawXtag.class), Mockito.any())).thenReturn(
                 OffenderEvent.builder().eventType("EXTERNAL_MOVEMENT_RECORD-INSERTED").offenderId(1L).movementSeq(2L).bookingId(1L).build());
 
         final var offenderEventList = service.findAll(filter);
@@ -83,18 +94,31 @@ public class XtagEventsServiceTest {
         assertThat(offenderEventList).extracting("movementType").containsExactly("REL");
     }
 
+    @Test
+    public void shouldNotDecorateWhenNoneOfTheDecoratedFieldsAreWanted() {
+        final var filter = OffenderEventsFilter.builder().from(LocalDateTime.now()).to(LocalDateTime.now())
+                .fields(Optional.of(FieldSelection.of(List.of("eventType", "bookingId"), OffenderEvent.class))).build();
+
+        when(repository.stream(Mockito.any(OffenderEventsFilter.class))).thenReturn(Stream.of(XtagEventNonJpa.builder().build()));
+        when(transformer.offenderEventOf(Mockito.any(RawXtag.class), Mockito.any())).thenReturn(
+                OffenderEvent.builder().eventType("EXTERNAL_MOVEMENT_RECORD-INSERTED").offenderId(1L).movementSeq(2L).bookingId(1L).build());
+
+        final var offenderEventList = service.findAll(filter);
+
+        assertThat(offenderEventList).extracting("bookingId").containsExactly(1L);
+        Mockito.verifyNoInteractions(offenderService);
+    }
+
     @Test
     public void shouldDecorateWithExternalMovementDataHandlesNullableFields() {
         final var filter = OffenderEventsFilter.builder().from(LocalDateTime.now()).to(LocalDateTime.now()).build();
 
-        final var offender = uk.gov.justice.digital.nomis.jpa.entity.Offender.builder().offenderIdDisplay("A2345GB").build();
-        final var pk = OffenderExternalMovement.Pk.builder().movementSeq(2L).offenderBooking(OffenderBooking.builder().offender(offender).build()).build();
-        final var externalMovementEntity = OffenderExternalMovement.builder().id(pk).build();
+        final var externalMovement = ExternalMovementSummary.builder().bookingId(1L).movementSeq(2L).nomsId("A2345GB").build();
 
         final var xTagEvent = XtagEventNonJpa.builder().build();
-        when(repository.findAll(Mockito.any(OffenderEventsFilter.class))).thenReturn(List.of(xTagEvent));
-        when(offenderService.getExternalMovement(1L, 2L)).thenReturn(Optional.of(externalMovementEntity));
-        when(transformer.offenderEventOf(Mockito.any(XtagEventNonJpa.class))).thenReturn(
+        when(repository.stream(Mockito.any(OffenderEventsFilter.class))).thenReturn(Stream.of(xTagEvent));
+        when(offenderService.getExternalMovementSummaries(ImmutableSetMultimap.of(1L, 2L))).thenReturn(ImmutableTable.of(1L, 2L, externalMovement));
+        when(transformer.offenderEventOf(Mockito.any(RawXtag.class), Mockito.any())).thenReturn(
                 OffenderEvent.builder().eventType("EXTERNAL_MOVEMENT_RECORD-INSERTED").offenderId(1L).movementSeq(2L).bookingId(1L).build());
 
         final var offenderEventList = service.findAll(filter);
@@ -113,9 +137,9 @@ public class XtagEventsServiceTest {
         final var filter = OffenderEventsFilter.builder().from(LocalDateTime.now()).to(LocalDateTime.now()).build();
 
         final var xTagEvent = XtagEventNonJpa.builder().build();
-        when(repository.findAll(Mockito.any(OffenderEventsFilter.class))).thenReturn(List.of(xTagEvent));
-        when(offenderService.getExternalMovement(1L, 2L)).thenReturn(Optional.empty());
-        when(transformer.offenderEventOf(Mockito.any(XtagEventNonJpa.class))).thenReturn(
+        when(repository.stream(Mockito.any(OffenderEventsFilter.class))).thenReturn(Stream.of(xTagEvent));
+        when(offenderService.getExternalMovementSummaries(ImmutableSetMultimap.of(1L, 2L))).thenReturn(ImmutableTable.of());
+        when(transformer.offenderEventOf(Mockito.any(RawXtag.class), Mockito.any())).thenReturn(
                 OffenderEvent.builder().eventType("EXTERNAL_MOVEMENT_RECORD-INSERTED").offenderId(1L).movementSeq(2L).bookingId(1L).build());
 
         final var offenderEventList = service.findAll(filter);
@@ -150,10 +174,10 @@ public class XtagEventsServiceTest {
         final var offender = Offender.builder().nomsId("A2345GB").offenderId(1L).build();
 
         final var xTagEvent = XtagEventNonJpa.builder().build();
-        when(repository.findAll(Mockito.any(OffenderEventsFilter.class))).thenReturn(List.of(xTagEvent));
+        when(repository.stream(Mockito.any(OffenderEventsFilter.class))).thenReturn(Stream.of(xTagEvent));
 
-        when(offenderService.getOffenderByBookingId(1234L)).thenReturn(Optional.empty());
-        when(transformer.offenderEventOf(Mockito.any(XtagEventNonJpa.class))).thenReturn(
+        when(offenderService.preloadOffenderIdentities(Set.of(), Set.of(1234L))).thenReturn(OffenderIdentityCache.Identities.NONE);
+        when(transformer.offenderEventOf(Mockito.any(RawXtag.class), Mockito.any())).thenReturn(
                 OffenderEvent.builder().eventType("SENTENCE_DATES-CHANGED").offenderId(1L).bookingId(1234L).build());
 
         final var offenderEventList = service.findAll(filter);
@@ -172,10 +196,10 @@ public class XtagEventsServiceTest {
         final var offender = Offender.builder().nomsId("A2345GB").offenderId(1L).build();
 
         final var xTagEvent = XtagEventNonJpa.builder().build();
-        when(repository.findAll(Mockito.any(OffenderEventsFilter.class))).thenReturn(List.of(xTagEvent));
+        when(repository.stream(Mockito.any(OffenderEventsFilter.class))).thenReturn(Stream.of(xTagEvent));
 
-        when(offenderService.getOffenderByBookingId(1234L)).thenReturn(Optional.empty());
-        when(transformer.offenderEventOf(Mockito.any(XtagEventNonJpa.class))).thenReturn(
+        when(offenderService.preloadOffenderIdentities(Set.of(), Set.of(1234L))).thenReturn(OffenderIdentityCache.Identities.NONE);
+        when(transformer.offenderEventOf(Mockito.any(RawXtag.class), Mockito.any())).thenReturn(
                 OffenderEvent.builder().eventType("CONFIRMED_RELEASE_DATE-CHANGED").offenderId(1L).bookingId(1234L).build());
 
         final var offenderEventList = service.findAll(filter);
@@ -205,13 +229,13 @@ public class XtagEventsServiceTest {
 
     private void assertEventIsDecoratedWithOffenderDisplayNoUsingOffenderId(String eventName) {
         final var filter = OffenderEventsFilter.builder().from(LocalDateTime.now()).to(LocalDateTime.now()).build();
-        final var offender = Offender.builder().nomsId("A2345GB").offenderId(1L).build();
 
         final var xTagEvent = XtagEventNonJpa.builder().build();
-        when(repository.findAll(Mockito.any(OffenderEventsFilter.class))).thenReturn(List.of(xTagEvent));
+        when(repository.stream(Mockito.any(OffenderEventsFilter.class))).thenReturn(Stream.of(xTagEvent));
 
-        when(offenderService.getOffenderByOffenderId(1L)).thenReturn(Optional.of(offender));
-        when(transformer.offenderEventOf(Mockito.any(XtagEventNonJpa.class))).thenReturn(
+        when(offenderService.preloadOffenderIdentities(Set.of(1L), Set.of())).thenReturn(
+                new OffenderIdentityCache.Identities(Map.of(1L, new OffenderIdentity(1L, 1L, "A2345GB")), Map.of()));
+        when(transformer.offenderEventOf(Mockito.any(RawXtag.class), Mockito.any())).thenReturn(
                 OffenderEvent.builder().eventType(eventName).offenderId(1L).build());
 
         final var offenderEventList = service.findAll(filter);
@@ -222,14 +246,13 @@ public class XtagEventsServiceTest {
 
     private void assertEventIsDecoratedWithOffenderDisplayNoUsingBookingId(String eventName) {
         final var filter = OffenderEventsFilter.builder().from(LocalDateTime.now()).to(LocalDateTime.now()).build();
-        final var offender = Offender.builder().nomsId("A2345GB").offenderId(1L).build();
-        final var offenderBooking = OffenderBooking.builder().offenderBookId(1L).offenderId(1L).build();
 
         final var xTagEvent = XtagEventNonJpa.builder().build();
-        when(repository.findAll(Mockito.any(OffenderEventsFilter.class))).thenReturn(List.of(xTagEvent));
+        when(repository.stream(Mockito.any(OffenderEventsFilter.class))).thenReturn(Stream.of(xTagEvent));
 
-        when(offenderService.getOffenderByBookingId(1234L)).thenReturn(Optional.of(offender));
-        when(transformer.offenderEventOf(Mockito.any(XtagEventNonJpa.class))).thenReturn(
+        when(offenderService.preloadOffenderIdentities(Set.of(), Set.of(1234L))).thenReturn(
+                new OffenderIdentityCache.Identities(Map.of(), Map.of(1234L, new OffenderIdentity(1234L, 1L, 1L, "A2345GB"))));
+        when(transformer.offenderEventOf(Mockito.any(RawXtag.class), Mockito.any())).thenReturn(
                 OffenderEvent.builder().eventType(eventName).offenderId(1L).bookingId(1234L).build());
 
         final var offenderEventList = service.findAll(filter);
@@ -0,0 +1,29 @@
+package uk.gov.justice.digital.nomis.service.transformer;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * case_note_event_data.json holds what the lookbehind patterns this parser replaced extracted from each sample.
+ */
+public class CaseNoteEventDataTest {
+
+    @Test
+    public void extractsTheSameValuesAsThePatterns() throws Exception {
+        final List<Map<String, String>> samples = new ObjectMapper().readValue(
+                getClass().getResourceAsStream("case_note_event_data.json"), new TypeReference<>() {
+                });
+
+        assertThat(samples).isNotEmpty();
+        samples.forEach(sample -> assertThat(CaseNoteEventData.of(sample.get("eventData1"), sample.get("eventData2"), sample.get("eventData3")))
+                .as(sample.get("description"))
+                .extracting(CaseNoteEventData::getTypeCode, CaseNoteEventData::getSubTypeCode, CaseNoteEventData::getCaseNoteId)
+                .containsExactly(sample.get("typeCode"), sample.get("subTypeCode"), sample.get("caseNoteId")));
+    }
+}
@@ -1,11 +1,9 @@
 package uk.gov.justice.digital.nomis.service.transformer;
 
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.ImmutableMap;
 import org.junit.Before;
 import org.junit.Test;
-import uk.gov.justice.digital.nomis.CustodyApiApplication;
 import uk.gov.justice.digital.nomis.jpa.entity.OffenderEvent;
 import uk.gov.justice.digital.nomis.xtag.Xtag;
 import uk.gov.justice.digital.nomis.xtag.XtagContent;
@@ -13,6 +11,7 @@ import uk.gov.justice.digital.nomis.xtag.XtagContent;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.util.Set;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -36,16 +35,13 @@ public class OffenderEventsTransformerTest {
 
     @Before
     public void setup() {
-        final var objectMapper = new CustodyApiApplication().objectMapper();
-        offenderEventsTransformer = new OffenderEventsTransformer(mock(TypesTransformer.class), objectMapper);
+        offenderEventsTransformer = new OffenderEventsTransformer(mock(TypesTransformer.class));
     }
 
     @Test
     public void canDeserializeIntoXtagContent() {
 
-        final var objectMapper = new CustodyApiApplication().objectMapper();
-
-        final var transformer = new OffenderEventsTransformer(mock(TypesTransformer.class), objectMapper);
+        final var transformer = new OffenderEventsTransformer(mock(TypesTransformer.class));
 
         assertThat(transformer.xtagContentOf(ImmutableMap.of("x", "y"))).isNotNull();
     }
@@ -104,7 +100,7 @@ public class OffenderEventsTransformerTest {
     @Test
     public void externalMovementRecordEventOfHandlesAgyLocIdsAsStrings() {
 
-        final var transformer = new OffenderEventsTransformer(null, null);
+        final var transformer = new OffenderEventsTransformer(null);
         assertThat(transformer.externalMovementRecordEventOf(Xtag.builder().content(
                 XtagContent.builder()
                         .p_from_agy_loc_id("BARBECUE")
@@ -115,7 +111,7 @@ public class OffenderEventsTransformerTest {
 
     @Test
     public void canCorrectlyDecodeCaseNoteEventTypes() {
-        final var transformer = new OffenderEventsTransformer(mock(TypesTransformer.class), mock(ObjectMapper.class));
+        final var transformer = new OffenderEventsTransformer(mock(TypesTransformer.class));
 
         assertThat(transformer.caseNoteEventTypeOf(OffenderEvent.builder()
                 .eventType("CASE_NOTE")
@@ -125,7 +121,7 @@ public class OffenderEventsTransformerTest {
 
     @Test
     public void nonCaseNoteEventTypesAreNotDecoded() {
-        final var transformer = new OffenderEventsTransformer(mock(TypesTransformer.class), mock(ObjectMapper.class));
+        final var transformer = new OffenderEventsTransformer(mock(TypesTransformer.class));
 
         assertThat(transformer.caseNoteEventTypeOf(OffenderEvent.builder()
                 .eventType(NOT_A_CASE_NOTE)
@@ -135,7 +131,7 @@ public class OffenderEventsTransformerTest {
 
     @Test
     public void canCorrectlyDecodeCaseNoteId() {
-        final var transformer = new OffenderEventsTransformer(mock(TypesTransformer.class), mock(ObjectMapper.class));
+        final var transformer = new OffenderEventsTransformer(mock(TypesTransformer.class));
 
         assertThat(transformer.caseNoteIdOf(OffenderEvent.builder()
                 .eventType("CASE_NOTE")
@@ -145,7 +141,7 @@ public class OffenderEventsTransformerTest {
 
     @Test
     public void nonCaseNoteIdsAreNotDecoded() {
-        final var transformer = new OffenderEventsTransformer(mock(TypesTransformer.class), mock(ObjectMapper.class));
+        final var transformer = new OffenderEventsTransformer(mock(TypesTransformer.class));
 
         assertThat(transformer.caseNoteIdOf(OffenderEvent.builder()
                 .eventType(NOT_A_CASE_NOTE)
@@ -155,7 +151,7 @@ public class OffenderEventsTransformerTest {
 
     @Test
     public void unknownEventTypesAreHandledAppropriately() {
-        final var transformer = new OffenderEventsTransformer(mock(TypesTransformer.class), mock(ObjectMapper.class));
+        final var transformer = new OffenderEventsTransformer(mock(TypesTransformer.class));
 
         assertThat(transformer.offenderEventOf((Xtag) null)).isNull();
         assertThat(transformer.offenderEventOf(Xtag.builder().build())).isNull();
@@ -233,4 +229,18 @@ public class OffenderEventsTransformerTest {
         assertThat(event.getBookingId()).isEqualTo(99L);
         assertThat(event.getEventDatetime()).isEqualTo(now);
     }
+
+    @Test
+    public void xtagEventTypesAreFoundForApiEventTypes() {
+        assertThat(OffenderEventsTransformer.xtagEventTypesOf(Set.of("EXTERNAL_MOVEMENT_RECORD-INSERTED")))
+                .containsExactlyInAnyOrder("EXTERNAL_MOVEMENT_RECORD-INSERTED", "M1_RESULT", "M1_UPD_RESULT");
+        assertThat(OffenderEventsTransformer.xtagEventTypesOf(Set.of("ALERT-INSERTED", "INCIDENT-CHANGED-CASES")))
+                .containsExactlyInAnyOrder("ALERT-INSERTED", "S1_RESULT", "OFF_ALERT_INSERT", "INCIDENT-CHANGED-CASES", "INCIDENT-UPDATED");
+    }
+
+    @Test
+    public void unmappedEventTypesPassThroughAsXtagEventTypes() {
+        assertThat(OffenderEventsTransformer.xtagEventTypesOf(Set.of("CONFIRMED_RELEASE_DATE-CHANGED")))
+                .containsExactly("CONFIRMED_RELEASE_DATE-CHANGED");
+    }
 }
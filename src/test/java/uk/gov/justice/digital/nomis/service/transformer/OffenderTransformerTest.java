@@ -0,0 +1,51 @@
+package uk.gov.justice.digital.nomis.service.transformer;
+
+import org.junit.Before;
+import org.junit.Test;
+import uk.gov.justice.digital.nomis.api.FieldSelection;
+import uk.gov.justice.digital.nomis.jpa.entity.Offender;
+import uk.gov.justice.digital.nomis.jpa.repository.ReferenceCodesRepository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+public class OffenderTransformerTest {
+
+    private ReferenceCodesRepository referenceCodesRepository;
+    private OffenderTransformer offenderTransformer;
+
+    @Before
+    public void setup() {
+        referenceCodesRepository = mock(ReferenceCodesRepository.class);
+        offenderTransformer = new OffenderTransformer(mock(TypesTransformer.class), mock(ReferenceDataTransformer.class),
+                referenceCodesRepository, mock(MovementsTransformer.class));
+    }
+
+    @Test
+    public void collectionsThatWereNotSelectedAreNotLoaded() {
+        final var offender = mock(Offender.class);
+        when(offender.getBirthDate()).thenReturn(Timestamp.valueOf(LocalDateTime.of(1980, 1, 1, 0, 0)));
+        when(offender.getOffenderIdDisplay()).thenReturn("A1234AA");
+        final var fields = FieldSelection.of(Set.of("nomsId", "firstName"), uk.gov.justice.digital.nomis.api.Offender.class);
+
+        final var transformed = offenderTransformer.offenderOf(offender, Optional.of(fields));
+
+        assertThat(transformed.getNomsId()).isEqualTo("A1234AA");
+        assertThat(transformed.getBookings()).isNull();
+        assertThat(transformed.getAliases()).isNull();
+        assertThat(transformed.getIdentifiers()).isNull();
+        verify(offender, never()).getOffenderBookings();
+        verify(offender, never()).getOffenderAliases();
+        verify(offender, never()).getOffenderIdentifiers();
+        verifyNoInteractions(referenceCodesRepository);
+    }
+}
@@ -0,0 +1,53 @@
+package uk.gov.justice.digital.nomis.service.transformer;
+
+import org.junit.Test;
+import uk.gov.justice.digital.nomis.api.EventTypeMapping;
+import uk.gov.justice.digital.nomis.xtag.Xtag;
+import uk.gov.justice.digital.nomis.xtag.XtagContent;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class XtagEventRegistryTest {
+
+    @Test
+    public void addressUpdatesAreChosenByOwnerClassAndDeletion() {
+        assertThat(eventTypeOf("ADDR_UPD", XtagContent.builder().p_owner_class("PER").p_address_deleted("N").build())).isEqualTo("PERSON_ADDRESS-UPDATED");
+        assertThat(eventTypeOf("ADDR_UPD", XtagContent.builder().p_owner_class("OFF").p_address_deleted("Y").build())).isEqualTo("OFFENDER_ADDRESS-DELETED");
+        assertThat(eventTypeOf("ADDR_UPD", XtagContent.builder().p_owner_class("CORP").p_address_deleted("N").build())).isEqualTo("ADDRESS-UPDATED");
+    }
+
+    @Test
+    public void incidentUpdatesAreNamedAfterTheTable() {
+        assertThat(eventTypeOf("INCIDENT-UPDATED", XtagContent.builder().p_delete_flag("N").p_table_name("incident_case_parties").build())).isEqualTo("INCIDENT-CHANGED-PARTIES");
+        assertThat(eventTypeOf("INCIDENT-UPDATED", XtagContent.builder().p_delete_flag("Y").p_table_name("unknown").build())).isEqualTo("INCIDENT-DELETED-null");
+    }
+
+    @Test
+    public void unregisteredTypesHaveNoEntry() {
+        assertThat(XtagEventRegistry.entryOf("BALANCE_UPDATE")).isEmpty();
+    }
+
+    @Test
+    public void catalogueListsEachEventTypeWithItsSourceFields() {
+        final var catalogue = XtagEventRegistry.catalogue();
+
+        assertThat(catalogue).contains(EventTypeMapping.builder()
+                .nomisEventType("OFF_BKB_UPD")
+                .eventType("OFFENDER_BOOKING-REASSIGNED")
+                .fields(Map.of(
+                        "offenderId", List.of("p_offender_id"),
+                        "previousOffenderId", List.of("p_old_offender_id"),
+                        "bookingId", List.of("p_offender_book_id")))
+                .build());
+        assertThat(catalogue).extracting(EventTypeMapping::getNomisEventType).contains("P3_RESULT", "M1_UPD_RESULT", "CONFIRMED_RELEASE_DATE-CHANGED");
+    }
+
+    private String eventTypeOf(final String xtagEventType, final XtagContent content) {
+        final var xtag = Xtag.builder().eventType(xtagEventType).nomisTimestamp(LocalDateTime.now()).content(content).build();
+        return XtagEventRegistry.entryOf(xtagEventType).orElseThrow().offenderEventOf(xtag).getEventType();
+    }
+}
@@ -0,0 +1,78 @@
+package uk.gov.justice.digital.nomis.service.transformer;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectOutputStream;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class XtagPayloadDecoderTest {
+
+    @Test
+    public void decodesAHashMapOfStrings() throws Exception {
+        final var map = new HashMap<String, String>();
+        map.put("p_offender_id", "1234");
+        map.put("p_offender_book_id", "5678");
+        map.put("p_movement_type", "ADM");
+        map.put("p_address_deleted", null);
+
+        assertThat(XtagPayloadDecoder.decode(serialize(map))).isEqualTo(map);
+    }
+
+    @Test
+    public void decodesRepeatedValuesWrittenAsReferences() throws Exception {
+        final var value = "Y";
+        final var map = new HashMap<String, String>();
+        for (var i = 0; i < 100; i++) {
+            map.put("p_flag_" + i, value);
+        }
+
+        assertThat(XtagPayloadDecoder.decode(serialize(map))).isEqualTo(map);
+    }
+
+    @Test
+    public void decodesNonAsciiStrings() throws Exception {
+        final var map = new HashMap<String, String>();
+        map.put("p_case_note_text", "Café ☏ 😀 \u0000 end");
+
+        assertThat(XtagPayloadDecoder.decode(serialize(map))).isEqualTo(map);
+    }
+
+    @Test
+    public void decodesAnEmptyMap() throws Exception {
+        assertThat(XtagPayloadDecoder.decode(serialize(new HashMap<String, String>()))).isEmpty();
+    }
+
+    @Test
+    public void fallsBackForOtherMapTypes() throws Exception {
+        final var map = new LinkedHashMap<String, String>();
+        map.put("p_offender_id", "1234");
+
+        assertThat(XtagPayloadDecoder.decode(serialize(map))).isEqualTo(map);
+    }
+
+    @Test
+    public void rejectsClassesOutsideTheAllowList() throws Exception {
+        final var map = new HashMap<String, Object>();
+        map.put("p_offender_id", new Date());
+        final var bytes = serialize(map);
+
+        assertThatThrownBy(() -> XtagPayloadDecoder.decode(bytes)).isInstanceOf(InvalidClassException.class);
+    }
+
+    private static byte[] serialize(final Map<String, ?> map) throws IOException {
+        final var bytes = new ByteArrayOutputStream();
+        try (final var out = new ObjectOutputStream(bytes)) {
+            out.writeObject(map);
+        }
+        return bytes.toByteArray();
+    }
+}
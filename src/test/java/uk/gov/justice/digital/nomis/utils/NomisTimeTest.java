@@ -0,0 +1,62 @@
+package uk.gov.justice.digital.nomis.utils;
+
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class NomisTimeTest {
+
+    private static final List<String> SAMPLES = List.of(
+            "2019-02-14", "2019-02-14 10:11:12", "10:11:12", "2020-02-29", "2019-02-29", "2019-02-30 10:11:12",
+            "2019-13-01", "0000-01-01", "2019-02-14 24:00:00", "2019-02-14 23:59:60", "14-FEB-2019", "14-feb-19",
+            "2019-2-14", "2019/02/14", "1970-01-01 00:00:00", "Some rubbish");
+
+    @Test
+    public void parsesTheSameAsTheFormatters() {
+        final var dateFormatter = new DateTimeFormatterBuilder().parseCaseInsensitive().appendPattern("[yyyy-MM-dd HH:mm:ss][yyyy-MM-dd][dd-MMM-yyyy][dd-MMM-yy]").toFormatter();
+        final var timeFormatter = DateTimeFormatter.ofPattern("[yyyy-MM-dd ]HH:mm:ss");
+
+        SAMPLES.forEach(sample -> {
+            assertThat(NomisTime.localDateOf(sample)).as(sample).isEqualTo(parsedOrNull(() -> LocalDate.parse(sample, dateFormatter)));
+            assertThat(NomisTime.localTimeOf(sample)).as(sample).isEqualTo(parsedOrNull(() -> LocalTime.parse(sample, timeFormatter)));
+        });
+    }
+
+    @Test
+    public void summerTimeAgreesWithTheZoneRules() {
+        final var rules = NomisTime.LONDON.getRules();
+        for (var time = LocalDateTime.of(1965, 1, 1, 0, 0); time.isBefore(LocalDateTime.of(2105, 1, 1, 0, 0)); time = time.plusMinutes(67L)) {
+            assertThat(NomisTime.isBritishSummerTime(time)).as(time.toString()).isEqualTo(rules.isDaylightSavings(time.atZone(NomisTime.LONDON).toInstant()));
+            assertThat(NomisTime.isBritishSummerTimeAtUtc(time)).as(time.toString()).isEqualTo(rules.isDaylightSavings(time.toInstant(ZoneOffset.UTC)));
+        }
+    }
+
+    @Test
+    public void summerTimeChangesOnTheSecond() {
+        assertThat(NomisTime.isBritishSummerTime(LocalDateTime.of(2020, 3, 29, 0, 59, 59))).isFalse();
+        assertThat(NomisTime.isBritishSummerTime(LocalDateTime.of(2020, 3, 29, 1, 0, 0))).isTrue();
+        assertThat(NomisTime.isBritishSummerTime(LocalDateTime.of(2020, 10, 25, 1, 59, 59))).isTrue();
+        assertThat(NomisTime.isBritishSummerTime(LocalDateTime.of(2020, 10, 25, 2, 0, 0))).isFalse();
+
+        assertThat(NomisTime.isBritishSummerTimeAtUtc(LocalDateTime.of(2020, 10, 25, 0, 59, 59))).isTrue();
+        assertThat(NomisTime.isBritishSummerTimeAtUtc(LocalDateTime.of(2020, 10, 25, 1, 0, 0))).isFalse();
+    }
+
+    private static <T> T parsedOrNull(final Supplier<T> parse) {
+        try {
+            return parse.get();
+        } catch (final DateTimeParseException e) {
+            return null;
+        }
+    }
+}
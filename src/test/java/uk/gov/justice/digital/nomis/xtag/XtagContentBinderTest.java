@@ -0,0 +1,40 @@
+package uk.gov.justice.digital.nomis.xtag;
+
+import org.junit.Test;
+import uk.gov.justice.digital.nomis.CustodyApiApplication;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class XtagContentBinderTest {
+
+    @Test
+    public void bindsKnownKeysAndIgnoresUnknownOnes() {
+        final var content = XtagContentBinder.bind(Map.of(
+                "p_offender_id", "1234",
+                "p_offender_book_id", "5678",
+                "p_not_a_property", "x"));
+
+        assertThat(content).isEqualTo(XtagContent.builder()
+                .p_offender_id("1234")
+                .p_offender_book_id("5678")
+                .build());
+    }
+
+    @Test
+    public void bindsTheSameAsTheJsonRoundTrip() throws Exception {
+        final var objectMapper = new CustodyApiApplication().objectMapper();
+        final var map = new HashMap<String, Object>();
+        map.put("p_movement_seq", 3);
+        map.put("p_movement_type", "ADM");
+        map.put("p_record_deleted", null);
+        map.put("p_nomis_timestamp", "20200614101523.123456789");
+        map.put("unknown", "ignored");
+
+        final var viaJson = objectMapper.readValue(objectMapper.writeValueAsString(map), XtagContent.class);
+
+        assertThat(XtagContentBinder.bind(map)).isEqualTo(viaJson);
+    }
+}